@@ -28,6 +28,10 @@ public class ArmadilloSession {
     logger.debug("Created new connection with pid {}.", pid);
   }
 
+  public int getPid() {
+    return pid;
+  }
+
   public synchronized <T> T execute(Function<RServerConnection, T> consumer) {
     busy = true;
     try {
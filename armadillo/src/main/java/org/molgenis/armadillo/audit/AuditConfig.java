@@ -1,26 +1,51 @@
 package org.molgenis.armadillo.audit;
 
-import org.springframework.boot.actuate.audit.AuditEventRepository;
-import org.springframework.boot.actuate.audit.InMemoryAuditEventRepository;
-import org.springframework.boot.actuate.audit.listener.AuditListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class AuditConfig {
 
-  @Bean
-  public AuditLogger auditLogger() {
-    return new AuditLogger();
+  static final String PATH_PROPERTY = "audit.log.path";
+  static final String CAPACITY_PROPERTY = "audit.log.capacity";
+  static final String FLUSH_INTERVAL_PROPERTY = "audit.log.flush-interval";
+  static final String FSYNC_PROPERTY = "audit.log.fsync";
+  static final String STORE_PATH_PROPERTY = "audit.store.path";
+  static final String STORE_CACHED_EVENTS_PROPERTY = "audit.store.cached-events";
+  static final String STORE_MAX_RANGE_PROPERTY = "audit.store.max-range";
+
+  @Bean(destroyMethod = "close")
+  public AuditWriter auditWriter(
+      MeterRegistry meterRegistry,
+      @Value("${" + PATH_PROPERTY + ":logs/audit.log}") Path path,
+      @Value("${" + CAPACITY_PROPERTY + ":65536}") int capacity,
+      @Value("${" + FLUSH_INTERVAL_PROPERTY + ":1s}") Duration flushInterval,
+      @Value("${" + FSYNC_PROPERTY + ":false}") boolean fsync,
+      AuditStore auditStore) {
+    var auditWriter =
+        new AuditWriter(path, capacity, flushInterval, fsync, auditStore, meterRegistry);
+    auditStore.setWriter(auditWriter);
+    return auditWriter;
   }
 
   @Bean
-  public AuditEventRepository auditEventRepository() {
-    return new InMemoryAuditEventRepository();
+  public AuditLogger auditLogger(AuditWriter auditWriter) {
+    return new AuditLogger(auditWriter);
   }
 
-  @Bean
-  public AuditListener auditListener() {
-    return new AuditListener(auditEventRepository());
+  @Bean(destroyMethod = "close")
+  public AuditStore auditEventRepository(
+      MeterRegistry meterRegistry,
+      @Value("${" + PATH_PROPERTY + ":logs/audit.log}") Path logFile,
+      @Value("${" + STORE_PATH_PROPERTY + ":logs/audit}") Path directory,
+      @Value("${" + STORE_CACHED_EVENTS_PROPERTY + ":1000000}") long cachedEvents,
+      @Value("${" + STORE_MAX_RANGE_PROPERTY + ":31d}") Duration maxRange) {
+    return new AuditStore(
+        logFile, directory, cachedEvents, maxRange, Clock.systemUTC(), meterRegistry);
   }
 }
@@ -68,14 +68,20 @@ public class AuditEventPublisher implements ApplicationEventPublisherAware {
   public static final String MOVE_OBJECT = "MOVE_OBJECT";
   public static final String GET_OBJECT = "GET_OBJECT";
   public static final String PREVIEW_OBJECT = "PREVIEW_OBJECT";
+  public static final String GET_OBJECT_METADATA = "GET_OBJECT_METADATA";
   public static final String DELETE_OBJECT = "DELETE_OBJECT";
   public static final String DOWNLOAD_OBJECT = "DOWNLOAD_OBJECT";
+  public static final String START_UPLOAD = "START_UPLOAD";
+  public static final String GET_UPLOAD = "GET_UPLOAD";
+  public static final String UPLOAD_PART = "UPLOAD_PART";
+  public static final String ABORT_UPLOAD = "ABORT_UPLOAD";
   public static final String LIST_USERS = "LIST_USERS";
   public static final String GET_TABLES = "GET_TABLES";
   public static final String LOAD_TABLE = "LOAD_TABLE";
   public static final String GET_RESOURCES = "GET_RESOURCES";
   public static final String INSTALL_PACKAGES = "INSTALL_PACKAGES";
   public static final String INSTALL_PACKAGES_FAILURE = "INSTALL_PACKAGES_FAILURE";
+  public static final String GET_AUDIT_EVENTS = "GET_AUDIT_EVENTS";
   public static final String EXPRESSION = "expression";
   public static final String SELECTED_PROFILE = "selectedProfile";
   public static final String TYPE = "type";
@@ -85,6 +91,8 @@ public class AuditEventPublisher implements ApplicationEventPublisherAware {
   public static final String PROJECT = "project";
   public static final String PROFILE = "profile";
   public static final String OBJECT = "object";
+  public static final String UPLOAD = "upload";
+  public static final String PART = "part";
   public static final String EMAIL = "email";
   public static final String MESSAGE = "message";
   public static final String TABLE = "table";
@@ -0,0 +1,22 @@
+package org.molgenis.armadillo.audit;
+
+import java.time.Instant;
+import javax.annotation.Nullable;
+
+/**
+ * Selects audit events from {@code from} (inclusive) to {@code to} (exclusive). The other fields
+ * filter on the principal, type, project and session ID of the events. Fields that are null don't
+ * select.
+ */
+public record AuditQuery(
+    @Nullable Instant from,
+    @Nullable Instant to,
+    @Nullable String principal,
+    @Nullable String type,
+    @Nullable String project,
+    @Nullable String sessionId) {
+
+  boolean isInRange(Instant timestamp) {
+    return (from == null || !timestamp.isBefore(from)) && (to == null || timestamp.isBefore(to));
+  }
+}
@@ -0,0 +1,211 @@
+package org.molgenis.armadillo.audit;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.PROJECT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import org.springframework.boot.actuate.audit.AuditEvent;
+
+/**
+ * The index of the audit events of one day, in the order they were written to the audit file. It
+ * holds the offset, length and timestamp of each event's line, and per field that a query can
+ * filter on, a map from each value of the field to the positions of the events that have it. The
+ * events themselves are only read from the audit file when a query matches them.
+ */
+class AuditSegment {
+
+  static final String SESSION_ID = "sessionId";
+
+  private static final int VERSION = 1;
+  private static final Map<String, Function<AuditEvent, Object>> FIELDS =
+      Map.of(
+          "principal", AuditEvent::getPrincipal,
+          "type", AuditEvent::getType,
+          PROJECT, event -> event.getData().get(PROJECT),
+          SESSION_ID, event -> event.getData().get(SESSION_ID));
+
+  /** Reads the event from a line of the audit file. */
+  interface LineReader {
+    Optional<AuditEvent> read(long offset, int length);
+  }
+
+  private final LocalDate date;
+  private final Map<String, Map<String, BitSet>> indexes = new HashMap<>();
+  private int size = 0;
+  private long[] offsets = new long[64];
+  private int[] lengths = new int[64];
+  private long[] timestamps = new long[64];
+
+  AuditSegment(LocalDate date) {
+    this.date = date;
+    FIELDS.keySet().forEach(field -> indexes.put(field, new HashMap<>()));
+  }
+
+  LocalDate getDate() {
+    return date;
+  }
+
+  synchronized void add(AuditEvent event, long offset, int length) {
+    if (size == offsets.length) {
+      offsets = Arrays.copyOf(offsets, size * 2);
+      lengths = Arrays.copyOf(lengths, size * 2);
+      timestamps = Arrays.copyOf(timestamps, size * 2);
+    }
+    int position = size++;
+    offsets[position] = offset;
+    lengths[position] = length;
+    timestamps[position] = toNanos(event.getTimestamp());
+    FIELDS.forEach(
+        (field, getter) -> {
+          var value = getter.apply(event);
+          if (value != null) {
+            indexes
+                .get(field)
+                .computeIfAbsent(value.toString(), v -> new BitSet())
+                .set(position);
+          }
+        });
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  /** The offset in the audit file up to which this segment indexed the events. */
+  synchronized long getEnd() {
+    return size == 0 ? 0 : offsets[size - 1] + lengths[size - 1];
+  }
+
+  /**
+   * Finds the events that match the query, newest first. The lines of the matching events are read
+   * after the index is searched, so that writes to the segment don't wait for the file.
+   *
+   * @param skip number of matching events to skip
+   * @param limit maximum number of events to return
+   * @param reader reads the matching events from the audit file
+   * @param matches receives the matching events
+   * @return the number of matching events that were skipped
+   */
+  int find(AuditQuery query, int skip, int limit, LineReader reader, List<AuditEvent> matches) {
+    int wanted = limit - matches.size();
+    var found = new long[wanted];
+    var foundLengths = new int[wanted];
+    int count = 0;
+    int skipped = 0;
+    synchronized (this) {
+      var selected = new BitSet();
+      selected.set(0, size);
+      select(selected, "principal", query.principal());
+      select(selected, "type", query.type());
+      select(selected, PROJECT, query.project());
+      select(selected, SESSION_ID, query.sessionId());
+      for (int i = selected.previousSetBit(size - 1);
+          i >= 0 && count < wanted;
+          i = selected.previousSetBit(i - 1)) {
+        if (!query.isInRange(Instant.ofEpochSecond(0, timestamps[i]))) {
+          continue;
+        }
+        if (skipped < skip) {
+          skipped++;
+        } else {
+          found[count] = offsets[i];
+          foundLengths[count] = lengths[i];
+          count++;
+        }
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      reader.read(found[i], foundLengths[i]).ifPresent(matches::add);
+    }
+    return skipped;
+  }
+
+  private void select(BitSet selected, String field, String value) {
+    if (value != null) {
+      selected.and(Objects.requireNonNullElseGet(indexes.get(field).get(value), BitSet::new));
+    }
+  }
+
+  private static long toNanos(Instant timestamp) {
+    return timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano();
+  }
+
+  /** Writes the index to a file, replacing the file in one go so that it's never half written. */
+  synchronized void save(Path path) throws IOException {
+    var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (var output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+      output.writeInt(VERSION);
+      output.writeInt(size);
+      for (int i = 0; i < size; i++) {
+        output.writeLong(offsets[i]);
+        output.writeInt(lengths[i]);
+        output.writeLong(timestamps[i]);
+      }
+      output.writeInt(indexes.size());
+      for (var index : indexes.entrySet()) {
+        output.writeUTF(index.getKey());
+        output.writeInt(index.getValue().size());
+        for (var value : index.getValue().entrySet()) {
+          output.writeUTF(value.getKey());
+          var words = value.getValue().toLongArray();
+          output.writeInt(words.length);
+          for (var word : words) {
+            output.writeLong(word);
+          }
+        }
+      }
+    }
+    Files.move(temporary, path, ATOMIC_MOVE);
+  }
+
+  static AuditSegment load(LocalDate date, Path path) throws IOException {
+    var segment = new AuditSegment(date);
+    try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      int version = input.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unknown version " + version + " of audit index " + path);
+      }
+      int size = input.readInt();
+      segment.size = size;
+      segment.offsets = new long[Math.max(size, 64)];
+      segment.lengths = new int[Math.max(size, 64)];
+      segment.timestamps = new long[Math.max(size, 64)];
+      for (int i = 0; i < size; i++) {
+        segment.offsets[i] = input.readLong();
+        segment.lengths[i] = input.readInt();
+        segment.timestamps[i] = input.readLong();
+      }
+      int fields = input.readInt();
+      for (int i = 0; i < fields; i++) {
+        var index = segment.indexes.computeIfAbsent(input.readUTF(), field -> new HashMap<>());
+        int values = input.readInt();
+        for (int j = 0; j < values; j++) {
+          var value = input.readUTF();
+          var words = new long[input.readInt()];
+          for (int k = 0; k < words.length; k++) {
+            words[k] = input.readLong();
+          }
+          index.put(value, BitSet.valueOf(words));
+        }
+      }
+    }
+    return segment;
+  }
+}
@@ -0,0 +1,340 @@
+package org.molgenis.armadillo.audit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.time.ZoneOffset.UTC;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.audit.AuditEvent;
+import org.springframework.boot.actuate.audit.AuditEventRepository;
+
+/**
+ * Queries the audit file that the {@link AuditWriter} writes, through an index per day (UTC). The
+ * events are only in the audit file, the store keeps an {@link AuditSegment} per day that points
+ * to their lines. The current day's segment is built from what the writer reports, and saved to
+ * {@code audit-<date>.idx} when the next day starts and on close. On start, the lines that were
+ * written after the last saved segment are indexed from the audit file.
+ *
+ * <p>Queries look up the segments of the days in their time range, which is capped to {@code
+ * maxRange}, and only read the lines of the events they return. The most recently queried
+ * segments are kept in memory, up to {@code cachedEvents} events in total.
+ */
+public class AuditStore implements AuditEventRepository, AuditWriter.Listener {
+
+  /** The number of events {@link #find(String, Instant, String)} returns at most. */
+  static final int MAX_FOUND = 1000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AuditStore.class);
+  private static final String PREFIX = "audit-";
+  private static final String SUFFIX = ".idx";
+  private static final int BUFFER_SIZE = 65536;
+
+  private final Path logFile;
+  private final Path directory;
+  private final Duration maxRange;
+  private final Clock clock;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final LoadingCache<LocalDate, AuditSegment> segments;
+  // until the first event is indexed, an empty segment that every event is after
+  private AuditSegment current = new AuditSegment(LocalDate.EPOCH); // guarded by this
+  private FileChannel channel; // guarded by this
+  // set after construction, the writer reports back to the store
+  private volatile AuditWriter writer;
+
+  public AuditStore(
+      Path logFile,
+      Path directory,
+      long cachedEvents,
+      Duration maxRange,
+      Clock clock,
+      MeterRegistry meterRegistry) {
+    this.logFile = logFile;
+    this.directory = directory;
+    this.maxRange = maxRange;
+    this.clock = clock;
+    this.segments =
+        CacheBuilder.newBuilder()
+            .maximumWeight(cachedEvents)
+            .<LocalDate, AuditSegment>weigher((date, segment) -> Math.max(1, segment.size()))
+            .recordStats()
+            .build(CacheLoader.from(this::load));
+    GuavaCacheMetrics.monitor(meterRegistry, segments, "audit-segments");
+    try {
+      Files.createDirectories(directory);
+      index();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  void setWriter(AuditWriter writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Appends the event to the audit file, it's indexed once the {@link AuditWriter} wrote it. Events
+   * that come in before the writer is set are dropped, auditing never fails the caller.
+   */
+  @Override
+  public void add(AuditEvent event) {
+    var auditWriter = writer;
+    if (auditWriter == null) {
+      LOGGER.warn("Dropping audit event {}, the audit writer isn't started yet", event);
+      return;
+    }
+    auditWriter.append(event);
+  }
+
+  @Override
+  public synchronized void written(List<AuditEvent> events, long[] offsets) {
+    for (int i = 0; i < events.size(); i++) {
+      add(events.get(i), offsets[i], (int) (offsets[i + 1] - offsets[i]));
+    }
+  }
+
+  /**
+   * Adds the event to the current segment, after starting the segment of the event's day if that
+   * is after the current segment's day. The previous segment is saved before it can be queried from
+   * the cache. Events are never added to an earlier segment, so an event that is written around
+   * midnight may end up in the segment of the next day.
+   */
+  private void add(AuditEvent event, long offset, int length) {
+    var date = LocalDate.ofInstant(event.getTimestamp(), UTC);
+    if (date.isAfter(current.getDate())) {
+      var previous = current;
+      current = new AuditSegment(date);
+      if (previous.size() > 0) {
+        save(previous);
+        segments.put(previous.getDate(), previous);
+      }
+    }
+    current.add(event, offset, length);
+  }
+
+  @Override
+  public List<AuditEvent> find(String principal, Instant after, String type) {
+    return find(new AuditQuery(after, null, principal, type, null, null), 0, MAX_FOUND);
+  }
+
+  /**
+   * Finds the events that match the query, newest first, skipping the first {@code skip}. Only the
+   * events of {@code maxRange} before the end of the query's range are found.
+   */
+  public List<AuditEvent> find(AuditQuery query, int skip, int limit) {
+    var to = Optional.ofNullable(query.to()).orElseGet(clock::instant);
+    var from = to.minus(maxRange);
+    if (query.from() != null && query.from().isAfter(from)) {
+      from = query.from();
+    }
+    var capped =
+        new AuditQuery(
+            from, query.to(), query.principal(), query.type(), query.project(), query.sessionId());
+
+    AuditSegment latest;
+    synchronized (this) {
+      latest = current;
+    }
+    // an event may end up in the segment of the next day if it's written around midnight
+    var first = LocalDate.ofInstant(from, UTC);
+    var last = LocalDate.ofInstant(to, UTC).plusDays(1);
+    var dates =
+        Stream.concat(listDates(), segments.asMap().keySet().stream())
+            .distinct()
+            .filter(date -> !date.isBefore(first) && !date.isAfter(last))
+            .filter(date -> date.isBefore(latest.getDate()))
+            .sorted(Comparator.reverseOrder())
+            .toList();
+
+    var matches = new ArrayList<AuditEvent>();
+    int toSkip = skip;
+    if (!latest.getDate().isBefore(first) && !latest.getDate().isAfter(last)) {
+      toSkip -= latest.find(capped, toSkip, limit, this::read, matches);
+    }
+    for (var date : dates) {
+      if (matches.size() >= limit) {
+        break;
+      }
+      toSkip -= segments.getUnchecked(date).find(capped, toSkip, limit, this::read, matches);
+    }
+    return matches;
+  }
+
+  private Stream<LocalDate> listDates() {
+    try (var files = Files.list(directory)) {
+      return files
+          .map(file -> file.getFileName().toString())
+          .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+          .map(name -> parseDate(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+          .flatMap(Optional::stream)
+          .toList()
+          .stream();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Optional<LocalDate> parseDate(String date) {
+    try {
+      return Optional.of(LocalDate.parse(date));
+    } catch (DateTimeParseException e) {
+      return Optional.empty();
+    }
+  }
+
+  private Path getPath(LocalDate date) {
+    return directory.resolve(PREFIX + date + SUFFIX);
+  }
+
+  private AuditSegment load(LocalDate date) {
+    var path = getPath(date);
+    if (!Files.exists(path)) {
+      return new AuditSegment(date);
+    }
+    try {
+      return AuditSegment.load(date, path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void save(AuditSegment segment) {
+    try {
+      segment.save(getPath(segment.getDate()));
+    } catch (IOException e) {
+      LOGGER.error("Failed to save the audit index of {}", segment.getDate(), e);
+    }
+  }
+
+  /**
+   * Indexes the lines of the audit file after the latest saved segment. Those are the events that
+   * were written after the last shutdown, or all events if the store has no segments yet.
+   */
+  private synchronized void index() throws IOException {
+    var latest = listDates().max(Comparator.naturalOrder());
+    if (latest.isPresent()) {
+      current = load(latest.get());
+    }
+    long size = Files.exists(logFile) ? Files.size(logFile) : 0;
+    if (current.getEnd() > size) {
+      LOGGER.warn("Audit file {} is shorter than its index, indexing it again", logFile);
+      for (var date : listDates().toList()) {
+        Files.delete(getPath(date));
+      }
+      current = new AuditSegment(LocalDate.EPOCH);
+    }
+    long offset = current.getEnd();
+    if (offset == size) {
+      return;
+    }
+    LOGGER.info("Indexing audit file {} from offset {}", logFile, offset);
+    try (var input = Files.newInputStream(logFile)) {
+      input.skipNBytes(offset);
+      var line = new ByteArrayOutputStream();
+      var buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        int start = 0;
+        for (int i = 0; i < read; i++) {
+          if (buffer[i] == '\n') {
+            line.write(buffer, start, i + 1 - start);
+            start = i + 1;
+            offset += indexLine(line.toByteArray(), offset);
+            line.reset();
+          }
+        }
+        line.write(buffer, start, read - start);
+      }
+    }
+  }
+
+  /** @return the length of the line */
+  private int indexLine(byte[] line, long offset) {
+    var json = new String(line, UTF_8);
+    if (!json.isBlank()) {
+      parse(json).ifPresent(event -> add(event, offset, line.length));
+    }
+    return line.length;
+  }
+
+  private Optional<AuditEvent> read(long offset, int length) {
+    var buffer = ByteBuffer.allocate(length);
+    try {
+      var file = getChannel();
+      while (buffer.hasRemaining()) {
+        if (file.read(buffer, offset + buffer.position()) < 0) {
+          throw new EOFException("Audit file " + logFile + " ends before offset " + offset);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return parse(new String(buffer.array(), UTF_8));
+  }
+
+  private synchronized FileChannel getChannel() throws IOException {
+    if (channel == null) {
+      channel = FileChannel.open(logFile, READ);
+    }
+    return channel;
+  }
+
+  /** A line can be incomplete if the application stopped while writing it. */
+  @SuppressWarnings("unchecked")
+  private Optional<AuditEvent> parse(String line) {
+    try {
+      Map<String, Object> json = objectMapper.readValue(line, new TypeReference<>() {});
+      return Optional.of(
+          new AuditEvent(
+              Instant.parse((String) json.get("timestamp")),
+              (String) json.get("principal"),
+              (String) json.get("type"),
+              (Map<String, Object>) json.getOrDefault("data", Map.of())));
+    } catch (JsonProcessingException | RuntimeException e) {
+      LOGGER.warn("Skipping invalid audit event '{}'", line.strip(), e);
+      return Optional.empty();
+    }
+  }
+
+  /** Saves the current segment, so that its events don't have to be indexed again on start. */
+  public void close() throws IOException {
+    AuditSegment segment;
+    synchronized (this) {
+      segment = current;
+      if (channel != null) {
+        channel.close();
+        channel = null;
+      }
+    }
+    if (segment.size() > 0) {
+      save(segment);
+    }
+  }
+}
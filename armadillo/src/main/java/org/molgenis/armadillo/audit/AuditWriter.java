@@ -0,0 +1,215 @@
+package org.molgenis.armadillo.audit;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.audit.AuditEvent;
+
+/**
+ * Appends audit events to the audit file, one JSON object per line, on a dedicated writer thread.
+ * Appending an event only puts it in a bounded queue, so that auditing doesn't add file I/O to the
+ * request. Every {@code flushInterval} the writer thread writes the waiting events in one batch,
+ * and with {@code fsync} forces them to disk. When the queue is full, events are dropped and
+ * counted. On close the queue is written out, and events that come in after that are written
+ * directly. After each batch the {@link Listener} is told where the events were written, so that
+ * they can be indexed without being written a second time.
+ */
+public class AuditWriter {
+
+  /** Is told about the events that were written to the audit file. */
+  public interface Listener {
+
+    /**
+     * @param events the events that were written, in the order of their lines
+     * @param offsets the offset of each event's line in the audit file, followed by the offset
+     *     after the last line
+     */
+    void written(List<AuditEvent> events, long[] offsets);
+  }
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AuditWriter.class);
+
+  private final Path path;
+  private final int capacity;
+  private final Duration flushInterval;
+  private final boolean fsync;
+  private final Listener listener;
+  private final ObjectMapper objectMapper =
+      new ObjectMapper().disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+  private final Queue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger backlog = new AtomicInteger();
+  private final Counter dropped;
+  private final Thread writerThread;
+  private final FileChannel channel;
+  private volatile boolean closed = false;
+
+  public AuditWriter(
+      Path path,
+      int capacity,
+      Duration flushInterval,
+      boolean fsync,
+      Listener listener,
+      MeterRegistry meterRegistry) {
+    this.path = path;
+    this.capacity = capacity;
+    this.flushInterval = flushInterval;
+    this.fsync = fsync;
+    this.listener = listener;
+    try {
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      this.channel = FileChannel.open(path, CREATE, READ, WRITE, APPEND);
+      endLastLine();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    Gauge.builder("armadillo.audit.backlog", backlog, AtomicInteger::get)
+        .description("Number of audit events waiting to be written")
+        .register(meterRegistry);
+    this.dropped =
+        Counter.builder("armadillo.audit.dropped")
+            .description("Number of audit events dropped because too many were waiting")
+            .register(meterRegistry);
+    this.writerThread = new Thread(this::run, "audit-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  /** Appends an event, or drops it if {@code capacity} events are waiting already. */
+  public void append(AuditEvent event) {
+    if (closed) {
+      write(List.of(event));
+      return;
+    }
+    if (backlog.incrementAndGet() > capacity) {
+      backlog.decrementAndGet();
+      dropped.increment();
+      return;
+    }
+    queue.add(event);
+    if (closed) {
+      // the writer may have closed while the event was added
+      writeBacklog();
+    }
+  }
+
+  private void run() {
+    while (!closed) {
+      LockSupport.parkNanos(flushInterval.toNanos());
+      writeBacklog();
+    }
+  }
+
+  private void writeBacklog() {
+    var batch = new ArrayList<AuditEvent>();
+    AuditEvent event;
+    while ((event = queue.poll()) != null) {
+      batch.add(event);
+      backlog.decrementAndGet();
+    }
+    if (!batch.isEmpty()) {
+      write(batch);
+    }
+  }
+
+  /** A line can be incomplete if the application stopped while writing it. */
+  private void endLastLine() throws IOException {
+    long size = channel.size();
+    if (size == 0) {
+      return;
+    }
+    var last = ByteBuffer.allocate(1);
+    channel.read(last, size - 1);
+    if (last.get(0) != '\n') {
+      channel.write(ByteBuffer.wrap(new byte[] {'\n'}));
+    }
+  }
+
+  private synchronized void write(List<AuditEvent> events) {
+    var lines = new ByteArrayOutputStream();
+    var written = new ArrayList<AuditEvent>(events.size());
+    var offsets = new long[events.size() + 1];
+    for (var event : events) {
+      try {
+        lines.write(objectMapper.writeValueAsBytes(toJson(event)));
+        lines.write('\n');
+        written.add(event);
+        offsets[written.size()] = lines.size();
+      } catch (JsonProcessingException e) {
+        LOGGER.warn("Failed to write audit event {}", event, e);
+      }
+    }
+    try {
+      // the only writer of the file, so its end is where the lines are appended
+      long start = channel.size();
+      var buffer = ByteBuffer.wrap(lines.toByteArray());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      if (fsync) {
+        channel.force(false);
+      }
+      var writtenOffsets = Arrays.copyOf(offsets, written.size() + 1);
+      for (int i = 0; i < writtenOffsets.length; i++) {
+        writtenOffsets[i] += start;
+      }
+      listener.written(written, writtenOffsets);
+    } catch (IOException e) {
+      LOGGER.error("Failed to write {} audit events to {}", events.size(), path, e);
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to index {} audit events", written.size(), e);
+    }
+  }
+
+  /** The fields of a line of the audit file. */
+  static Map<String, Object> toJson(AuditEvent event) {
+    Map<String, Object> json = new LinkedHashMap<>();
+    json.put("timestamp", event.getTimestamp().toString());
+    json.put("principal", event.getPrincipal());
+    json.put("type", event.getType());
+    json.put("data", event.getData());
+    return json;
+  }
+
+  /**
+   * Stops the writer thread and writes out the events that are waiting. The audit file stays open
+   * for the events that come in while the application shuts down.
+   */
+  public void close() throws InterruptedException, IOException {
+    closed = true;
+    LockSupport.unpark(writerThread);
+    writerThread.join();
+    writeBacklog();
+    synchronized (this) {
+      channel.force(false);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package org.molgenis.armadillo.command;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.molgenis.armadillo.exceptions.TooManyCommandsException;
+import org.molgenis.armadillo.profile.ActiveProfileNameAccessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the number of commands that are scheduled and not yet finished, per user, per profile
+ * and in total. The total is the number of command threads plus {@code
+ * armadillo.commands.max-queued}, so that the command executor never has to reject a command
+ * that was admitted. A burst of commands beyond a limit is turned away with a {@link
+ * TooManyCommandsException} instead of piling up.
+ */
+@Component
+public class CommandAdmission {
+
+  static final String ANONYMOUS = "anonymous";
+
+  private final int maxCommands;
+  private final int maxPerUser;
+  private final int maxPerProfile;
+  private final Counter totalRejections;
+  private final Counter userRejections;
+  private final Counter profileRejections;
+
+  // guarded by this
+  private final Map<String, Integer> commandsPerUser = new HashMap<>();
+  private final Map<String, Integer> commandsPerProfile = new HashMap<>();
+  private int commands;
+
+  public CommandAdmission(
+      MeterRegistry meterRegistry,
+      @Value("${" + CommandsConfig.THREADS_PROPERTY + ":64}") int threads,
+      @Value("${" + CommandsConfig.MAX_QUEUED_PROPERTY + ":256}") int maxQueued,
+      @Value("${armadillo.commands.max-per-user:32}") int maxPerUser,
+      @Value("${armadillo.commands.max-per-profile:128}") int maxPerProfile) {
+    this.maxCommands = threads + maxQueued;
+    this.maxPerUser = maxPerUser;
+    this.maxPerProfile = maxPerProfile;
+    this.totalRejections = rejections(meterRegistry, "total");
+    this.userRejections = rejections(meterRegistry, "user");
+    this.profileRejections = rejections(meterRegistry, "profile");
+    Gauge.builder("armadillo.commands.pending", this, CommandAdmission::getCommands)
+        .description("Number of commands that are queued or running")
+        .register(meterRegistry);
+  }
+
+  private Counter rejections(MeterRegistry registry, String limit) {
+    return Counter.builder("armadillo.commands.rejected")
+        .tag("limit", limit)
+        .description("Number of commands rejected because a limit was reached")
+        .register(registry);
+  }
+
+  /**
+   * Admits a command of the current user on the active profile.
+   *
+   * @return callback to release the command once it has finished, may be called more than once
+   * @throws TooManyCommandsException if admitting the command would exceed a limit
+   */
+  public Runnable admit() {
+    return admit(getCurrentUser(), ActiveProfileNameAccessor.getActiveProfileName());
+  }
+
+  /** The name of the user commands are scheduled for, in the current thread. */
+  public static String getCurrentUser() {
+    return Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication())
+        .map(Authentication::getName)
+        .orElse(ANONYMOUS);
+  }
+
+  synchronized Runnable admit(String user, String profile) {
+    if (commands >= maxCommands) {
+      totalRejections.increment();
+      throw new TooManyCommandsException("in total", maxCommands);
+    }
+    if (commandsPerUser.getOrDefault(user, 0) >= maxPerUser) {
+      userRejections.increment();
+      throw new TooManyCommandsException("per user", maxPerUser);
+    }
+    if (commandsPerProfile.getOrDefault(profile, 0) >= maxPerProfile) {
+      profileRejections.increment();
+      throw new TooManyCommandsException("per profile", maxPerProfile);
+    }
+    commands++;
+    commandsPerUser.merge(user, 1, Integer::sum);
+    commandsPerProfile.merge(profile, 1, Integer::sum);
+    var released = new AtomicBoolean();
+    return () -> {
+      if (released.compareAndSet(false, true)) {
+        release(user, profile);
+      }
+    };
+  }
+
+  private synchronized void release(String user, String profile) {
+    commands--;
+    commandsPerUser.computeIfPresent(user, (key, count) -> count == 1 ? null : count - 1);
+    commandsPerProfile.computeIfPresent(profile, (key, count) -> count == 1 ? null : count - 1);
+  }
+
+  synchronized int getCommands() {
+    return commands;
+  }
+}
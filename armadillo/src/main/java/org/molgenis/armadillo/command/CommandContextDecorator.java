@@ -0,0 +1,41 @@
+package org.molgenis.armadillo.command;
+
+import static org.springframework.security.core.context.SecurityContextHolder.clearContext;
+import static org.springframework.security.core.context.SecurityContextHolder.createEmptyContext;
+import static org.springframework.security.core.context.SecurityContextHolder.setContext;
+
+import org.molgenis.armadillo.profile.ActiveProfileNameAccessor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Copies the security context and the active profile of the thread that decorates a task to the
+ * thread that runs it.
+ */
+public class CommandContextDecorator implements TaskDecorator {
+
+  @Override
+  public Runnable decorate(Runnable runnable) {
+    // this runs in the calling thread
+    final SecurityContext securityContext = SecurityContextHolder.getContext();
+    final String profile = ActiveProfileNameAccessor.getActiveProfileName();
+    return () -> {
+      // this runs in the task thread
+      final SecurityContext originalSecurityContext = SecurityContextHolder.getContext();
+      try {
+        SecurityContextHolder.setContext(securityContext);
+        ActiveProfileNameAccessor.setActiveProfileName(profile);
+        runnable.run();
+      } finally {
+        SecurityContext emptyContext = createEmptyContext();
+        if (emptyContext.equals(originalSecurityContext)) {
+          clearContext();
+        } else {
+          setContext(originalSecurityContext);
+        }
+        ActiveProfileNameAccessor.resetActiveProfileName();
+      }
+    };
+  }
+}
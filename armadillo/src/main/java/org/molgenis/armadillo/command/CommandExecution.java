@@ -0,0 +1,27 @@
+package org.molgenis.armadillo.command;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The execution of a scheduled command. Carries the id of the command, so that a client can be
+ * pointed to it while it is still running.
+ */
+public class CommandExecution<T> extends CompletableFuture<T> {
+
+  private final UUID commandId;
+
+  public CommandExecution(UUID commandId) {
+    this.commandId = commandId;
+  }
+
+  public UUID getCommandId() {
+    return commandId;
+  }
+
+  /** Dependent stages are plain futures, they are not the execution of the command. */
+  @Override
+  public <U> CompletableFuture<U> newIncompleteFuture() {
+    return new CompletableFuture<>();
+  }
+}
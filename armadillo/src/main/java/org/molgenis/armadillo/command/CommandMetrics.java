@@ -0,0 +1,186 @@
+package org.molgenis.armadillo.command;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the lifecycle of the commands of a session, tagged with the profile, the {@link Kind}
+ * of command and its outcome. {@code armadillo.commands.queued} is the time from scheduling a
+ * command until it starts, including the time it waits for the previous commands of its session.
+ * {@code armadillo.commands.run} is the time it takes R to evaluate it. The tables, resources,
+ * workspaces and packages that are copied to R are published as {@code
+ * armadillo.commands.transfer.size}, {@code .duration} and {@code .throughput}.
+ *
+ * <p>The timers and summaries publish histograms, so that percentiles can be computed across
+ * instances.
+ */
+@Component
+public class CommandMetrics {
+
+  static final String SUCCESS = "success";
+  static final String FAILURE = "failure";
+
+  public enum Kind {
+    EVALUATE("evaluate"),
+    ASSIGN("assign"),
+    LOAD_TABLE("loadTable"),
+    LOAD_RESOURCE("loadResource"),
+    LOAD_WORKSPACE("loadWorkspace"),
+    SAVE_WORKSPACE("saveWorkspace"),
+    INSTALL("install"),
+    PACKAGES("packages");
+
+    private final String tag;
+
+    Kind(String tag) {
+      this.tag = tag;
+    }
+
+    public String getTag() {
+      return tag;
+    }
+  }
+
+  private final MeterRegistry meterRegistry;
+
+  public CommandMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Records a finished command.
+   *
+   * @param queued time from scheduling the command until it started
+   * @param run time it took to evaluate the command, null if it never started
+   */
+  public void recordCommand(
+      String profile, Kind kind, boolean success, Duration queued, Duration run) {
+    Timer.builder("armadillo.commands.queued")
+        .tags("profile", profile, "kind", kind.getTag(), "outcome", outcome(success))
+        .description("Time from scheduling a command until it starts")
+        .publishPercentileHistogram()
+        .register(meterRegistry)
+        .record(queued);
+    if (run != null) {
+      Timer.builder("armadillo.commands.run")
+          .tags("profile", profile, "kind", kind.getTag(), "outcome", outcome(success))
+          .description("Time it takes R to evaluate a command")
+          .publishPercentileHistogram()
+          .register(meterRegistry)
+          .record(run);
+    }
+  }
+
+  /**
+   * Wraps a resource that is copied to R, so that the transfer is recorded when its input stream
+   * is closed. A transfer that was closed before the end of the stream was reached failed.
+   */
+  public Resource meterTransfer(Resource resource, String profile, Kind kind) {
+    return new AbstractResource() {
+      @Override
+      public String getDescription() {
+        return resource.getDescription();
+      }
+
+      @Override
+      public InputStream getInputStream() throws IOException {
+        return new MeteredInputStream(resource.getInputStream(), profile, kind);
+      }
+    };
+  }
+
+  private void recordTransfer(
+      String profile, Kind kind, boolean success, long bytes, long elapsedNanos) {
+    String[] tags = {"profile", profile, "kind", kind.getTag(), "outcome", outcome(success)};
+    DistributionSummary.builder("armadillo.commands.transfer.size")
+        .tags(tags)
+        .baseUnit("bytes")
+        .description("Size of the files copied to R")
+        .publishPercentileHistogram()
+        .register(meterRegistry)
+        .record(bytes);
+    Timer.builder("armadillo.commands.transfer.duration")
+        .tags(tags)
+        .description("Time it takes to copy a file to R")
+        .publishPercentileHistogram()
+        .register(meterRegistry)
+        .record(Duration.ofNanos(elapsedNanos));
+    if (elapsedNanos > 0) {
+      DistributionSummary.builder("armadillo.commands.transfer.throughput")
+          .tags(tags)
+          .baseUnit("bytes.per.second")
+          .description("Rate at which files are copied to R")
+          .publishPercentileHistogram()
+          .register(meterRegistry)
+          .record(bytes * 1e9 / elapsedNanos);
+    }
+  }
+
+  private static String outcome(boolean success) {
+    return success ? SUCCESS : FAILURE;
+  }
+
+  private class MeteredInputStream extends FilterInputStream {
+    private final String profile;
+    private final Kind kind;
+    private final long started = System.nanoTime();
+    private long bytes;
+    private boolean ended;
+    private boolean closed;
+
+    MeteredInputStream(InputStream in, String profile, Kind kind) {
+      super(in);
+      this.profile = profile;
+      this.kind = kind;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int read = super.read();
+      count(read == -1 ? -1 : 1);
+      return read;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      count(read);
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      bytes += skipped;
+      return skipped;
+    }
+
+    private void count(int read) {
+      if (read == -1) {
+        ended = true;
+      } else {
+        bytes += read;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (!closed) {
+          closed = true;
+          recordTransfer(profile, kind, ended, bytes, System.nanoTime() - started);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package org.molgenis.armadillo.command;
+
+import static java.lang.Math.max;
+import static java.util.Comparator.comparingLong;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides which command runs next on the R environment of a profile. A profile runs at most {@code
+ * armadillo.commands.max-running-per-profile} commands at a time, the others wait.
+ *
+ * <p>The waiting commands of a profile are taken in weighted fair order. Every user of the profile
+ * has a virtual clock that advances by the cost of each command the user submits, and the command
+ * that finishes first on its user's clock runs first. An interactive command, that returns a
+ * result to the client, costs 1. Other commands, like loading tables and assigning symbols, cost
+ * {@code armadillo.commands.batch-cost}. So a user who queues many loads gets a fair share of the
+ * profile, but can't hold up the aggregate calls of the other users.
+ *
+ * <p>A command that the executor rejects goes back in its queue, and is tried again when one of the
+ * running commands finishes. It is only refused if no command is running that it could wait for.
+ *
+ * <p>The time commands wait is published as {@code armadillo.commands.wait}.
+ */
+@Component
+public class CommandScheduler {
+
+  static final String MAX_RUNNING_PROPERTY = "armadillo.commands.max-running-per-profile";
+  static final String BATCH_COST_PROPERTY = "armadillo.commands.batch-cost";
+
+  private final TaskExecutor taskExecutor;
+  private final MeterRegistry meterRegistry;
+  private final int maxRunning;
+  private final long batchCost;
+
+  // guarded by this
+  private final Map<String, ProfileQueue> profiles = new HashMap<>();
+  private long sequence;
+  private int running;
+
+  private record Entry(
+      String profile,
+      boolean interactive,
+      Runnable task,
+      Consumer<TaskRejectedException> rejected,
+      long start,
+      long finish,
+      long sequence,
+      long submitted) {}
+
+  private static class ProfileQueue {
+    private final PriorityQueue<Entry> entries =
+        new PriorityQueue<>(comparingLong(Entry::finish).thenComparingLong(Entry::sequence));
+    private final Map<String, Long> userClocks = new HashMap<>();
+    private long virtualTime;
+    private int running;
+  }
+
+  public CommandScheduler(
+      TaskExecutor taskExecutor,
+      MeterRegistry meterRegistry,
+      @Value("${" + MAX_RUNNING_PROPERTY + ":16}") int maxRunning,
+      @Value("${" + BATCH_COST_PROPERTY + ":4}") long batchCost) {
+    this.taskExecutor = taskExecutor;
+    this.meterRegistry = meterRegistry;
+    this.maxRunning = maxRunning;
+    this.batchCost = batchCost;
+  }
+
+  /**
+   * Submits a command to run on a profile.
+   *
+   * @param rejected called instead of the task if the executor rejects it
+   */
+  public void submit(
+      String profile,
+      String user,
+      boolean interactive,
+      Runnable task,
+      Consumer<TaskRejectedException> rejected) {
+    List<Entry> next;
+    synchronized (this) {
+      var queue = profiles.computeIfAbsent(profile, key -> new ProfileQueue());
+      long start = max(queue.virtualTime, queue.userClocks.getOrDefault(user, 0L));
+      long finish = start + (interactive ? 1 : batchCost);
+      queue.userClocks.put(user, finish);
+      queue.entries.add(
+          new Entry(
+              profile, interactive, task, rejected, start, finish, sequence++, System.nanoTime()));
+      next = takeNext(profile, queue);
+    }
+    execute(next);
+  }
+
+  private List<Entry> takeNext(String profile, ProfileQueue queue) {
+    var next = new ArrayList<Entry>();
+    while (queue.running < maxRunning && !queue.entries.isEmpty()) {
+      var entry = queue.entries.poll();
+      queue.virtualTime = max(queue.virtualTime, entry.start());
+      queue.running++;
+      running++;
+      next.add(entry);
+    }
+    removeIfIdle(profile, queue);
+    return next;
+  }
+
+  private void removeIfIdle(String profile, ProfileQueue queue) {
+    if (queue.entries.isEmpty() && queue.running == 0) {
+      // an idle profile owes nobody anything
+      profiles.remove(profile);
+    }
+  }
+
+  /** Hands entries to the executor, the callbacks of refused entries run without holding locks. */
+  private void execute(List<Entry> entries) {
+    for (int i = 0; i < entries.size(); i++) {
+      var entry = entries.get(i);
+      try {
+        taskExecutor.execute(
+            () -> {
+              try {
+                entry.task().run();
+              } finally {
+                finished(entry.profile());
+              }
+            });
+      } catch (TaskRejectedException e) {
+        // the executor is full, no use trying the rest
+        requeue(entries.subList(i, entries.size()))
+            .forEach(refused -> refused.rejected().accept(e));
+        return;
+      }
+      Timer.builder("armadillo.commands.wait")
+          .tag("profile", entry.profile())
+          .tag("interactive", String.valueOf(entry.interactive()))
+          .description("Time commands wait for their turn on the R environment of a profile")
+          .register(meterRegistry)
+          .record(Duration.ofNanos(System.nanoTime() - entry.submitted()));
+    }
+  }
+
+  /**
+   * Puts back entries that the executor rejected, to be tried again when a running command
+   * finishes.
+   *
+   * @return the entries that are refused instead, because no command is running
+   */
+  private synchronized List<Entry> requeue(List<Entry> rejected) {
+    for (var entry : rejected) {
+      profiles.get(entry.profile()).running--;
+      running--;
+    }
+    if (running > 0) {
+      rejected.forEach(entry -> profiles.get(entry.profile()).entries.add(entry));
+      return List.of();
+    }
+    rejected.stream()
+        .map(Entry::profile)
+        .distinct()
+        .forEach(profile -> removeIfIdle(profile, profiles.get(profile)));
+    return List.copyOf(rejected);
+  }
+
+  private void finished(String profile) {
+    var next = new ArrayList<Entry>();
+    synchronized (this) {
+      var queue = profiles.get(profile);
+      queue.running--;
+      running--;
+      next.addAll(takeNext(profile, queue));
+      // and the entries of other profiles that were rejected while the executor was full
+      for (var other : List.copyOf(profiles.entrySet())) {
+        if (!other.getKey().equals(profile)) {
+          next.addAll(takeNext(other.getKey(), other.getValue()));
+        }
+      }
+    }
+    execute(next);
+  }
+
+  synchronized int getRunning(String profile) {
+    var queue = profiles.get(profile);
+    return queue != null ? queue.running : 0;
+  }
+}
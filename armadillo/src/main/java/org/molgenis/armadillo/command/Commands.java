@@ -3,6 +3,7 @@ package org.molgenis.armadillo.command;
 import java.security.Principal;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import org.molgenis.r.RServerResult;
 import org.molgenis.r.model.RPackage;
@@ -16,13 +17,13 @@ public interface Commands {
 
   void selectProfile(String profileName);
 
-  CompletableFuture<RServerResult> evaluate(String expression);
+  CommandExecution<RServerResult> evaluate(String expression);
 
-  CompletableFuture<Void> assign(String symbol, String expression);
+  CommandExecution<Void> assign(String symbol, String expression);
 
-  CompletableFuture<Void> loadTable(String symbol, String table, List<String> variables);
+  CommandExecution<Void> loadTable(String symbol, String table, List<String> variables);
 
-  CompletableFuture<Void> loadResource(Principal principal, String symbol, String resource);
+  CommandExecution<Void> loadResource(Principal principal, String symbol, String resource);
 
   CompletableFuture<Void> loadWorkspace(Principal principal, String id);
 
@@ -36,6 +37,13 @@ public interface Commands {
 
   Optional<ArmadilloCommandDTO> getLastCommand();
 
+  /** Lists the commands of the session that are still retained, oldest first. */
+  List<ArmadilloCommandDTO> getCommands();
+
+  Optional<ArmadilloCommandDTO> getCommand(UUID id);
+
+  Optional<CompletableFuture<RServerResult>> getExecution(UUID id);
+
   enum ArmadilloCommandStatus {
     COMPLETED,
     FAILED,
@@ -1,52 +1,57 @@
 package org.molgenis.armadillo.command;
 
-import static org.springframework.security.core.context.SecurityContextHolder.*;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
-import java.util.concurrent.Executors;
-import org.molgenis.armadillo.profile.ActiveProfileNameAccessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.core.task.support.TaskExecutorAdapter;
-import org.springframework.security.core.context.SecurityContext;
-import org.springframework.security.core.context.SecurityContextHolder;
 
 @Configuration
 public class CommandsConfig {
 
+  static final String THREADS_PROPERTY = "armadillo.commands.threads";
+  static final String MAX_QUEUED_PROPERTY = "armadillo.commands.max-queued";
+
   /**
    * Added TaskExecutor instead of the ExecutorService to copy the request attributes (in particular
    * the profile definition) from the request to the thread executing the R-command.
+   *
+   * <p>Runs at most {@code armadillo.commands.threads} commands at a time, at most {@code
+   * armadillo.commands.max-queued} others wait in the queue. Its active and queued tasks are
+   * published as the {@code executor.*} metrics of the {@code commands} executor.
    */
   @Bean
   @Primary
-  public TaskExecutor executorService() {
-    TaskExecutorAdapter taskExecutorAdapter =
-        new TaskExecutorAdapter(Executors.newCachedThreadPool());
-    taskExecutorAdapter.setTaskDecorator(
-        runnable -> {
-          // this runs in the calling thread
-          final SecurityContext securityContext = SecurityContextHolder.getContext();
-          final String profile = ActiveProfileNameAccessor.getActiveProfileName();
-          return () -> {
-            // this runs in the task thread
-            final SecurityContext originalSecurityContext = SecurityContextHolder.getContext();
-            try {
-              SecurityContextHolder.setContext(securityContext);
-              ActiveProfileNameAccessor.setActiveProfileName(profile);
-              runnable.run();
-            } finally {
-              SecurityContext emptyContext = createEmptyContext();
-              if (emptyContext.equals(originalSecurityContext)) {
-                clearContext();
-              } else {
-                setContext(originalSecurityContext);
-              }
-              ActiveProfileNameAccessor.resetActiveProfileName();
-            }
-          };
-        });
+  public TaskExecutor executorService(
+      MeterRegistry meterRegistry,
+      @Value("${" + THREADS_PROPERTY + ":64}") int threads,
+      @Value("${" + MAX_QUEUED_PROPERTY + ":256}") int maxQueued) {
+    var threadCount = new AtomicInteger();
+    var executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            SECONDS,
+            new LinkedBlockingQueue<>(maxQueued),
+            runnable -> {
+              var thread = new Thread(runnable, "command-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.allowCoreThreadTimeOut(true);
+    new ExecutorServiceMetrics(executor, "commands", Tags.empty()).bindTo(meterRegistry);
+    TaskExecutorAdapter taskExecutorAdapter = new TaskExecutorAdapter(executor);
+    taskExecutorAdapter.setTaskDecorator(new CommandContextDecorator());
     return taskExecutorAdapter;
   }
 }
@@ -1,7 +1,6 @@
 package org.molgenis.armadillo.command.impl;
 
 import static java.lang.String.format;
-import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static org.molgenis.armadillo.controller.ArmadilloUtils.GLOBAL_ENV;
 import static org.molgenis.armadillo.security.RunAs.runAsSystem;
 import static org.molgenis.armadillo.storage.ArmadilloStorageService.PARQUET;
@@ -9,14 +8,33 @@ import static org.molgenis.armadillo.storage.ArmadilloStorageService.RDS;
 
 import java.io.InputStream;
 import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Queue;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import org.molgenis.armadillo.ArmadilloSession;
 import org.molgenis.armadillo.command.ArmadilloCommand;
 import org.molgenis.armadillo.command.ArmadilloCommandDTO;
+import org.molgenis.armadillo.command.CommandAdmission;
+import org.molgenis.armadillo.command.CommandContextDecorator;
+import org.molgenis.armadillo.command.CommandExecution;
+import org.molgenis.armadillo.command.CommandMetrics;
+import org.molgenis.armadillo.command.CommandMetrics.Kind;
+import org.molgenis.armadillo.command.CommandScheduler;
 import org.molgenis.armadillo.command.Commands;
+import org.molgenis.armadillo.exceptions.SessionEvictedException;
 import org.molgenis.armadillo.metadata.ProfileConfig;
 import org.molgenis.armadillo.metadata.ProfileService;
 import org.molgenis.armadillo.profile.ActiveProfileNameAccessor;
@@ -28,9 +46,13 @@ import org.molgenis.r.model.RPackage;
 import org.molgenis.r.service.PackageService;
 import org.molgenis.r.service.ProcessService;
 import org.molgenis.r.service.RExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.annotation.SessionScope;
 
@@ -38,35 +60,74 @@ import org.springframework.web.context.annotation.SessionScope;
 @SessionScope
 class CommandsImpl implements Commands {
 
+  static final String EVICTED_WORKSPACE = "evicted";
+  private static final DateTimeFormatter EVICTED_TIME_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CommandsImpl.class);
+
   private final ArmadilloStorageService armadilloStorage;
   private final PackageService packageService;
   private final RExecutorService rExecutorService;
-  private final TaskExecutor taskExecutor;
+  private final CommandScheduler scheduler;
   private final ArmadilloConnectionFactory connectionFactory;
   private final ProcessService processService;
   private final ProfileService profileService;
+  private final CommandAdmission admission;
+  private final SessionReaper reaper;
+  private final CommandMetrics metrics;
 
-  private ArmadilloSession armadilloSession;
+  private final TaskDecorator contextDecorator = new CommandContextDecorator();
+  private final Duration retention;
+  private final int maxRetained;
 
   @SuppressWarnings("java:S3077") // ArmadilloCommand is thread-safe
   private volatile ArmadilloCommand lastCommand;
 
+  private volatile Instant lastActivity = Instant.now();
+
+  // guarded by this, the session is null after the reaper ended its R process
+  private ArmadilloSession armadilloSession;
+  private String sessionProfile;
+  private Principal principal;
+  private final Map<UUID, ArmadilloCommandImpl<?>> commands = new LinkedHashMap<>();
+  private final Queue<QueuedCommand> queue = new ArrayDeque<>();
+  private boolean running;
+  // set when the reaper ended the R process, cleared when the next command is refused
+  private Eviction eviction;
+
   public CommandsImpl(
       ArmadilloStorageService armadilloStorage,
       PackageService packageService,
       RExecutorService rExecutorService,
-      TaskExecutor taskExecutor,
+      CommandScheduler scheduler,
       ArmadilloConnectionFactory connectionFactory,
       ProcessService processService,
-      ProfileService profileService) {
+      ProfileService profileService,
+      CommandAdmission admission,
+      SessionReaper reaper,
+      CommandMetrics metrics,
+      @Value("${armadillo.commands.retention:10m}") Duration retention,
+      @Value("${armadillo.commands.max-retained:100}") int maxRetained) {
     this.armadilloStorage = armadilloStorage;
     this.packageService = packageService;
     this.rExecutorService = rExecutorService;
-    this.taskExecutor = taskExecutor;
+    this.scheduler = scheduler;
     this.connectionFactory = connectionFactory;
     this.processService = processService;
     this.profileService = profileService;
+    this.admission = admission;
+    this.reaper = reaper;
+    this.metrics = metrics;
+    this.retention = retention;
+    this.maxRetained = maxRetained;
     this.armadilloSession = new ArmadilloSession(connectionFactory, processService);
+    this.sessionProfile = ActiveProfileNameAccessor.getActiveProfileName();
+  }
+
+  @PostConstruct
+  public void register() {
+    reaper.register(this);
   }
 
   @Override
@@ -75,11 +136,14 @@ class CommandsImpl implements Commands {
   }
 
   @Override
-  public void selectProfile(String profileName) {
+  public synchronized void selectProfile(String profileName) {
     runAsSystem(() -> profileService.getByName(profileName));
-    armadilloSession.sessionCleanup();
+    if (armadilloSession != null) {
+      armadilloSession.sessionCleanup();
+    }
     ActiveProfileNameAccessor.setActiveProfileName(profileName);
     armadilloSession = new ArmadilloSession(connectionFactory, processService);
+    sessionProfile = profileName;
   }
 
   @Override
@@ -97,18 +161,207 @@ class CommandsImpl implements Commands {
     return Optional.ofNullable(lastCommand).map(ArmadilloCommand::asDto);
   }
 
-  synchronized <T> CompletableFuture<T> schedule(ArmadilloCommandImpl<T> command) {
+  @Override
+  public synchronized List<ArmadilloCommandDTO> getCommands() {
+    removeExpiredCommands();
+    return commands.values().stream().map(ArmadilloCommand::asDto).toList();
+  }
+
+  @Override
+  public synchronized Optional<ArmadilloCommandDTO> getCommand(UUID id) {
+    removeExpiredCommands();
+    return Optional.ofNullable(commands.get(id)).map(ArmadilloCommand::asDto);
+  }
+
+  @Override
+  public synchronized Optional getExecution(UUID id) {
+    removeExpiredCommands();
+    return Optional.ofNullable(commands.get(id)).flatMap(ArmadilloCommand::getExecution);
+  }
+
+  /**
+   * Queues a command. The commands of a session run one at a time, in the order they were
+   * scheduled, so a client can schedule several commands without waiting for each one to finish.
+   *
+   * @throws org.molgenis.armadillo.exceptions.TooManyCommandsException if the command is not
+   *     admitted
+   */
+  <T> CommandExecution<T> schedule(Kind kind, ArmadilloCommandImpl<T> command) {
+    CommandExecution<T> result = enqueue(kind, command);
+    // submitted without holding the lock, the scheduler may call back into other sessions
+    startIfIdle();
+    return result;
+  }
+
+  private synchronized <T> CommandExecution<T> enqueue(Kind kind, ArmadilloCommandImpl<T> command) {
+    if (eviction != null) {
+      var workspace = eviction.workspace();
+      eviction = null;
+      throw workspace != null
+          ? new SessionEvictedException(workspace)
+          : new SessionEvictedException();
+    }
+    final Runnable release = admission.admit();
+    final String user = CommandAdmission.getCurrentUser();
+    final String profile = getActiveProfileName();
+    lastActivity = Instant.now();
+    var authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null) {
+      principal = authentication;
+    }
+    if (armadilloSession == null) {
+      armadilloSession = new ArmadilloSession(connectionFactory, processService);
+      sessionProfile = profile;
+    }
     final ArmadilloSession session = armadilloSession;
     lastCommand = command;
-    CompletableFuture<T> result =
-        supplyAsync(() -> session.execute(command::evaluate), taskExecutor);
+    commands.put(command.getId(), command);
+    removeExpiredCommands();
+    CompletableFuture<T> outcome = new CompletableFuture<>();
+    // completes after the command is released, so that a client can schedule the next one
+    CommandExecution<T> result = new CommandExecution<>(command.getId());
+    outcome.whenComplete(
+        (value, throwable) -> {
+          release.run();
+          if (throwable == null) {
+            result.complete(value);
+          } else {
+            result.completeExceptionally(throwable);
+          }
+        });
     command.setExecution(result);
+    // decorate now, the command may be started by the thread that ran the previous one
+    Runnable task =
+        contextDecorator.decorate(
+            () -> {
+              try {
+                T value = session.execute(command::evaluate);
+                recordCommand(profile, kind, true, command);
+                outcome.complete(value);
+              } catch (Exception e) {
+                recordCommand(profile, kind, false, command);
+                outcome.completeExceptionally(new CompletionException(e));
+              } finally {
+                lastActivity = Instant.now();
+                runNext();
+              }
+            });
+    queue.add(new QueuedCommand(profile, user, command.isWithResult(), task, outcome));
     return result;
   }
 
+  private void startIfIdle() {
+    synchronized (this) {
+      if (running) {
+        return;
+      }
+      running = true;
+    }
+    runNext();
+  }
+
+  private void recordCommand(
+      String profile, Kind kind, boolean success, ArmadilloCommandImpl<?> command) {
+    var started = command.getStartDate();
+    var queued = Duration.between(command.getCreateDate(), started.orElseGet(Instant::now));
+    var run =
+        started.flatMap(start -> command.getEndDate().map(end -> Duration.between(start, end)));
+    metrics.recordCommand(profile, kind, success, queued, run.orElse(null));
+  }
+
+  /** Submits the next command of the session, commands that return a result are interactive. */
+  private void runNext() {
+    QueuedCommand next;
+    synchronized (this) {
+      next = queue.poll();
+      running = next != null;
+    }
+    if (next != null) {
+      scheduler.submit(
+          next.profile(),
+          next.user(),
+          next.interactive(),
+          next.task(),
+          e -> {
+            next.result().completeExceptionally(e);
+            runNext();
+          });
+    }
+  }
+
+  Instant getLastActivity() {
+    return lastActivity;
+  }
+
+  /** The profile of the session's R process, empty if it has none. */
+  synchronized Optional<String> getSessionProfile() {
+    return armadilloSession != null ? Optional.of(sessionProfile) : Optional.empty();
+  }
+
+  /**
+   * Ends the R process of the session if it isn't running or waiting to run a command. The session
+   * gets a new process when it schedules its next command, the first command after the eviction
+   * fails with a {@link SessionEvictedException}. The workspace is saved outside the lock, so the
+   * session stays responsive while it is written.
+   *
+   * @param saveWorkspace whether to save the workspace as {@value #EVICTED_WORKSPACE}-{@code
+   *     <time>-<pid>} first
+   * @return the pid of the ended process, empty if there was none or the session is busy
+   */
+  OptionalInt evict(boolean saveWorkspace) {
+    final ArmadilloSession session;
+    final Principal owner;
+    final String workspace;
+    synchronized (this) {
+      // a queued command holds on to the session, also before it's started
+      if (running || !queue.isEmpty() || armadilloSession == null) {
+        return OptionalInt.empty();
+      }
+      session = armadilloSession;
+      owner = principal;
+      workspace = saveWorkspace && owner != null ? getEvictedWorkspace(session) : null;
+      armadilloSession = null;
+      eviction = new Eviction(workspace);
+    }
+    try {
+      if (workspace != null) {
+        session.execute(
+            connection -> {
+              rExecutorService.saveWorkspace(
+                  connection, is -> armadilloStorage.saveWorkspace(is, owner, workspace));
+              return null;
+            });
+      }
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to save the workspace of session with pid {}", session.getPid(), e);
+    } finally {
+      session.sessionCleanup();
+    }
+    return OptionalInt.of(session.getPid());
+  }
+
+  private static String getEvictedWorkspace(ArmadilloSession session) {
+    return format(
+        "%s-%s-%d",
+        EVICTED_WORKSPACE, EVICTED_TIME_FORMAT.format(LocalDateTime.now()), session.getPid());
+  }
+
+  private void removeExpiredCommands() {
+    var expired = Instant.now().minus(retention);
+    commands
+        .values()
+        .removeIf(command -> command.getEndDate().filter(expired::isAfter).isPresent());
+    var oldestFirst = commands.values().iterator();
+    while (commands.size() > maxRetained) {
+      oldestFirst.next();
+      oldestFirst.remove();
+    }
+  }
+
   @Override
-  public CompletableFuture<RServerResult> evaluate(String expression) {
+  public CommandExecution<RServerResult> evaluate(String expression) {
     return schedule(
+        Kind.EVALUATE,
         new ArmadilloCommandImpl<>(expression, true) {
           @Override
           protected RServerResult doWithConnection(RServerConnection connection) {
@@ -118,9 +371,10 @@ class CommandsImpl implements Commands {
   }
 
   @Override
-  public CompletableFuture<Void> assign(String symbol, String expression) {
+  public CommandExecution<Void> assign(String symbol, String expression) {
     String statement = format("is.null(base::assign('%s', value={%s}))", symbol, expression);
     return schedule(
+        Kind.ASSIGN,
         new ArmadilloCommandImpl<>(statement, false) {
           @Override
           protected Void doWithConnection(RServerConnection connection) {
@@ -132,31 +386,39 @@ class CommandsImpl implements Commands {
 
   @Override
   public CompletableFuture<Void> loadWorkspace(Principal principal, String id) {
+    String profile = getActiveProfileName();
     return schedule(
+        Kind.LOAD_WORKSPACE,
         new ArmadilloCommandImpl<>("Load user workspace " + id, false) {
           @Override
           protected Void doWithConnection(RServerConnection connection) {
             InputStream inputStream = armadilloStorage.loadWorkspace(principal, id);
             rExecutorService.loadWorkspace(
-                connection, new InputStreamResource(inputStream), GLOBAL_ENV);
+                connection,
+                metrics.meterTransfer(
+                    new InputStreamResource(inputStream), profile, Kind.LOAD_WORKSPACE),
+                GLOBAL_ENV);
             return null;
           }
         });
   }
 
   @Override
-  public CompletableFuture<Void> loadTable(String symbol, String table, List<String> variables) {
+  public CommandExecution<Void> loadTable(String symbol, String table, List<String> variables) {
     int index = table.indexOf('/');
     String project = table.substring(0, index);
     String objectName = table.substring(index + 1);
+    String profile = getActiveProfileName();
     return schedule(
+        Kind.LOAD_TABLE,
         new ArmadilloCommandImpl<>("Load table " + table, false) {
           @Override
           protected Void doWithConnection(RServerConnection connection) {
-            InputStream inputStream = armadilloStorage.loadTable(project, objectName);
+            InputStream inputStream = armadilloStorage.loadTable(project, objectName, variables);
             rExecutorService.loadTable(
                 connection,
-                new InputStreamResource(inputStream),
+                metrics.meterTransfer(
+                    new InputStreamResource(inputStream), profile, Kind.LOAD_TABLE),
                 table + PARQUET,
                 symbol,
                 variables);
@@ -166,11 +428,13 @@ class CommandsImpl implements Commands {
   }
 
   @Override
-  public CompletableFuture<Void> loadResource(Principal principal, String symbol, String resource) {
+  public CommandExecution<Void> loadResource(Principal principal, String symbol, String resource) {
     int index = resource.indexOf('/');
     String project = resource.substring(0, index);
     String objectName = resource.substring(index + 1);
+    String profile = getActiveProfileName();
     return schedule(
+        Kind.LOAD_RESOURCE,
         new ArmadilloCommandImpl<>("Load resource " + resource, false) {
           @Override
           protected Void doWithConnection(RServerConnection connection) {
@@ -178,7 +442,8 @@ class CommandsImpl implements Commands {
             rExecutorService.loadResource(
                 principal,
                 connection,
-                new InputStreamResource(inputStream),
+                metrics.meterTransfer(
+                    new InputStreamResource(inputStream), profile, Kind.LOAD_RESOURCE),
                 resource + RDS,
                 symbol);
             return null;
@@ -189,6 +454,7 @@ class CommandsImpl implements Commands {
   @Override
   public CompletableFuture<Void> saveWorkspace(Principal principal, String id) {
     return schedule(
+        Kind.SAVE_WORKSPACE,
         new ArmadilloCommandImpl<>("Save user workspace" + id, false) {
           @Override
           protected Void doWithConnection(RServerConnection connection) {
@@ -202,11 +468,14 @@ class CommandsImpl implements Commands {
   @Override
   public CompletableFuture<Void> installPackage(
       Principal principal, Resource resource, String name) {
+    String profile = getActiveProfileName();
     return schedule(
+        Kind.INSTALL,
         new ArmadilloCommandImpl<>("Install package", false) {
           @Override
           protected Void doWithConnection(RServerConnection connection) {
-            rExecutorService.installPackage(connection, resource, name);
+            rExecutorService.installPackage(
+                connection, metrics.meterTransfer(resource, profile, Kind.INSTALL), name);
             return null;
           }
         });
@@ -215,6 +484,7 @@ class CommandsImpl implements Commands {
   @Override
   public CompletableFuture<List<RPackage>> getPackages() {
     return schedule(
+        Kind.PACKAGES,
         new ArmadilloCommandImpl<>("getInstalledPackages", true) {
           @Override
           protected List<RPackage> doWithConnection(RServerConnection connection) {
@@ -223,8 +493,21 @@ class CommandsImpl implements Commands {
         });
   }
 
+  /** @param workspace the workspace the R environment is saved as, null if it isn't */
+  private record Eviction(String workspace) {}
+
+  private record QueuedCommand(
+      String profile,
+      String user,
+      boolean interactive,
+      Runnable task,
+      CompletableFuture<?> result) {}
+
   @PreDestroy
-  public void preDestroy() {
-    armadilloSession.sessionCleanup();
+  public synchronized void preDestroy() {
+    reaper.unregister(this);
+    if (armadilloSession != null) {
+      armadilloSession.sessionCleanup();
+    }
   }
 }
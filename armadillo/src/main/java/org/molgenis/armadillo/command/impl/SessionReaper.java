@@ -0,0 +1,186 @@
+package org.molgenis.armadillo.command.impl;
+
+import static java.util.Comparator.comparing;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toMap;
+import static org.molgenis.armadillo.security.RunAs.runAsSystem;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.molgenis.armadillo.info.RProcessEndpoint;
+import org.molgenis.r.model.RProcess;
+import org.molgenis.r.service.ProcessService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Ends the R processes of sessions that aren't being used, every {@code
+ * armadillo.sessions.reaper-interval}:
+ *
+ * <ul>
+ *   <li>sessions that have been idle for longer than {@code armadillo.sessions.idle-timeout}
+ *   <li>sessions of a profile whose Rserve processes together use more memory than {@code
+ *       armadillo.sessions.max-memory}, least recently used first, until they're back under it;
+ *       only sessions that have been idle for at least {@code armadillo.sessions.min-idle}
+ * </ul>
+ *
+ * If {@code armadillo.sessions.save-workspace} is set, the workspace of a session is saved as
+ * {@value CommandsImpl#EVICTED_WORKSPACE}-{@code <time>-<pid>} before its process ends, so the user
+ * can load it again. The first command of a session after its process ended fails with the name
+ * of that workspace, the commands after it get a new process. The ended processes are counted in
+ * {@code armadillo.sessions.evicted}, tagged with the reason.
+ */
+@Component
+class SessionReaper {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SessionReaper.class);
+
+  private final RProcessEndpoint processEndpoint;
+  private final ProcessService processService;
+  private final MeterRegistry meterRegistry;
+  private final Duration interval;
+  private final Duration idleTimeout;
+  private final long maxMemory;
+  private final Duration minIdle;
+  private final boolean saveWorkspace;
+  private final Set<CommandsImpl> sessions = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService executor =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            var thread = new Thread(runnable, "session-reaper");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  public SessionReaper(
+      RProcessEndpoint processEndpoint,
+      ProcessService processService,
+      MeterRegistry meterRegistry,
+      @Value("${armadillo.sessions.reaper-interval:1m}") Duration interval,
+      @Value("${armadillo.sessions.idle-timeout:2h}") Duration idleTimeout,
+      @Value("${armadillo.sessions.max-memory:0}") DataSize maxMemory,
+      @Value("${armadillo.sessions.min-idle:1m}") Duration minIdle,
+      @Value("${armadillo.sessions.save-workspace:false}") boolean saveWorkspace) {
+    this.processEndpoint = processEndpoint;
+    this.processService = processService;
+    this.meterRegistry = meterRegistry;
+    this.interval = interval;
+    this.idleTimeout = idleTimeout;
+    this.maxMemory = maxMemory.toBytes();
+    this.minIdle = minIdle;
+    this.saveWorkspace = saveWorkspace;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!interval.isZero()) {
+      executor.scheduleWithFixedDelay(
+          this::reap, interval.toMillis(), interval.toMillis(), MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  void register(CommandsImpl session) {
+    sessions.add(session);
+  }
+
+  void unregister(CommandsImpl session) {
+    sessions.remove(session);
+  }
+
+  void reap() {
+    try {
+      evictIdleSessions();
+      evictForMemory();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to reap R sessions", e);
+    }
+  }
+
+  private void evictIdleSessions() {
+    if (idleTimeout.isZero()) {
+      return;
+    }
+    var idleSince = Instant.now().minus(idleTimeout);
+    sessions.stream()
+        .filter(session -> session.getLastActivity().isBefore(idleSince))
+        .forEach(session -> evict(session, "idle"));
+  }
+
+  private void evictForMemory() {
+    if (maxMemory <= 0) {
+      return;
+    }
+    Map<String, List<CommandsImpl>> sessionsPerProfile = new HashMap<>();
+    sessions.forEach(
+        session ->
+            session
+                .getSessionProfile()
+                .ifPresent(
+                    profile ->
+                        sessionsPerProfile
+                            .computeIfAbsent(profile, key -> new ArrayList<>())
+                            .add(session)));
+    sessionsPerProfile.forEach(this::evictForMemory);
+  }
+
+  private void evictForMemory(String profile, List<CommandsImpl> profileSessions) {
+    List<RProcess> processes;
+    try {
+      processes =
+          runAsSystem(
+              () -> processEndpoint.doWithConnection(profile, processService::getRserveProcesses));
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to get the R processes of profile '{}'", profile, e);
+      return;
+    }
+    double used =
+        processes.stream().map(RProcess::rss).filter(Objects::nonNull).mapToDouble(x -> x).sum();
+    Map<Integer, Double> rssByPid =
+        processes.stream()
+            .filter(process -> process.pid() != null && process.rss() != null)
+            .collect(toMap(RProcess::pid, RProcess::rss, (first, second) -> first));
+    var idleSince = Instant.now().minus(minIdle);
+    var leastRecentlyUsed =
+        profileSessions.stream()
+            .filter(session -> session.getLastActivity().isBefore(idleSince))
+            .sorted(comparing(CommandsImpl::getLastActivity))
+            .iterator();
+    while (used > maxMemory && leastRecentlyUsed.hasNext()) {
+      var pid = evict(leastRecentlyUsed.next(), "memory");
+      if (pid.isPresent()) {
+        used -= rssByPid.getOrDefault(pid.getAsInt(), 0.0);
+      }
+    }
+  }
+
+  private OptionalInt evict(CommandsImpl session, String reason) {
+    var pid = session.evict(saveWorkspace);
+    pid.ifPresent(
+        evicted -> {
+          LOGGER.info("Ended R process {} of an unused session, reason: {}", evicted, reason);
+          meterRegistry.counter("armadillo.sessions.evicted", "reason", reason).increment();
+        });
+    return pid;
+  }
+}
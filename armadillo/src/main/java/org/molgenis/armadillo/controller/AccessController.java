@@ -38,6 +38,7 @@ import org.molgenis.armadillo.metadata.AccessMetadata;
 import org.molgenis.armadillo.metadata.AccessService;
 import org.molgenis.armadillo.metadata.ProjectDetails;
 import org.molgenis.armadillo.metadata.ProjectPermission;
+import org.molgenis.armadillo.metadata.TableMetadataService;
 import org.molgenis.armadillo.metadata.UserDetails;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -59,10 +60,15 @@ public class AccessController {
 
   private final AccessService metadata;
   private final AuditEventPublisher auditor;
+  private final TableMetadataService tableMetadata;
 
-  public AccessController(AccessService metadataService, AuditEventPublisher auditor) {
+  public AccessController(
+      AccessService metadataService,
+      AuditEventPublisher auditor,
+      TableMetadataService tableMetadata) {
     this.metadata = metadataService;
     this.auditor = auditor;
+    this.tableMetadata = tableMetadata;
   }
 
   @Operation(summary = "Get all metadata")
@@ -207,7 +213,10 @@ public class AccessController {
   @ResponseStatus(NO_CONTENT)
   public void projectsDelete(Principal principal, @PathVariable String project) {
     auditor.audit(
-        () -> metadata.projectsDelete(project),
+        () -> {
+          metadata.projectsDelete(project);
+          tableMetadata.evictProject(project);
+        },
         principal,
         DELETE_PROJECT,
         Map.of(PROJECT, project));
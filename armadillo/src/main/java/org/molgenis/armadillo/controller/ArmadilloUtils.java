@@ -8,6 +8,7 @@ import static org.springframework.web.servlet.support.ServletUriComponentsBuilde
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.util.Optional;
+import java.util.UUID;
 import org.molgenis.r.RServerResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,8 +37,8 @@ public class ArmadilloUtils {
     }
   }
 
-  static URI getLastCommandLocation() {
-    return fromCurrentContextPath().replacePath("/lastcommand").build().toUri();
+  static URI getCommandLocation(UUID id) {
+    return fromCurrentContextPath().replacePath("/commands/{id}").buildAndExpand(id).toUri();
   }
 
   static String hexDump(byte[] bytes) {
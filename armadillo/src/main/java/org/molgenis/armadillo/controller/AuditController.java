@@ -0,0 +1,87 @@
+package org.molgenis.armadillo.controller;
+
+import static org.molgenis.armadillo.audit.AuditEventPublisher.GET_AUDIT_EVENTS;
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import org.molgenis.armadillo.audit.AuditEventPublisher;
+import org.molgenis.armadillo.audit.AuditQuery;
+import org.molgenis.armadillo.audit.AuditStore;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "audit", description = "API to query the audit events")
+@RestController
+@Validated
+@SecurityRequirement(name = "http")
+@SecurityRequirement(name = "bearerAuth")
+@SecurityRequirement(name = "JSESSIONID")
+@RequestMapping("audit")
+public class AuditController {
+
+  private final AuditStore auditStore;
+  private final AuditEventPublisher auditor;
+
+  public AuditController(AuditStore auditStore, AuditEventPublisher auditor) {
+    this.auditStore = auditStore;
+    this.auditor = auditor;
+  }
+
+  @Operation(
+      summary = "Query audit events",
+      description =
+          "Lists the audit events from 'from' up to 'to', newest first, a page at a time. The"
+              + " events can be filtered on user, type, project and session ID. The time range is"
+              + " capped to the configured audit.store.max-range before 'to', or before now.")
+  @PreAuthorize("hasRole('ROLE_SU')")
+  @GetMapping(path = "events", produces = APPLICATION_JSON_VALUE)
+  public AuditEventsResponse getEvents(
+      Principal principal,
+      @Parameter(description = "Start of the time range, inclusive")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DATE_TIME)
+          Instant from,
+      @Parameter(description = "End of the time range, exclusive")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DATE_TIME)
+          Instant to,
+      @RequestParam(required = false) String user,
+      @RequestParam(required = false) String type,
+      @RequestParam(required = false) String project,
+      @RequestParam(required = false) String sessionId,
+      @RequestParam(defaultValue = "0") @Min(0) int page,
+      @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int size) {
+    var query = new AuditQuery(from, to, user, type, project, sessionId);
+    Map<String, Object> data = new HashMap<>();
+    data.put("query", query);
+    data.put("page", page);
+    return auditor.audit(
+        () -> {
+          // one extra event tells if there's a next page
+          var events = auditStore.find(query, page * size, size + 1);
+          return new AuditEventsResponse(
+              events.subList(0, Math.min(size, events.size())),
+              page,
+              size,
+              events.size() > size);
+        },
+        principal,
+        GET_AUDIT_EVENTS,
+        data);
+  }
+}
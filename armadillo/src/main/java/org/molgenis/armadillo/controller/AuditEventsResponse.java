@@ -0,0 +1,7 @@
+package org.molgenis.armadillo.controller;
+
+import java.util.List;
+import org.springframework.boot.actuate.audit.AuditEvent;
+
+/** A page of audit events, newest first. {@code more} tells if there's a next page. */
+public record AuditEventsResponse(List<AuditEvent> events, int page, int size, boolean more) {}
@@ -0,0 +1,161 @@
+package org.molgenis.armadillo.controller;
+
+import static java.lang.String.format;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.ASSIGN1;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.EXECUTE;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.EXPRESSION;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.SYMBOL;
+import static org.molgenis.armadillo.controller.ArmadilloUtils.GLOBAL_ENV;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.molgenis.armadillo.audit.AuditEventPublisher;
+import org.molgenis.armadillo.controller.BatchStep.Type;
+import org.molgenis.armadillo.exceptions.BatchStepSkippedException;
+import org.molgenis.armadillo.exceptions.ExpressionException;
+import org.molgenis.armadillo.service.ExpressionRewriter;
+import org.molgenis.r.RNamedList;
+import org.molgenis.r.RServerResult;
+import org.molgenis.r.exceptions.RExecutionException;
+
+/**
+ * Runs the steps of a batch in one R evaluation. The steps are rewritten up front, up to the first
+ * step that fails to rewrite. The evaluation stops at the first step that fails in R, and returns
+ * the results of the steps before it. Every step up to the one that failed to rewrite is audited
+ * on its own, like a single assign or execute would be, also the steps that were skipped, and
+ * those of an evaluation that failed as a whole.
+ */
+class Batch {
+
+  private static final String RESULTS = "results";
+  private static final String ERROR = "error";
+
+  private final List<BatchStep> steps;
+  private final List<String> statements = new ArrayList<>();
+  private final List<CompletableFuture<Void>> audits = new ArrayList<>();
+  private ExpressionException invalid;
+
+  Batch(
+      List<BatchStep> steps,
+      ExpressionRewriter expressionRewriter,
+      AuditEventPublisher auditEventPublisher,
+      RawResults rawResults,
+      Principal principal) {
+    this.steps = List.copyOf(steps);
+    for (var step : steps) {
+      // audit now, while the request's session and roles are at hand, and complete it later
+      var audit = new CompletableFuture<Void>();
+      audits.add(audit);
+      auditEventPublisher.audit(audit, principal, getAuditType(step), getAuditData(step));
+      try {
+        statements.add(toStatement(step, expressionRewriter, rawResults));
+      } catch (ExpressionException e) {
+        invalid = e;
+        break;
+      }
+    }
+  }
+
+  /** Whether there's nothing to evaluate, because the first step failed to rewrite. */
+  boolean isEmpty() {
+    return statements.isEmpty();
+  }
+
+  /**
+   * The expression that evaluates the rewritten steps in the global environment. It returns a list
+   * with the results of the steps that completed, and the message of the error that stopped it, if
+   * any.
+   */
+  String getExpression() {
+    var expression = new StringBuilder("base::local({.results <- base::list(); ");
+    expression.append(".error <- base::tryCatch({");
+    for (int i = 0; i < statements.size(); i++) {
+      expression.append(format(".results[[%d]] <- %s; ", i + 1, statements.get(i)));
+    }
+    expression.append("NULL}, error = function(e) base::conditionMessage(e)); ");
+    expression.append(format("base::list(%s = .results, %s = .error)})", RESULTS, ERROR));
+    return expression.toString();
+  }
+
+  /** Audits the steps that were run and returns their results, given the evaluation's result. */
+  List<BatchStepResult> complete(RServerResult result) {
+    List<RServerResult> values = List.of();
+    String error = null;
+    if (result != null) {
+      RNamedList<RServerResult> list = result.asNamedList();
+      values = list.get(RESULTS).asList();
+      var errorResult = list.get(ERROR);
+      error = errorResult.isNull() ? null : errorResult.asStrings()[0];
+    }
+    var stepResults = new ArrayList<BatchStepResult>();
+    for (int i = 0; i < steps.size(); i++) {
+      if (i < values.size()) {
+        audits.get(i).complete(null);
+        stepResults.add(
+            BatchStepResult.completed(
+                steps.get(i).type() == Type.AGGREGATE ? values.get(i).asBytes() : null));
+      } else if (i == values.size() && error != null) {
+        audits.get(i).completeExceptionally(new RExecutionException(error));
+        stepResults.add(BatchStepResult.failed(error));
+      } else if (i == values.size() && invalid != null) {
+        audits.get(i).completeExceptionally(invalid);
+        stepResults.add(BatchStepResult.failed(invalid.getMessage()));
+      } else {
+        if (i < audits.size()) {
+          var message = error != null ? error : invalid.getMessage();
+          audits
+              .get(i)
+              .completeExceptionally(new BatchStepSkippedException(values.size() + 1, message));
+        }
+        stepResults.add(BatchStepResult.skipped());
+      }
+    }
+    return stepResults;
+  }
+
+  /**
+   * Audits the failure of the evaluation as a failure of each of its steps, since it's not known
+   * which of them ran.
+   */
+  void fail(Throwable failure) {
+    var cause =
+        failure instanceof CompletionException && failure.getCause() != null
+            ? failure.getCause()
+            : failure;
+    for (int i = 0; i < audits.size(); i++) {
+      audits.get(i).completeExceptionally(i < statements.size() ? cause : invalid);
+    }
+  }
+
+  private static String toStatement(
+      BatchStep step, ExpressionRewriter expressionRewriter, RawResults rawResults) {
+    if (step.type() == Type.ASSIGN) {
+      return format(
+          "{base::assign('%s', value = base::eval(base::quote({%s}), envir = %s), envir = %s);"
+              + " base::raw(0)}",
+          step.symbol(),
+          expressionRewriter.rewriteAssign(step.expression()),
+          GLOBAL_ENV,
+          GLOBAL_ENV);
+    }
+    return rawResults.serializeOrStop(
+        format(
+            "base::eval(base::quote({%s}), envir = %s)",
+            expressionRewriter.rewriteAggregate(step.expression()),
+            GLOBAL_ENV));
+  }
+
+  private static String getAuditType(BatchStep step) {
+    return step.type() == Type.ASSIGN ? ASSIGN1 : EXECUTE;
+  }
+
+  private static Map<String, Object> getAuditData(BatchStep step) {
+    return step.type() == Type.ASSIGN
+        ? Map.of(SYMBOL, step.symbol(), EXPRESSION, step.expression())
+        : Map.of(EXPRESSION, step.expression());
+  }
+}
@@ -0,0 +1,30 @@
+package org.molgenis.armadillo.controller;
+
+import static org.molgenis.armadillo.controller.DataController.SYMBOL_RE;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+/**
+ * A step of a batch: either assigns the result of an expression to a symbol, like {@code POST
+ * /symbols/{symbol}}, or evaluates an aggregate expression, like {@code POST /execute}.
+ */
+public record BatchStep(
+    @NotNull Type type,
+    @Pattern(regexp = SYMBOL_RE) String symbol,
+    @NotBlank String expression) {
+
+  public enum Type {
+    ASSIGN,
+    AGGREGATE
+  }
+
+  @JsonIgnore
+  @AssertTrue(message = "an ASSIGN step needs a symbol")
+  public boolean isSymbolPresent() {
+    return type != Type.ASSIGN || symbol != null;
+  }
+}
@@ -0,0 +1,30 @@
+package org.molgenis.armadillo.controller;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * The outcome of a step of a batch. A completed aggregate step has the serialized result, a failed
+ * step has the error message. The steps after a failed step are skipped.
+ */
+@JsonInclude(Include.NON_NULL)
+public record BatchStepResult(Status status, byte[] result, String message) {
+
+  public enum Status {
+    COMPLETED,
+    FAILED,
+    SKIPPED
+  }
+
+  static BatchStepResult completed(byte[] result) {
+    return new BatchStepResult(Status.COMPLETED, result, null);
+  }
+
+  static BatchStepResult failed(String message) {
+    return new BatchStepResult(Status.FAILED, null, message);
+  }
+
+  static BatchStepResult skipped() {
+    return new BatchStepResult(Status.SKIPPED, null, null);
+  }
+}
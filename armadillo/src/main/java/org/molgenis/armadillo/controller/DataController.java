@@ -5,8 +5,7 @@ import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.*;
-import static org.molgenis.armadillo.controller.ArmadilloUtils.getLastCommandLocation;
-import static org.molgenis.armadillo.controller.ArmadilloUtils.serializeExpression;
+import static org.molgenis.armadillo.controller.ArmadilloUtils.getCommandLocation;
 import static org.obiba.datashield.core.DSMethodType.AGGREGATE;
 import static org.obiba.datashield.core.DSMethodType.ASSIGN;
 import static org.springframework.http.HttpStatus.*;
@@ -19,18 +18,23 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.net.URI;
 import java.security.Principal;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Pattern;
 import org.molgenis.armadillo.audit.AuditEventPublisher;
 import org.molgenis.armadillo.command.ArmadilloCommandDTO;
+import org.molgenis.armadillo.command.CommandExecution;
 import org.molgenis.armadillo.command.Commands;
 import org.molgenis.armadillo.exceptions.ExpressionException;
+import org.molgenis.armadillo.exceptions.ResultTooLargeException;
 import org.molgenis.armadillo.model.Workspace;
+import org.molgenis.armadillo.service.CatalogService;
 import org.molgenis.armadillo.service.DSEnvironmentCache;
 import org.molgenis.armadillo.service.ExpressionRewriter;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
@@ -38,6 +42,8 @@ import org.molgenis.r.RServerResult;
 import org.molgenis.r.model.RPackage;
 import org.obiba.datashield.core.DSMethod;
 import org.rosuda.REngine.REXPMismatchException;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
@@ -63,18 +69,24 @@ public class DataController {
   private final AuditEventPublisher auditEventPublisher;
   private final ExpressionRewriter expressionRewriter;
   private final DSEnvironmentCache dsEnvironmentCache;
+  private final CatalogService catalog;
+  private final RawResults rawResults;
 
   public DataController(
       Commands commands,
       ArmadilloStorageService storage,
       AuditEventPublisher auditEventPublisher,
       ExpressionRewriter expressionRewriter,
-      DSEnvironmentCache dsEnvironmentCache) {
+      DSEnvironmentCache dsEnvironmentCache,
+      CatalogService catalog,
+      RawResults rawResults) {
     this.commands = requireNonNull(commands);
     this.storage = requireNonNull(storage);
     this.auditEventPublisher = requireNonNull(auditEventPublisher);
     this.expressionRewriter = requireNonNull(expressionRewriter);
     this.dsEnvironmentCache = requireNonNull(dsEnvironmentCache);
+    this.catalog = requireNonNull(catalog);
+    this.rawResults = requireNonNull(rawResults);
   }
 
   @Operation(summary = "Get R packages", description = "Get all installed R packages.")
@@ -92,12 +104,7 @@ public class DataController {
           "Return a list of (fully qualified) table identifiers available for DataSHIELD operations")
   @GetMapping(value = "/tables", produces = APPLICATION_JSON_VALUE)
   public List<String> getTables(Principal principal) {
-    return auditEventPublisher.audit(
-        () ->
-            storage.listProjects().stream().map(storage::listTables).flatMap(List::stream).toList(),
-        principal,
-        GET_TABLES,
-        Map.of());
+    return auditEventPublisher.audit(catalog::listTables, principal, GET_TABLES, Map.of());
   }
 
   @Operation(
@@ -151,11 +158,10 @@ public class DataController {
             .flatMap(Arrays::stream)
             .map(String::trim)
             .toList();
-    var result =
-        auditEventPublisher.audit(
-            commands.loadTable(symbol, table, variableList), principal, LOAD_TABLE, data);
+    var execution = commands.loadTable(symbol, table, variableList);
+    var result = auditEventPublisher.audit(execution, principal, LOAD_TABLE, data);
     return async
-        ? completedFuture(created(getLastCommandLocation()).body(null))
+        ? completedFuture(created(getCommandLocation(execution.getCommandId())).body(null))
         : result
             .thenApply(ResponseEntity::ok)
             .exceptionally(t -> status(INTERNAL_SERVER_ERROR).build());
@@ -167,15 +173,7 @@ public class DataController {
           "Return a list of (fully qualified) resource identifiers available for DataSHIELD operations")
   @GetMapping(value = "/resources", produces = APPLICATION_JSON_VALUE)
   public List<String> getResources(Principal principal) {
-    return auditEventPublisher.audit(
-        () ->
-            storage.listProjects().stream()
-                .map(storage::listResources)
-                .flatMap(List::stream)
-                .toList(),
-        principal,
-        GET_RESOURCES,
-        Map.of());
+    return auditEventPublisher.audit(catalog::listResources, principal, GET_RESOURCES, Map.of());
   }
 
   @Operation(
@@ -221,11 +219,10 @@ public class DataController {
       auditEventPublisher.audit(principal, LOAD_RESOURCE_FAILURE, data);
       return completedFuture(notFound().build());
     }
-    var result =
-        auditEventPublisher.audit(
-            commands.loadResource(principal, symbol, resource), principal, LOAD_RESOURCE, data);
+    var execution = commands.loadResource(principal, symbol, resource);
+    var result = auditEventPublisher.audit(execution, principal, LOAD_RESOURCE, data);
     return async
-        ? completedFuture(created(getLastCommandLocation()).body(null))
+        ? completedFuture(created(getCommandLocation(execution.getCommandId())).body(null))
         : result
             .thenApply(ResponseEntity::ok)
             .exceptionally(t -> status(INTERNAL_SERVER_ERROR).build());
@@ -266,11 +263,10 @@ public class DataController {
     Map<String, Object> data = Map.of(SYMBOL, symbol, EXPRESSION, expression);
     try {
       String rewrittenExpression = expressionRewriter.rewriteAssign(expression);
-      CompletableFuture<Void> result =
-          auditEventPublisher.audit(
-              commands.assign(symbol, rewrittenExpression), principal, ASSIGN1, data);
+      CommandExecution<Void> execution = commands.assign(symbol, rewrittenExpression);
+      CompletableFuture<Void> result = auditEventPublisher.audit(execution, principal, ASSIGN1, data);
       return async
-          ? completedFuture(created(getLastCommandLocation()).body(null))
+          ? completedFuture(created(getCommandLocation(execution.getCommandId())).body(null))
           : result
               .thenApply(ResponseEntity::ok)
               .exceptionally(t -> status(INTERNAL_SERVER_ERROR).build());
@@ -288,7 +284,7 @@ public class DataController {
       value = "/execute",
       consumes = TEXT_PLAIN_VALUE,
       produces = APPLICATION_OCTET_STREAM_VALUE)
-  public CompletableFuture<ResponseEntity<byte[]>> execute(
+  public CompletableFuture<ResponseEntity<Resource>> execute(
       Principal principal,
       @RequestBody String expression,
       @Parameter(description = "Indicates if the expression should be executed asynchronously")
@@ -297,16 +293,15 @@ public class DataController {
     Map<String, Object> data = Map.of(EXPRESSION, expression);
     try {
       String rewrittenExpression =
-          serializeExpression(expressionRewriter.rewriteAggregate(expression));
+          rawResults.serializeExpression(expressionRewriter.rewriteAggregate(expression));
+      CommandExecution<RServerResult> execution = commands.evaluate(rewrittenExpression);
       CompletableFuture<RServerResult> result =
-          auditEventPublisher.audit(
-              commands.evaluate(rewrittenExpression), principal, EXECUTE, data);
+          auditEventPublisher.audit(execution, principal, EXECUTE, data);
       return async
-          ? completedFuture(created(getLastCommandLocation()).body(null))
+          ? completedFuture(created(getCommandLocation(execution.getCommandId())).body(null))
           : result
-              .thenApply(ArmadilloUtils::createRawResponse)
-              .thenApply(ResponseEntity::ok)
-              .exceptionally(t -> status(INTERNAL_SERVER_ERROR).build());
+              .thenApply(rawResults::createResponse)
+              .exceptionally(t -> getFailedResult(t, INTERNAL_SERVER_ERROR));
     } catch (ExpressionException ex) {
       data = new HashMap<>(data);
       data.put(MESSAGE, ex.getMessage());
@@ -316,6 +311,33 @@ public class DataController {
     }
   }
 
+  @Operation(
+      summary = "Execute a batch",
+      description =
+          "Runs a list of assign and aggregate steps, in order, in one evaluation. Stops at the"
+              + " first step that fails and skips the steps after it. Returns the outcome of every"
+              + " step, with the serialized result of the aggregate steps.")
+  @PostMapping(
+      value = "/batch",
+      consumes = APPLICATION_JSON_VALUE,
+      produces = APPLICATION_JSON_VALUE)
+  public CompletableFuture<List<BatchStepResult>> batch(
+      Principal principal, @RequestBody @NotEmpty List<@Valid BatchStep> steps) {
+    var batch = new Batch(steps, expressionRewriter, auditEventPublisher, rawResults, principal);
+    if (batch.isEmpty()) {
+      return completedFuture(batch.complete(null));
+    }
+    return commands
+        .evaluate(batch.getExpression())
+        .whenComplete(
+            (result, failure) -> {
+              if (failure != null) {
+                batch.fail(failure);
+              }
+            })
+        .thenApply(batch::complete);
+  }
+
   @Operation(summary = "Get last command")
   @GetMapping(value = "/lastcommand", produces = APPLICATION_JSON_VALUE)
   public ResponseEntity<ArmadilloCommandDTO> getLastCommand() {
@@ -325,18 +347,50 @@ public class DataController {
   @Operation(summary = "Get last result")
   @GetMapping(value = "/lastresult", produces = APPLICATION_OCTET_STREAM_VALUE)
   @ResponseStatus(OK)
-  public CompletableFuture<ResponseEntity<byte[]>> lastResult() {
-    return commands
-        .getLastExecution()
+  public CompletableFuture<ResponseEntity<Resource>> lastResult() {
+    return getRawResult(commands.getLastExecution());
+  }
+
+  @Operation(
+      summary = "Get commands",
+      description = "Lists the recent commands of the session, oldest first")
+  @GetMapping(value = "/commands", produces = APPLICATION_JSON_VALUE)
+  public List<ArmadilloCommandDTO> getCommands() {
+    return commands.getCommands();
+  }
+
+  @Operation(summary = "Get command")
+  @GetMapping(value = "/commands/{id}", produces = APPLICATION_JSON_VALUE)
+  public ResponseEntity<ArmadilloCommandDTO> getCommand(@PathVariable UUID id) {
+    return ResponseEntity.of(commands.getCommand(id));
+  }
+
+  @Operation(summary = "Get the result of a command")
+  @GetMapping(value = "/commands/{id}/result", produces = APPLICATION_OCTET_STREAM_VALUE)
+  @ResponseStatus(OK)
+  public CompletableFuture<ResponseEntity<Resource>> getCommandResult(@PathVariable UUID id) {
+    return getRawResult(commands.getExecution(id));
+  }
+
+  private CompletableFuture<ResponseEntity<Resource>> getRawResult(
+      Optional<CompletableFuture<RServerResult>> execution) {
+    return execution
         .map(
-            execution ->
-                execution
-                    .thenApply(ArmadilloUtils::createRawResponse)
-                    .thenApply(ResponseEntity::ok)
-                    .exceptionally(ex -> notFound().build()))
+            future ->
+                future
+                    .thenApply(rawResults::createResponse)
+                    .exceptionally(ex -> getFailedResult(ex, NOT_FOUND)))
         .orElse(completedFuture(notFound().build()));
   }
 
+  /** A result that is too large is refused as such, other failures get the given status. */
+  private static ResponseEntity<Resource> getFailedResult(Throwable throwable, HttpStatus status) {
+    if (throwable.getCause() instanceof ResultTooLargeException tooLarge) {
+      throw tooLarge;
+    }
+    return status(status).build();
+  }
+
   @Operation(
       summary = "Debug a command",
       description = "Debugs a command, bypassing DataSHIELD's security checks. Admin use only.")
@@ -25,6 +25,7 @@ import org.molgenis.armadillo.audit.AuditEventPublisher;
 import org.molgenis.armadillo.command.Commands;
 import org.molgenis.armadillo.exceptions.FileProcessingException;
 import org.molgenis.armadillo.metadata.ProfileService;
+import org.molgenis.armadillo.service.InstalledPackagesCache;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.ResponseEntity;
@@ -48,12 +49,17 @@ public class DevelopmentController {
   private final Commands commands;
   private final AuditEventPublisher auditEventPublisher;
   private final ProfileService profiles;
+  private final InstalledPackagesCache installedPackagesCache;
 
   public DevelopmentController(
-      Commands commands, AuditEventPublisher auditEventPublisher, ProfileService profileService) {
+      Commands commands,
+      AuditEventPublisher auditEventPublisher,
+      ProfileService profileService,
+      InstalledPackagesCache installedPackagesCache) {
     this.commands = requireNonNull(commands);
     this.auditEventPublisher = requireNonNull(auditEventPublisher);
     this.profiles = requireNonNull(profileService);
+    this.installedPackagesCache = requireNonNull(installedPackagesCache);
   }
 
   @SuppressWarnings({"unchecked", "rawtypes"})
@@ -96,6 +102,7 @@ public class DevelopmentController {
       return result
           .thenApply(
               body -> {
+                installedPackagesCache.evict(getActiveProfileName());
                 profiles.addToWhitelist(getActiveProfileName(), packageName);
                 return ResponseEntity.ok(body);
               })
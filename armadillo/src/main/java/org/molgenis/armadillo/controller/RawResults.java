@@ -0,0 +1,94 @@
+package org.molgenis.armadillo.controller;
+
+import static java.lang.String.format;
+import static org.molgenis.armadillo.controller.ArmadilloUtils.createRawResponse;
+import static org.springframework.http.ResponseEntity.ok;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.molgenis.armadillo.exceptions.ResultTooLargeException;
+import org.molgenis.r.RServerResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Serializes results in R and creates the responses for them. Results larger than {@code
+ * armadillo.results.max-size} are refused in R, where they are serialized, so that they never
+ * reach this server: R returns the size of the result instead of the result. The response wraps
+ * the byte array the R client received, it is not copied again.
+ *
+ * <p>Results are not streamed to the client. REngine reads the whole response of R into memory
+ * before it returns, so the maximum size is what bounds the memory a result takes.
+ */
+@Component
+public class RawResults {
+
+  static final String MAX_SIZE_PROPERTY = "armadillo.results.max-size";
+
+  private final long maxSize;
+  private final DistributionSummary sizes;
+  private final Counter refused;
+
+  public RawResults(
+      MeterRegistry meterRegistry,
+      @Value("${" + MAX_SIZE_PROPERTY + ":512MB}") DataSize maxSize) {
+    this.maxSize = maxSize.toBytes();
+    this.sizes =
+        DistributionSummary.builder("armadillo.results.size")
+            .baseUnit("bytes")
+            .description("Size of the raw results of expressions")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    this.refused =
+        Counter.builder("armadillo.results.refused")
+            .description("Number of raw results refused because they were too large")
+            .register(meterRegistry);
+  }
+
+  /**
+   * The expression that serializes the value of the given expression, or returns its size if the
+   * serialized value is larger than the maximum size.
+   */
+  String serializeExpression(String expression) {
+    return format(
+        "try((function(x) if (base::length(x) > %d) base::length(x) else x)"
+            + "(base::serialize({%s}, NULL)))",
+        maxSize,
+        expression);
+  }
+
+  /**
+   * The expression that serializes the value of the given expression, or stops with an error if
+   * the serialized value is larger than the maximum size.
+   */
+  String serializeOrStop(String expression) {
+    return format(
+        "(function(x) if (base::length(x) > %d) base::stop(base::sprintf("
+            + "'Result of %%s bytes is larger than the maximum of %d bytes', base::length(x)))"
+            + " else x)(base::serialize(%s, NULL))",
+        maxSize,
+        maxSize,
+        expression);
+  }
+
+  /**
+   * @throws IllegalStateException if the result is neither raw nor the size of a refused result
+   * @throws ResultTooLargeException if the result is larger than the maximum size
+   */
+  ResponseEntity<Resource> createResponse(RServerResult result) {
+    if (result.isNumeric()) {
+      long size = (long) result.asDoubles()[0];
+      sizes.record(size);
+      refused.increment();
+      throw new ResultTooLargeException(size, maxSize);
+    }
+    byte[] rawResult = createRawResponse(result);
+    sizes.record(rawResult.length);
+    return ok().contentLength(rawResult.length).body(new ByteArrayResource(rawResult));
+  }
+}
@@ -1,17 +1,24 @@
 package org.molgenis.armadillo.controller;
 
+import static java.lang.String.format;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.COPY_OBJECT;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.DELETE_OBJECT;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.DOWNLOAD_OBJECT;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.GET_OBJECT;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.GET_OBJECT_METADATA;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.LIST_OBJECTS;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.MOVE_OBJECT;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.OBJECT;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.PREVIEW_OBJECT;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.PROJECT;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.UPLOAD_OBJECT;
+import static org.springframework.http.HttpHeaders.ACCEPT_RANGES;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
+import static org.springframework.http.HttpHeaders.RANGE;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
+import static org.springframework.http.HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
 import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
@@ -36,12 +43,12 @@ import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
 import org.molgenis.armadillo.audit.AuditEventPublisher;
 import org.molgenis.armadillo.exceptions.FileProcessingException;
+import org.molgenis.armadillo.metadata.TableMetadataService;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.InputStreamResource;
+import org.molgenis.armadillo.storage.TableMetadata;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpRange;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -49,12 +56,14 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "storage", description = "API to manipulate the storage")
 @RestController
@@ -66,10 +75,15 @@ public class StorageController {
 
   private final ArmadilloStorageService storage;
   private final AuditEventPublisher auditor;
+  private final TableMetadataService tableMetadata;
 
-  public StorageController(ArmadilloStorageService storage, AuditEventPublisher auditor) {
+  public StorageController(
+      ArmadilloStorageService storage,
+      AuditEventPublisher auditor,
+      TableMetadataService tableMetadata) {
     this.storage = storage;
     this.auditor = auditor;
+    this.tableMetadata = tableMetadata;
   }
 
   @Operation(summary = "List objects in a project")
@@ -128,6 +142,7 @@ public class StorageController {
     } catch (IOException e) {
       throw new FileProcessingException();
     }
+    tableMetadata.refresh(project, object);
   }
 
   @Operation(
@@ -151,7 +166,10 @@ public class StorageController {
       @PathVariable String object,
       @RequestBody ObjectRequestBody requestBody) {
     auditor.audit(
-        () -> storage.copyObject(project, requestBody.name(), object),
+        () -> {
+          storage.copyObject(project, requestBody.name(), object);
+          tableMetadata.refresh(project, requestBody.name());
+        },
         principal,
         COPY_OBJECT,
         Map.of(PROJECT, project, "from", object, "to", requestBody.name()));
@@ -178,7 +196,11 @@ public class StorageController {
       @PathVariable String object,
       @Valid @RequestBody ObjectRequestBody requestBody) {
     auditor.audit(
-        () -> storage.moveObject(project, requestBody.name(), object),
+        () -> {
+          storage.moveObject(project, requestBody.name(), object);
+          tableMetadata.evict(project, object);
+          tableMetadata.refresh(project, requestBody.name());
+        },
         principal,
         MOVE_OBJECT,
         Map.of(PROJECT, project, "from", object, "to", requestBody.name()));
@@ -222,6 +244,30 @@ public class StorageController {
         Map.of(PROJECT, project, OBJECT, object));
   }
 
+  @Operation(
+      summary = "Retrieve the layout of a table",
+      description =
+          "Returns the row count, the columns with their types and sizes, and the row groups of a"
+              + " parquet file, without loading its data")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Metadata retrieved"),
+        @ApiResponse(responseCode = "400", description = "Object is not a parquet file"),
+        @ApiResponse(responseCode = "404", description = "Unknown project or object"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @GetMapping(
+      path = "/projects/{project}/objects/{object}/metadata",
+      produces = APPLICATION_JSON_VALUE)
+  public @ResponseBody TableMetadata getObjectMetadata(
+      Principal principal, @PathVariable String project, @PathVariable String object) {
+    return auditor.audit(
+        () -> tableMetadata.getMetadata(project, object),
+        principal,
+        GET_OBJECT_METADATA,
+        Map.of(PROJECT, project, OBJECT, object));
+  }
+
   @Operation(summary = "Delete an object")
   @ApiResponses(
       value = {
@@ -234,7 +280,10 @@ public class StorageController {
   public void deleteObject(
       Principal principal, @PathVariable String project, @PathVariable String object) {
     auditor.audit(
-        () -> storage.deleteObject(project, object),
+        () -> {
+          storage.deleteObject(project, object);
+          tableMetadata.evict(project, object);
+        },
         principal,
         DELETE_OBJECT,
         Map.of(PROJECT, project, OBJECT, object));
@@ -245,6 +294,10 @@ public class StorageController {
   @ApiResponses(
       value = {
         @ApiResponse(responseCode = "204", description = "Object downloaded successfully"),
+        @ApiResponse(
+            responseCode = "206",
+            description = "Requested range of the object downloaded successfully",
+            content = @Content(schema = @Schema(hidden = true))),
         @ApiResponse(
             responseCode = "404",
             description = "Unknown project or object",
@@ -252,38 +305,73 @@ public class StorageController {
         @ApiResponse(
             responseCode = "401",
             description = "Unauthorized",
+            content = @Content(schema = @Schema(hidden = true))),
+        @ApiResponse(
+            responseCode = "416",
+            description = "Requested range lies outside the object",
             content = @Content(schema = @Schema(hidden = true)))
       })
   @GetMapping(
       value = "/projects/{project}/objects/{object}",
       produces = {APPLICATION_OCTET_STREAM_VALUE})
-  public @ResponseBody ResponseEntity<ByteArrayResource> downloadObject(
-      Principal principal, @PathVariable String project, @PathVariable String object) {
+  public ResponseEntity<StreamingResponseBody> downloadObject(
+      Principal principal,
+      @PathVariable String project,
+      @PathVariable String object,
+      @RequestHeader(value = RANGE, required = false) String range) {
     return auditor.audit(
-        () -> getObject(project, object),
+        () -> getObject(project, object, range),
         principal,
         DOWNLOAD_OBJECT,
         Map.of(PROJECT, project, OBJECT, object));
   }
 
-  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
-  private ResponseEntity<ByteArrayResource> getObject(String project, String object) {
-    var inputStream = storage.loadObject(project, object);
+  private ResponseEntity<StreamingResponseBody> getObject(
+      String project, String object, String range) {
+    long size = storage.getObjectMetadata(project, object).size();
     var objectParts = object.split("/");
     var fileName = objectParts[objectParts.length - 1];
 
+    HttpHeaders httpHeaders = new HttpHeaders();
+    httpHeaders.setContentDisposition(ContentDisposition.attachment().filename(fileName).build());
+    httpHeaders.setContentType(APPLICATION_OCTET_STREAM);
+    httpHeaders.set(ACCEPT_RANGES, "bytes");
+
+    long offset = 0;
+    long length = size;
+    var status = OK;
+    var ranges = parseRanges(range);
+    // several ranges would need a multipart response, those clients get the whole object instead
+    if (ranges.size() == 1) {
+      try {
+        offset = ranges.get(0).getRangeStart(size);
+        length = ranges.get(0).getRangeEnd(size) - offset + 1;
+      } catch (IllegalArgumentException e) {
+        httpHeaders.set(CONTENT_RANGE, "bytes */" + size);
+        return new ResponseEntity<>(httpHeaders, REQUESTED_RANGE_NOT_SATISFIABLE);
+      }
+      httpHeaders.set(CONTENT_RANGE, format("bytes %d-%d/%d", offset, offset + length - 1, size));
+      status = PARTIAL_CONTENT;
+    }
+    httpHeaders.setContentLength(length);
+
+    long start = offset;
+    long count = length;
+    StreamingResponseBody body =
+        outputStream -> {
+          if (count > 0) {
+            storage.transferObject(project, object, start, count, outputStream);
+          }
+        };
+    return new ResponseEntity<>(body, httpHeaders, status);
+  }
+
+  private static List<HttpRange> parseRanges(String range) {
     try {
-      InputStreamResource inputStreamResource = new InputStreamResource(inputStream);
-      long length = inputStream.available();
-      ContentDisposition contentDisposition =
-          ContentDisposition.attachment().filename(fileName).build();
-      HttpHeaders httpHeaders = new HttpHeaders();
-      httpHeaders.setContentDisposition(contentDisposition);
-      httpHeaders.setContentLength(length);
-      httpHeaders.setContentType(APPLICATION_OCTET_STREAM);
-      return new ResponseEntity(inputStreamResource, httpHeaders, HttpStatus.OK);
-    } catch (IOException e) {
-      throw new FileProcessingException();
+      return HttpRange.parseRanges(range);
+    } catch (IllegalArgumentException e) {
+      // a malformed Range header is ignored, as if it wasn't there
+      return List.of();
     }
   }
 }
@@ -0,0 +1,178 @@
+package org.molgenis.armadillo.controller;
+
+import static org.molgenis.armadillo.audit.AuditEventPublisher.ABORT_UPLOAD;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.GET_UPLOAD;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.OBJECT;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.PART;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.PROJECT;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.START_UPLOAD;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.UPLOAD;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.UPLOAD_OBJECT;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.UPLOAD_PART;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.InputStream;
+import java.security.Principal;
+import java.util.Map;
+import javax.validation.Valid;
+import org.molgenis.armadillo.audit.AuditEventPublisher;
+import org.molgenis.armadillo.metadata.TableMetadataService;
+import org.molgenis.armadillo.storage.Upload;
+import org.molgenis.armadillo.storage.UploadService;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "storage", description = "API to manipulate the storage")
+@RestController
+@SecurityRequirement(name = "http")
+@SecurityRequirement(name = "bearerAuth")
+@SecurityRequirement(name = "JSESSIONID")
+@RequestMapping("storage")
+public class UploadController {
+
+  private final UploadService uploads;
+  private final AuditEventPublisher auditor;
+  private final TableMetadataService tableMetadata;
+
+  public UploadController(
+      UploadService uploads, AuditEventPublisher auditor, TableMetadataService tableMetadata) {
+    this.uploads = uploads;
+    this.auditor = auditor;
+    this.tableMetadata = tableMetadata;
+  }
+
+  @Operation(
+      summary = "Start uploading an object in parts",
+      description =
+          "The request body should contain the new object's name in full (e.g. core/nonrep.parquet)")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "201", description = "Upload started"),
+        @ApiResponse(responseCode = "404", description = "Unknown project"),
+        @ApiResponse(responseCode = "409", description = "Object already exists"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @PostMapping(
+      value = "/projects/{project}/uploads",
+      consumes = {APPLICATION_JSON_VALUE},
+      produces = {APPLICATION_JSON_VALUE})
+  @ResponseStatus(CREATED)
+  public Upload startUpload(
+      Principal principal,
+      @PathVariable String project,
+      @Valid @RequestBody ObjectRequestBody requestBody) {
+    return auditor.audit(
+        () -> uploads.startUpload(project, requestBody.name()),
+        principal,
+        START_UPLOAD,
+        Map.of(PROJECT, project, OBJECT, requestBody.name()));
+  }
+
+  @Operation(
+      summary = "Get an upload",
+      description = "Lists the parts received so far, so that an interrupted upload can resume")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Upload found"),
+        @ApiResponse(responseCode = "404", description = "Unknown upload"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @GetMapping(
+      value = "/projects/{project}/uploads/{upload}",
+      produces = {APPLICATION_JSON_VALUE})
+  @ResponseStatus(OK)
+  public Upload getUpload(
+      Principal principal, @PathVariable String project, @PathVariable String upload) {
+    return auditor.audit(
+        () -> uploads.getUpload(project, upload),
+        principal,
+        GET_UPLOAD,
+        Map.of(PROJECT, project, UPLOAD, upload));
+  }
+
+  @Operation(
+      summary = "Upload a part",
+      description =
+          "Parts are numbered from 1 and can be sent in any order. Sending a part again replaces"
+              + " it. All parts but the last should be at least 5 MB.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "204", description = "Part uploaded successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid part number"),
+        @ApiResponse(responseCode = "404", description = "Unknown upload"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @PutMapping(
+      value = "/projects/{project}/uploads/{upload}/parts/{part}",
+      consumes = {APPLICATION_OCTET_STREAM_VALUE})
+  @ResponseStatus(NO_CONTENT)
+  public void uploadPart(
+      Principal principal,
+      @PathVariable String project,
+      @PathVariable String upload,
+      @PathVariable int part,
+      InputStream inputStream) {
+    auditor.audit(
+        () -> uploads.addPart(project, upload, part, inputStream),
+        principal,
+        UPLOAD_PART,
+        Map.of(PROJECT, project, UPLOAD, upload, PART, part));
+  }
+
+  @Operation(summary = "Complete an upload, which joins its parts into the object")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "204", description = "Object uploaded successfully"),
+        @ApiResponse(responseCode = "400", description = "Parts missing or too small"),
+        @ApiResponse(responseCode = "404", description = "Unknown upload"),
+        @ApiResponse(responseCode = "409", description = "Object already exists"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @PostMapping("/projects/{project}/uploads/{upload}/complete")
+  @ResponseStatus(NO_CONTENT)
+  public void completeUpload(
+      Principal principal, @PathVariable String project, @PathVariable String upload) {
+    auditor.audit(
+        () -> {
+          var completed = uploads.completeUpload(project, upload);
+          tableMetadata.refresh(project, completed.object());
+        },
+        principal,
+        UPLOAD_OBJECT,
+        Map.of(PROJECT, project, UPLOAD, upload));
+  }
+
+  @Operation(summary = "Abort an upload, which removes the parts received so far")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "204", description = "Upload aborted"),
+        @ApiResponse(responseCode = "404", description = "Unknown upload"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @DeleteMapping("/projects/{project}/uploads/{upload}")
+  @ResponseStatus(NO_CONTENT)
+  public void abortUpload(
+      Principal principal, @PathVariable String project, @PathVariable String upload) {
+    auditor.audit(
+        () -> uploads.abortUpload(project, upload),
+        principal,
+        ABORT_UPLOAD,
+        Map.of(PROJECT, project, UPLOAD, upload));
+  }
+}
@@ -0,0 +1,11 @@
+package org.molgenis.armadillo.exceptions;
+
+import static java.lang.String.format;
+
+/** A step of a batch that was not run, because an earlier step failed. */
+public class BatchStepSkippedException extends RuntimeException {
+
+  public BatchStepSkippedException(int failedStep, String message) {
+    super(format("Skipped because step %d failed: %s", failedStep, message));
+  }
+}
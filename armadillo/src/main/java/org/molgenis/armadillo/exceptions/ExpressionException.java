@@ -19,6 +19,10 @@ public class ExpressionException extends RuntimeException {
     super(err.getMessage(), err);
   }
 
+  public ExpressionException(String message) {
+    super(message);
+  }
+
   public ExpressionException(String expression, TokenMgrError e) {
     super(format("Error parsing expression '%s':%n%s", expression, e.getMessage()), e);
   }
@@ -0,0 +1,14 @@
+package org.molgenis.armadillo.exceptions;
+
+import static java.lang.String.format;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(BAD_REQUEST)
+public class InvalidUploadException extends RuntimeException {
+
+  public InvalidUploadException(String upload, String reason) {
+    super(format("Upload '%s' is invalid: %s", upload, reason));
+  }
+}
@@ -0,0 +1,14 @@
+package org.molgenis.armadillo.exceptions;
+
+import static java.lang.String.format;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(UNPROCESSABLE_ENTITY)
+public class ResultTooLargeException extends RuntimeException {
+
+  public ResultTooLargeException(long size, long maxSize) {
+    super(format("Result of %d bytes is larger than the maximum of %d bytes", size, maxSize));
+  }
+}
@@ -0,0 +1,24 @@
+package org.molgenis.armadillo.exceptions;
+
+import static java.lang.String.format;
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(CONFLICT)
+public class SessionEvictedException extends RuntimeException {
+
+  public SessionEvictedException() {
+    super(
+        "The R environment of this session was ended because it was unused, "
+            + "its workspace was not saved");
+  }
+
+  public SessionEvictedException(String workspace) {
+    super(
+        format(
+            "The R environment of this session was ended because it was unused, "
+                + "load workspace '%s' to continue",
+            workspace));
+  }
+}
@@ -0,0 +1,14 @@
+package org.molgenis.armadillo.exceptions;
+
+import static java.lang.String.format;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(TOO_MANY_REQUESTS)
+public class TooManyCommandsException extends RuntimeException {
+
+  public TooManyCommandsException(String limit, int max) {
+    super(format("Too many commands: at most %d %s, try again later", max, limit));
+  }
+}
@@ -0,0 +1,14 @@
+package org.molgenis.armadillo.exceptions;
+
+import static java.lang.String.format;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(NOT_FOUND)
+public class UnknownUploadException extends RuntimeException {
+
+  public UnknownUploadException(String project, String upload) {
+    super(format("Project '%s' has no upload '%s'", project, upload));
+  }
+}
@@ -39,7 +39,7 @@ public class RProcessEndpoint {
         .collect(Collectors.toList());
   }
 
-  <T> T doWithConnection(String environmentName, Function<RServerConnection, T> action) {
+  public <T> T doWithConnection(String environmentName, Function<RServerConnection, T> action) {
     var environment =
         profileService.getAll().stream()
             .filter(it -> environmentName.equals(it.getName()))
@@ -0,0 +1,73 @@
+package org.molgenis.armadillo.metadata;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toUnmodifiableSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Immutable lookup of the projects and authorities of each user, built from the {@link
+ * AccessMetadata}. It is rebuilt as a whole after every change, so that authorizing a request
+ * doesn't have to scan all permissions.
+ */
+public class AccessIndex {
+
+  static final GrantedAuthority SU = new SimpleGrantedAuthority("ROLE_SU");
+
+  private final Map<String, Set<String>> projectsByEmail;
+  private final Map<String, List<GrantedAuthority>> authoritiesByEmail;
+
+  private AccessIndex(
+      Map<String, Set<String>> projectsByEmail,
+      Map<String, List<GrantedAuthority>> authoritiesByEmail) {
+    this.projectsByEmail = projectsByEmail;
+    this.authoritiesByEmail = authoritiesByEmail;
+  }
+
+  static AccessIndex create(AccessMetadata metadata) {
+    Map<String, Set<String>> projectsByEmail =
+        metadata.getPermissions().stream()
+            .collect(
+                groupingBy(
+                    ProjectPermission::getEmail,
+                    mapping(ProjectPermission::getProject, toUnmodifiableSet())));
+    var emails = new HashSet<>(projectsByEmail.keySet());
+    emails.addAll(metadata.getUsers().keySet());
+    Map<String, List<GrantedAuthority>> authoritiesByEmail = new HashMap<>();
+    for (var email : emails) {
+      List<GrantedAuthority> authorities = new ArrayList<>();
+      projectsByEmail.getOrDefault(email, Set.of()).stream()
+          .map(project -> "ROLE_" + project.toUpperCase() + "_RESEARCHER")
+          .map(SimpleGrantedAuthority::new)
+          .forEach(authorities::add);
+      var user = metadata.getUsers().get(email);
+      if (user != null && Boolean.TRUE.equals(user.getAdmin())) {
+        authorities.add(SU);
+      }
+      authoritiesByEmail.put(email, List.copyOf(authorities));
+    }
+    return new AccessIndex(Map.copyOf(projectsByEmail), Map.copyOf(authoritiesByEmail));
+  }
+
+  /** The projects the user has permission for. */
+  public Set<String> getProjects(String email) {
+    return email == null ? Set.of() : projectsByEmail.getOrDefault(email, Set.of());
+  }
+
+  /** The researcher roles of the user's projects, and {@code ROLE_SU} if the user is an admin. */
+  public List<GrantedAuthority> getAuthorities(String email) {
+    return email == null ? List.of() : authoritiesByEmail.getOrDefault(email, List.of());
+  }
+
+  public boolean isSuperUser(String email) {
+    return getAuthorities(email).contains(SU);
+  }
+}
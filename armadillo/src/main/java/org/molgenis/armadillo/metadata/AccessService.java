@@ -27,6 +27,7 @@ import org.springframework.stereotype.Service;
 public class AccessService {
 
   private AccessMetadata settings;
+  private volatile AccessIndex index;
   private final ArmadilloStorageService storage;
   private final AccessLoader loader;
 
@@ -51,6 +52,7 @@ public class AccessService {
    */
   public void initialize() {
     settings = loader.load();
+    index = AccessIndex.create(settings);
     bootstrap();
   }
 
@@ -70,21 +72,17 @@ public class AccessService {
                   .toList());
     }
 
-    // claims from local permissions store
-    result.addAll(
-        this.getPermissionsForEmail(email).stream()
-            .map(project -> "ROLE_" + project.toUpperCase() + "_RESEARCHER")
-            .map(SimpleGrantedAuthority::new)
-            .toList());
-
-    // claims from user 'admin' property
-    if (this.isSuperUser(email)) {
-      result.add(new SimpleGrantedAuthority("ROLE_SU"));
-    }
+    // claims from local permissions store, and from user 'admin' property
+    result.addAll(index.getAuthorities(email));
 
     return result;
   }
 
+  /** The current index of the access metadata, which is replaced when the metadata changes. */
+  public AccessIndex getAccessIndex() {
+    return index;
+  }
+
   public AccessMetadata settingsList() {
     return AccessMetadata.create(
         new ConcurrentHashMap<>(usersMap()),
@@ -294,18 +292,11 @@ public class AccessService {
 
   private void save() {
     settings = loader.save(settings);
+    index = AccessIndex.create(settings);
   }
 
   private Set<String> getPermissionsForEmail(String email) {
-    return settings.getPermissions().stream()
-        .filter(projectPermission -> projectPermission.getEmail().equals(email))
-        .map(ProjectPermission::getProject)
-        .collect(Collectors.toSet());
-  }
-
-  private boolean isSuperUser(String email) {
-    return settings.getUsers().containsKey(email)
-        && Boolean.TRUE.equals(settings.getUsers().get(email).getAdmin());
+    return new HashSet<>(index.getProjects(email));
   }
 
   private void bootstrap() {
@@ -0,0 +1,28 @@
+package org.molgenis.armadillo.metadata;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.molgenis.armadillo.storage.ObjectMetadata;
+import org.molgenis.armadillo.storage.TableMetadata;
+
+/**
+ * The metadata of a table, with the version of the object it was read from.
+ *
+ * @param lastModified The time the object was last modified, in milliseconds since the epoch
+ * @param size The size of the object in bytes
+ * @param metadata The metadata read from the object
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record IndexedTable(long lastModified, long size, TableMetadata metadata) {
+
+  static IndexedTable of(ObjectMetadata object, TableMetadata metadata) {
+    return new IndexedTable(
+        object.lastModified().toInstant().toEpochMilli(), object.size(), metadata);
+  }
+
+  /** Whether this was read from the current version of an object. */
+  boolean isOf(ObjectMetadata object) {
+    return metadata != null
+        && lastModified == object.lastModified().toInstant().toEpochMilli()
+        && size == object.size();
+  }
+}
@@ -0,0 +1,25 @@
+package org.molgenis.armadillo.metadata;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import java.util.List;
+import org.molgenis.r.model.RPackage;
+
+/** The packages that are installed in the R environment of a profile. */
+@AutoValue
+public abstract class InstalledPackages {
+  /** Identifies the image and the container the packages were read from. */
+  @JsonProperty("environmentId")
+  public abstract String getEnvironmentId();
+
+  @JsonProperty("packages")
+  public abstract List<RPackage> getPackages();
+
+  @JsonCreator
+  public static InstalledPackages create(
+      @JsonProperty("environmentId") String newEnvironmentId,
+      @JsonProperty("packages") List<RPackage> newPackages) {
+    return new AutoValue_InstalledPackages(newEnvironmentId, List.copyOf(newPackages));
+  }
+}
@@ -0,0 +1,145 @@
+package org.molgenis.armadillo.metadata;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The changes between two versions of a metadata document, as stored in the journal. Metadata is
+ * an object of maps (users, projects, profiles) and sets (permissions), so the changes are made per
+ * map entry and per set element, and other fields are replaced as a whole.
+ */
+class JsonDelta {
+
+  enum Op {
+    /** Replaces a field. */
+    SET,
+    /** Puts an entry in a map field. */
+    PUT,
+    /** Removes an entry from a map field. */
+    REMOVE,
+    /** Adds an element to a set field. */
+    ADD,
+    /** Deletes an element from a set field. */
+    DELETE
+  }
+
+  @JsonInclude(Include.NON_NULL)
+  record Change(Op op, String field, String key, JsonNode value) {}
+
+  private JsonDelta() {}
+
+  static List<Change> diff(ObjectNode from, ObjectNode to) {
+    var changes = new ArrayList<Change>();
+    for (Iterator<String> fields = from.fieldNames(); fields.hasNext(); ) {
+      var field = fields.next();
+      if (!to.has(field)) {
+        changes.add(new Change(Op.SET, field, null, null));
+      }
+    }
+    to.fields()
+        .forEachRemaining(
+            entry -> {
+              var field = entry.getKey();
+              var oldValue = from.get(field);
+              var newValue = entry.getValue();
+              if (oldValue instanceof ObjectNode oldMap && newValue instanceof ObjectNode newMap) {
+                diffMap(field, oldMap, newMap, changes);
+              } else if (oldValue instanceof ArrayNode oldSet
+                  && newValue instanceof ArrayNode newSet) {
+                diffSet(field, oldSet, newSet, changes);
+              } else if (!Objects.equals(oldValue, newValue)) {
+                changes.add(new Change(Op.SET, field, null, newValue));
+              }
+            });
+    return changes;
+  }
+
+  private static void diffMap(
+      String field, ObjectNode oldMap, ObjectNode newMap, List<Change> changes) {
+    for (Iterator<String> keys = oldMap.fieldNames(); keys.hasNext(); ) {
+      var key = keys.next();
+      if (!newMap.has(key)) {
+        changes.add(new Change(Op.REMOVE, field, key, null));
+      }
+    }
+    newMap
+        .fields()
+        .forEachRemaining(
+            entry -> {
+              if (!entry.getValue().equals(oldMap.get(entry.getKey()))) {
+                changes.add(new Change(Op.PUT, field, entry.getKey(), entry.getValue()));
+              }
+            });
+  }
+
+  private static void diffSet(
+      String field, ArrayNode oldSet, ArrayNode newSet, List<Change> changes) {
+    var oldElements = new HashSet<JsonNode>();
+    oldSet.forEach(oldElements::add);
+    var newElements = new HashSet<JsonNode>();
+    newSet.forEach(newElements::add);
+    oldSet.forEach(
+        element -> {
+          if (!newElements.contains(element)) {
+            changes.add(new Change(Op.DELETE, field, null, element));
+          }
+        });
+    newSet.forEach(
+        element -> {
+          if (!oldElements.contains(element)) {
+            changes.add(new Change(Op.ADD, field, null, element));
+          }
+        });
+  }
+
+  /**
+   * Applies changes to a document. Applying changes that are in the document already changes
+   * nothing, so a journal can be replayed on a snapshot that already has some of it.
+   */
+  static void apply(ObjectNode document, List<Change> changes) {
+    for (var change : changes) {
+      switch (change.op()) {
+        case SET -> {
+          if (change.value() == null) {
+            document.remove(change.field());
+          } else {
+            document.set(change.field(), change.value());
+          }
+        }
+        case PUT -> document.with(change.field()).set(change.key(), change.value());
+        case REMOVE -> document.with(change.field()).remove(change.key());
+        case ADD -> {
+          var set = document.withArray(change.field());
+          if (!contains(set, change.value())) {
+            set.add(change.value());
+          }
+        }
+        case DELETE -> {
+          var set = document.withArray(change.field());
+          for (int i = set.size() - 1; i >= 0; i--) {
+            if (set.get(i).equals(change.value())) {
+              set.remove(i);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean contains(ArrayNode set, JsonNode value) {
+    for (var element : set) {
+      if (element.equals(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
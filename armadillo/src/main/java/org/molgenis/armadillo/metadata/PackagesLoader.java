@@ -0,0 +1,22 @@
+package org.molgenis.armadillo.metadata;
+
+import org.springframework.stereotype.Service;
+
+@Service
+public class PackagesLoader extends StorageJsonLoader<PackagesMetadata> {
+
+  @Override
+  public PackagesMetadata createDefault() {
+    return PackagesMetadata.create();
+  }
+
+  @Override
+  public Class<? extends Persistable> getTargetClass() {
+    return PackagesMetadata.class;
+  }
+
+  @Override
+  public String getJsonFilename() {
+    return "packages.json";
+  }
+}
@@ -0,0 +1,24 @@
+package org.molgenis.armadillo.metadata;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@AutoValue
+public abstract class PackagesMetadata implements Persistable {
+  @JsonProperty("profiles")
+  public abstract ConcurrentMap<String, InstalledPackages> getProfiles();
+
+  @JsonCreator
+  public static PackagesMetadata create() {
+    return new AutoValue_PackagesMetadata(new ConcurrentHashMap<>());
+  }
+
+  @JsonCreator
+  public static PackagesMetadata create(
+      @JsonProperty("profiles") ConcurrentMap<String, InstalledPackages> newProfiles) {
+    return new AutoValue_PackagesMetadata(newProfiles);
+  }
+}
@@ -1,58 +1,152 @@
 package org.molgenis.armadillo.metadata;
 
+import static java.lang.String.format;
+
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.exc.ValueInstantiationException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.io.IOUtils;
 import org.molgenis.armadillo.exceptions.StorageException;
+import org.molgenis.armadillo.metadata.JsonDelta.Change;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 
+/**
+ * Saves metadata as JSON in the system bucket. The file holds a snapshot of the metadata, and each
+ * save only writes the changes since the previous save, as the next entry of a journal next to it.
+ * After {@code armadillo.metadata.compact-after} entries, the save writes a new snapshot instead
+ * and removes the journal. Loading reads the snapshot and replays the journal on top of it.
+ */
 public abstract class StorageJsonLoader<T extends Persistable> {
 
+  static final String COMPACT_AFTER_PROPERTY = "armadillo.metadata.compact-after";
+
   @Autowired // constructor injection not possible because of bean inheritance
   private ArmadilloStorageService storage;
 
+  @Value("${" + COMPACT_AFTER_PROPERTY + ":100}")
+  private int compactAfter = 100;
+
   private static final Logger LOGGER = LoggerFactory.getLogger(StorageJsonLoader.class);
   private static final ObjectMapper objectMapper = new ObjectMapper();
 
+  /** The metadata as it is stored, null until it's loaded. */
+  private ObjectNode stored;
+
+  private final List<String> journal = new ArrayList<>();
+  private long sequence;
+
   public synchronized T save(T metadata) {
     try {
-      String json = objectMapper.writeValueAsString(metadata);
-      try (InputStream inputStream = new ByteArrayInputStream(json.getBytes())) {
-        storage.saveSystemFile(inputStream, getJsonFilename(), MediaType.APPLICATION_JSON);
+      ObjectNode document = objectMapper.valueToTree(metadata);
+      if (stored == null) {
+        load();
+      }
+      var changes = stored == null ? null : JsonDelta.diff(stored, document);
+      if (changes == null || journal.size() >= compactAfter) {
+        compact(document);
+      } else if (!changes.isEmpty()) {
+        append(changes);
       }
-    } catch (Exception e) {
+      stored = document;
+      return toMetadata(document);
+    } catch (IOException e) {
       throw new StorageException(e);
     }
-    return load();
   }
 
-  public T load() {
-    String result;
-    try (InputStream inputStream = storage.loadSystemFile(getJsonFilename())) {
-      result = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-      var temp = objectMapper.readValue(result, getTargetClass());
+  private void append(List<Change> changes) throws IOException {
+    sequence++;
+    var entry = format("%s%012d", getJournalPrefix(), sequence);
+    write(entry, objectMapper.writeValueAsBytes(changes));
+    journal.add(entry);
+  }
 
-      //noinspection unchecked
-      return temp == null ? createDefault() : (T) temp;
+  private void compact(ObjectNode document) throws IOException {
+    write(getJsonFilename(), objectMapper.writeValueAsBytes(document));
+    // the last changes of a journal win, so replaying the entries that are left over if removing
+    // them fails halfway gives the snapshot again, as long as the oldest are removed first
+    journal.forEach(storage::deleteSystemFile);
+    journal.clear();
+  }
 
+  private void write(String name, byte[] json) throws IOException {
+    try (InputStream inputStream = new ByteArrayInputStream(json)) {
+      storage.saveSystemFile(inputStream, name, MediaType.APPLICATION_JSON);
+    }
+  }
+
+  /**
+   * Loads the snapshot and replays the journal on top of it. A missing snapshot means this is the
+   * first run, and loads the default. Any other failure is thrown and keeps what was loaded before,
+   * so that a save never compacts over metadata that couldn't be read.
+   *
+   * @throws StorageException if the snapshot or the journal can't be read
+   */
+  public synchronized T load() {
+    try {
+      var document = readSnapshot();
+      var entries = storage.listSystemFiles(getJournalPrefix());
+      long last = sequence;
+      for (var entry : entries) {
+        JsonDelta.apply(document, readChanges(entry));
+        var number = entry.substring(getJournalPrefix().length());
+        last = Math.max(last, Long.parseLong(number));
+      }
+      journal.clear();
+      journal.addAll(entries);
+      sequence = last;
+      stored = document;
+      return toMetadata(document);
     } catch (ValueInstantiationException e) {
       // this is serious, manually edited file maybe?
       LOGGER.error(String.format("Parsing of %s failed: %s", getJsonFilename(), e.getMessage()));
       System.exit(-1);
       return createDefault();
-    } catch (Exception e) {
-      // this probably just means first time
-      return createDefault();
+    } catch (StorageException e) {
+      throw e;
+    } catch (IOException | RuntimeException e) {
+      throw new StorageException(e);
     }
   }
 
+  private ObjectNode readSnapshot() throws IOException {
+    try (InputStream inputStream = storage.loadSystemFile(getJsonFilename())) {
+      var json = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+      var document = json.isBlank() ? null : objectMapper.readTree(json);
+      return document instanceof ObjectNode snapshot
+          ? snapshot
+          : objectMapper.valueToTree(createDefault());
+    }
+  }
+
+  private List<Change> readChanges(String entry) throws IOException {
+    try (InputStream inputStream = storage.loadSystemFile(entry)) {
+      return objectMapper.readValue(inputStream, new TypeReference<>() {});
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private T toMetadata(ObjectNode document) throws IOException {
+    var metadata = objectMapper.treeToValue(document, getTargetClass());
+    return metadata == null ? createDefault() : (T) metadata;
+  }
+
+  private String getJournalPrefix() {
+    return getJsonFilename() + ".journal.";
+  }
+
   public abstract T createDefault();
 
   public abstract Class<? extends Persistable> getTargetClass();
@@ -0,0 +1,97 @@
+package org.molgenis.armadillo.metadata;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.armadillo.security.RunAs.runAsSystem;
+import static org.molgenis.armadillo.storage.ArmadilloStorageService.PARQUET;
+
+import java.io.IOException;
+import org.molgenis.armadillo.exceptions.FileProcessingException;
+import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.ObjectMetadata;
+import org.molgenis.armadillo.storage.ParquetUtils;
+import org.molgenis.armadillo.storage.TableMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps an index of the layout of the tables in the shared projects, so that it can be served
+ * without reading the tables. The index is stored in the system bucket. A table is indexed when it
+ * is uploaded or the first time its metadata is requested. Each entry remembers the last modified
+ * time and size of the object it was read from, and is indexed again when they change, so that
+ * tables that are written to the storage directly aren't served stale.
+ */
+@Service
+public class TableMetadataService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TableMetadataService.class);
+
+  private final ArmadilloStorageService storage;
+  private final TablesLoader loader;
+  private final TablesMetadata tables;
+
+  public TableMetadataService(ArmadilloStorageService storage, TablesLoader tablesLoader) {
+    this.storage = requireNonNull(storage);
+    this.loader = requireNonNull(tablesLoader);
+    this.tables = runAsSystem(loader::load);
+  }
+
+  public TableMetadata getMetadata(String project, String object) {
+    // also checks if the user has access to the project, and if the object exists
+    var version = storage.getObjectMetadata(project, object);
+    var indexed = tables.getTables().get(getKey(project, object));
+    return indexed != null && indexed.isOf(version)
+        ? indexed.metadata()
+        : index(project, object, version);
+  }
+
+  /** Indexes an object that was saved, if it's a table. */
+  public void refresh(String project, String object) {
+    evict(project, object);
+    if (object.endsWith(PARQUET)) {
+      try {
+        index(project, object, storage.getObjectMetadata(project, object));
+      } catch (RuntimeException e) {
+        LOGGER.warn(format("Couldn't index table %s/%s", project, object), e);
+      }
+    }
+  }
+
+  /** Forgets an object that was removed or replaced. */
+  public void evict(String project, String object) {
+    if (tables.getTables().remove(getKey(project, object)) != null) {
+      save();
+    }
+  }
+
+  /** Forgets the objects of a project that was removed. */
+  public void evictProject(String project) {
+    if (tables.getTables().keySet().removeIf(key -> key.startsWith(getKey(project, "")))) {
+      save();
+    }
+  }
+
+  private TableMetadata index(String project, String object, ObjectMetadata version) {
+    var inputFile = storage.getInputFile(project, object);
+    TableMetadata metadata;
+    try {
+      metadata = ParquetUtils.readMetadata(inputFile);
+    } catch (IOException | RuntimeException e) {
+      // parquet reports files that aren't parquet with a RuntimeException
+      LOGGER.debug(format("Couldn't read metadata of %s/%s", project, object), e);
+      throw new FileProcessingException();
+    }
+    tables.getTables().put(getKey(project, object), IndexedTable.of(version, metadata));
+    save();
+    return metadata;
+  }
+
+  private static String getKey(String project, String object) {
+    return project + "/" + object;
+  }
+
+  private synchronized void save() {
+    runAsSystem(() -> loader.save(tables));
+  }
+}
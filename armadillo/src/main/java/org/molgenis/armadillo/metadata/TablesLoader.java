@@ -0,0 +1,22 @@
+package org.molgenis.armadillo.metadata;
+
+import org.springframework.stereotype.Service;
+
+@Service
+public class TablesLoader extends StorageJsonLoader<TablesMetadata> {
+
+  @Override
+  public TablesMetadata createDefault() {
+    return TablesMetadata.create();
+  }
+
+  @Override
+  public Class<? extends Persistable> getTargetClass() {
+    return TablesMetadata.class;
+  }
+
+  @Override
+  public String getJsonFilename() {
+    return "tables.json";
+  }
+}
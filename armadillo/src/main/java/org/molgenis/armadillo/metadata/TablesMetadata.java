@@ -0,0 +1,25 @@
+package org.molgenis.armadillo.metadata;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@AutoValue
+public abstract class TablesMetadata implements Persistable {
+  /** The metadata of each table, by project and object name (e.g. lifecycle/core/nonrep.parquet) */
+  @JsonProperty("tables")
+  public abstract ConcurrentMap<String, IndexedTable> getTables();
+
+  @JsonCreator
+  public static TablesMetadata create() {
+    return new AutoValue_TablesMetadata(new ConcurrentHashMap<>());
+  }
+
+  @JsonCreator
+  public static TablesMetadata create(
+      @JsonProperty("tables") ConcurrentMap<String, IndexedTable> newTables) {
+    return new AutoValue_TablesMetadata(newTables);
+  }
+}
@@ -17,6 +17,7 @@ import com.github.dockerjava.api.model.Ports;
 import java.net.SocketException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import javax.ws.rs.ProcessingException;
 import org.molgenis.armadillo.exceptions.*;
@@ -93,6 +94,23 @@ public class DockerService {
     }
   }
 
+  /**
+   * Identifies the R environment of a profile by the id of its image and the id of its container.
+   * The id changes when the image is updated and when the container is reinstalled, which are the
+   * moments the installed packages can change.
+   *
+   * @return the id, or empty if the profile has no container or Docker can't be reached
+   */
+  public Optional<String> getEnvironmentId(String profileName) {
+    try {
+      InspectContainerResponse containerInfo = dockerClient.inspectContainerCmd(profileName).exec();
+      return Optional.of(containerInfo.getImageId() + "/" + containerInfo.getId());
+    } catch (ProcessingException | DockerException e) {
+      LOG.warn("Couldn't inspect container of profile '{}'", profileName);
+      return Optional.empty();
+    }
+  }
+
   public void startProfile(String profileName) {
     var profileConfig = profileService.getByName(profileName);
     pullImage(profileConfig);
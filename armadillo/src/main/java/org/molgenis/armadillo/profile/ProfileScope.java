@@ -1,6 +1,7 @@
 package org.molgenis.armadillo.profile;
 
 import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectFactory;
@@ -13,6 +14,9 @@ public class ProfileScope implements Scope {
   private static final Logger LOGGER = LoggerFactory.getLogger(ProfileScope.class);
   /** Contains all profile scoped beans for all profiles */
   private final ConcurrentHashMap<String, Object> scopedBeans = new ConcurrentHashMap<>();
+  /** Destruction callbacks of the profile scoped beans that have them */
+  private final ConcurrentHashMap<String, Runnable> destructionCallbacks =
+      new ConcurrentHashMap<>();
 
   @Override
   public Object get(String beanName, ObjectFactory<?> objectFactory) {
@@ -26,7 +30,9 @@ public class ProfileScope implements Scope {
 
   @Override
   public Object remove(@NonNull String beanName) {
-    return scopedBeans.remove(getFullyQualifiedBeanName(beanName));
+    var name = getFullyQualifiedBeanName(beanName);
+    destructionCallbacks.remove(name);
+    return scopedBeans.remove(name);
   }
 
   public void removeAllProfileBeans(String profileName) {
@@ -35,15 +41,33 @@ public class ProfileScope implements Scope {
         .asIterator()
         .forEachRemaining(
             key -> {
-              if (key.startsWith(profileName)) {
+              if (key.startsWith(profileName + ".")) {
                 scopedBeans.remove(key);
+                destroy(key);
               }
             });
   }
 
+  @PreDestroy
+  public void removeAll() {
+    scopedBeans.clear();
+    destructionCallbacks.keySet().forEach(this::destroy);
+  }
+
+  private void destroy(String name) {
+    var callback = destructionCallbacks.remove(name);
+    if (callback != null) {
+      try {
+        callback.run();
+      } catch (RuntimeException e) {
+        LOGGER.warn("Failed to destroy profile bean with name {}", name, e);
+      }
+    }
+  }
+
   @Override
-  public void registerDestructionCallback(String beanName, Runnable runnable) {
-    // We do not use this because our set of beans is application scoped
+  public void registerDestructionCallback(@NonNull String beanName, @NonNull Runnable runnable) {
+    destructionCallbacks.put(getFullyQualifiedBeanName(beanName), runnable);
   }
 
   @Override
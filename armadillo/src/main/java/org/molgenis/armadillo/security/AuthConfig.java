@@ -1,12 +1,17 @@
 package org.molgenis.armadillo.security;
 
+import static org.molgenis.armadillo.security.JwtRolesExtractor.CACHE_SIZE_PROPERTY;
+import static org.molgenis.armadillo.security.JwtRolesExtractor.CACHE_TTL_PROPERTY;
 import static org.molgenis.armadillo.security.RunAs.runAsSystem;
 import static org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest.toAnyEndpoint;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import org.molgenis.armadillo.metadata.AccessService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.boot.actuate.info.InfoEndpoint;
@@ -87,9 +92,19 @@ public class AuthConfig {
   // check against JWT and basic auth. You can also sign in using 'oauth2'
   public static class JwtConfig extends WebSecurityConfigurerAdapter {
     AccessService accessService;
-
-    public JwtConfig(AccessService accessService) {
+    MeterRegistry meterRegistry;
+    Duration authoritiesCacheTtl;
+    int authoritiesCacheSize;
+
+    public JwtConfig(
+        AccessService accessService,
+        MeterRegistry meterRegistry,
+        @Value("${" + CACHE_TTL_PROPERTY + ":1m}") Duration authoritiesCacheTtl,
+        @Value("${" + CACHE_SIZE_PROPERTY + ":10000}") int authoritiesCacheSize) {
       this.accessService = accessService;
+      this.meterRegistry = meterRegistry;
+      this.authoritiesCacheTtl = authoritiesCacheTtl;
+      this.authoritiesCacheSize = authoritiesCacheSize;
     }
 
     @Override
@@ -129,7 +144,8 @@ public class AuthConfig {
     Converter<Jwt, AbstractAuthenticationToken> grantedAuthoritiesExtractor() {
       JwtAuthenticationConverter jwtAuthenticationConverter = new JwtAuthenticationConverter();
       jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(
-          new JwtRolesExtractor(accessService));
+          new JwtRolesExtractor(
+              accessService, meterRegistry, authoritiesCacheTtl, authoritiesCacheSize));
       return jwtAuthenticationConverter;
     }
   }
@@ -2,26 +2,59 @@ package org.molgenis.armadillo.security;
 
 import static org.molgenis.armadillo.security.RunAs.runAsSystem;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
+import java.util.Optional;
+import org.molgenis.armadillo.metadata.AccessIndex;
 import org.molgenis.armadillo.metadata.AccessService;
-import org.springframework.context.annotation.Profile;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
-import org.springframework.stereotype.Service;
 
-/** Extracts roles from JWT */
-@Service
-@Profile({"armadillo"})
+/**
+ * Extracts roles from JWT. The roles of a token are remembered for {@code
+ * armadillo.authorities.cache-ttl}, as long as the access metadata doesn't change.
+ */
 public class JwtRolesExtractor implements Converter<Jwt, Collection<GrantedAuthority>> {
+
+  static final String CACHE_TTL_PROPERTY = "armadillo.authorities.cache-ttl";
+  static final String CACHE_SIZE_PROPERTY = "armadillo.authorities.cache-size";
+
   private final AccessService accessService;
+  private final Cache<Token, CachedAuthorities> cache;
+
+  private record Token(String id, Instant expiresAt) {}
+
+  private record CachedAuthorities(AccessIndex index, Collection<GrantedAuthority> authorities) {}
 
-  public JwtRolesExtractor(AccessService accessService) {
+  public JwtRolesExtractor(
+      AccessService accessService, MeterRegistry meterRegistry, Duration ttl, int size) {
     this.accessService = accessService;
+    this.cache =
+        CacheBuilder.newBuilder().expireAfterWrite(ttl).maximumSize(size).recordStats().build();
+    GuavaCacheMetrics.monitor(meterRegistry, cache, "authorities");
   }
 
   public Collection<GrantedAuthority> convert(Jwt jwt) {
-    return runAsSystem(
-        () -> accessService.getAuthoritiesForEmail(jwt.getClaimAsString("email"), jwt.getClaims()));
+    var token =
+        new Token(Optional.ofNullable(jwt.getId()).orElse(jwt.getTokenValue()), jwt.getExpiresAt());
+    var index = runAsSystem(accessService::getAccessIndex);
+    var cached = cache.getIfPresent(token);
+    // authorities computed from an older index are stale
+    if (cached != null && cached.index() == index) {
+      return cached.authorities();
+    }
+    var authorities =
+        runAsSystem(
+            () ->
+                accessService.getAuthoritiesForEmail(
+                    jwt.getClaimAsString("email"), jwt.getClaims()));
+    cache.put(token, new CachedAuthorities(index, authorities));
+    return authorities;
   }
 }
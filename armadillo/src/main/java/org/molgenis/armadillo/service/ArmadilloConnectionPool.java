@@ -0,0 +1,155 @@
+package org.molgenis.armadillo.service;
+
+import static org.molgenis.armadillo.security.RunAs.runAsSystem;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.molgenis.armadillo.metadata.ProfileConfig;
+import org.molgenis.armadillo.profile.ActiveProfileNameAccessor;
+import org.molgenis.armadillo.profile.annotation.ProfileScope;
+import org.molgenis.r.RServerConnection;
+import org.molgenis.r.RServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a number of connections ready for the active profile. These connections already have the
+ * whitelisted packages and the DataSHIELD options loaded, so a new session doesn't have to wait for
+ * that. Each time a connection is taken, the pool is topped up in the background.
+ *
+ * <p>The size of the pool is configured with {@code armadillo.connection-pool-size}. With a size of
+ * 0 (the default) every connection is created on demand.
+ */
+@Primary
+@Component
+@ProfileScope
+public class ArmadilloConnectionPool implements ArmadilloConnectionFactory {
+
+  static final String POOL_SIZE_PROPERTY = "armadillo.connection-pool-size";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ArmadilloConnectionPool.class);
+
+  private final ArmadilloConnectionFactoryImpl connectionFactory;
+  private final MeterRegistry meterRegistry;
+  private final String profileName;
+  private final int size;
+  private final BlockingQueue<RServerConnection> idleConnections = new LinkedBlockingQueue<>();
+  private final AtomicInteger pendingConnections = new AtomicInteger();
+  private final ExecutorService executor;
+  private final Counter hits;
+  private final Counter misses;
+  private final Gauge idle;
+  private volatile boolean closed = false;
+
+  public ArmadilloConnectionPool(
+      ArmadilloConnectionFactoryImpl connectionFactory,
+      ProfileConfig profileConfig,
+      MeterRegistry meterRegistry,
+      @Value("${" + POOL_SIZE_PROPERTY + ":0}") int size) {
+    this.connectionFactory = connectionFactory;
+    this.meterRegistry = meterRegistry;
+    this.profileName = profileConfig.getName();
+    this.size = size;
+    this.executor =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              var thread = new Thread(runnable, "connection-pool-" + profileName);
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.hits = requests(meterRegistry, "hit");
+    this.misses = requests(meterRegistry, "miss");
+    this.idle =
+        Gauge.builder("rserve.connection.pool.idle", idleConnections, Collection::size)
+            .tag("environment", profileName)
+            .description("Number of idle connections in the pool of the R environment")
+            .register(meterRegistry);
+  }
+
+  private Counter requests(MeterRegistry registry, String result) {
+    return Counter.builder("rserve.connection.pool.requests")
+        .tag("environment", profileName)
+        .tag("result", result)
+        .description("Number of connections requested from the pool of the R environment")
+        .register(registry);
+  }
+
+  @PostConstruct
+  public void init() {
+    topUp();
+  }
+
+  @Override
+  public RServerConnection createConnection() {
+    RServerConnection connection;
+    while ((connection = idleConnections.poll()) != null) {
+      if (isAlive(connection)) {
+        hits.increment();
+        topUp();
+        return connection;
+      }
+      connection.close();
+    }
+    misses.increment();
+    topUp();
+    return connectionFactory.createConnection();
+  }
+
+  /** Connections can go stale while idle, for instance when the profile's container restarts. */
+  private static boolean isAlive(RServerConnection connection) {
+    try {
+      connection.eval("NULL");
+      return true;
+    } catch (RServerException | RuntimeException e) {
+      return false;
+    }
+  }
+
+  private void topUp() {
+    int pending;
+    while (!closed && (pending = pendingConnections.get()) + idleConnections.size() < size) {
+      if (pendingConnections.compareAndSet(pending, pending + 1)) {
+        executor.execute(this::addConnection);
+      }
+    }
+  }
+
+  private void addConnection() {
+    try {
+      ActiveProfileNameAccessor.setActiveProfileName(profileName);
+      var connection = runAsSystem(connectionFactory::createConnection);
+      idleConnections.add(connection);
+      if (closed && idleConnections.remove(connection)) {
+        connection.close();
+      }
+    } catch (RuntimeException e) {
+      // the pool gets topped up again when the next connection is requested
+      LOGGER.warn("Failed to add a connection to the pool of profile '{}'", profileName, e);
+    } finally {
+      pendingConnections.decrementAndGet();
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    closed = true;
+    executor.shutdownNow();
+    meterRegistry.remove(idle);
+    RServerConnection connection;
+    while ((connection = idleConnections.poll()) != null) {
+      connection.close();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package org.molgenis.armadillo.service;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+
+/**
+ * Lists the tables and resources of all projects the user has access to. The projects are listed
+ * concurrently, at most {@code armadillo.catalog.parallelism} at a time. A project that takes
+ * longer than {@code armadillo.catalog.timeout} to list, counted from when it was submitted, is
+ * left out and its thread is interrupted, so that one slow bucket doesn't hold up the whole
+ * catalog. Beyond {@code armadillo.catalog.max-queued} waiting listings, projects are left out
+ * right away, so that buckets that hang can't make the queue grow without bound.
+ */
+@Service
+public class CatalogService {
+
+  static final String PARALLELISM_PROPERTY = "armadillo.catalog.parallelism";
+  static final String TIMEOUT_PROPERTY = "armadillo.catalog.timeout";
+  static final String MAX_QUEUED_PROPERTY = "armadillo.catalog.max-queued";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CatalogService.class);
+
+  private final ArmadilloStorageService storage;
+  private final ExecutorService executor;
+  private final Duration timeout;
+
+  public CatalogService(
+      ArmadilloStorageService storage,
+      @Value("${" + PARALLELISM_PROPERTY + ":8}") int parallelism,
+      @Value("${" + TIMEOUT_PROPERTY + ":10s}") Duration timeout,
+      @Value("${" + MAX_QUEUED_PROPERTY + ":1024}") int maxQueued) {
+    this.storage = requireNonNull(storage);
+    this.timeout = requireNonNull(timeout);
+    var threadCount = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            parallelism,
+            parallelism,
+            0,
+            MILLISECONDS,
+            new LinkedBlockingQueue<>(maxQueued),
+            runnable -> {
+              var thread = new Thread(runnable, "catalog-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  public List<String> listTables() {
+    return listAll(storage::listTables);
+  }
+
+  public List<String> listResources() {
+    return listAll(storage::listResources);
+  }
+
+  private List<String> listAll(Function<String, List<String>> lister) {
+    // the storage checks the user's permissions, so the tasks need the user's security context
+    var securityContextExecutor = new DelegatingSecurityContextExecutorService(executor);
+    var listings =
+        storage.listProjects().stream()
+            .map(project -> list(project, lister, securityContextExecutor))
+            .toList();
+    // each listing times out on its own from when it was submitted, so this takes at most the
+    // timeout, also when all threads are stuck
+    try {
+      return listings.stream().map(CompletableFuture::join).flatMap(List::stream).toList();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+  }
+
+  private CompletableFuture<List<String>> list(
+      String project,
+      Function<String, List<String>> lister,
+      ExecutorService securityContextExecutor) {
+    var listing = new CompletableFuture<List<String>>();
+    listing.orTimeout(timeout.toMillis(), MILLISECONDS);
+    try {
+      Future<?> task =
+          securityContextExecutor.submit(
+              () -> {
+                if (listing.isDone()) {
+                  return; // timed out while it waited for a thread
+                }
+                try {
+                  listing.complete(lister.apply(project));
+                } catch (RuntimeException e) {
+                  listing.completeExceptionally(e);
+                }
+              });
+      listing.whenComplete(
+          (value, throwable) -> {
+            if (throwable instanceof TimeoutException) {
+              task.cancel(true);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      listing.completeExceptionally(e);
+    }
+    return listing.exceptionally(
+        throwable -> {
+          if (throwable instanceof TimeoutException) {
+            LOGGER.warn(
+                "Listing project '{}' timed out after {}, leaving it out", project, timeout);
+            return List.of();
+          }
+          if (throwable instanceof RejectedExecutionException) {
+            LOGGER.warn("Too many projects waiting to be listed, leaving out '{}'", project);
+            return List.of();
+          }
+          throw new CompletionException(throwable);
+        });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -32,6 +32,8 @@ public class DSEnvironmentCache {
   private final PackageService packageService;
   private final RConnectionFactory rConnectionFactory;
   private final ProfileConfig profileConfig;
+  private final InstalledPackagesCache installedPackagesCache;
+  private final ExpressionCache expressionCache;
 
   private final DSEnvironment aggregateEnvironment;
   private final DSEnvironment assignEnvironment;
@@ -39,10 +41,14 @@ public class DSEnvironmentCache {
   public DSEnvironmentCache(
       PackageService packageService,
       RConnectionFactory rConnectionFactory,
-      ProfileConfig profileConfig) {
+      ProfileConfig profileConfig,
+      InstalledPackagesCache installedPackagesCache,
+      ExpressionCache expressionCache) {
     this.packageService = requireNonNull(packageService);
     this.rConnectionFactory = requireNonNull(rConnectionFactory);
     this.profileConfig = requireNonNull(profileConfig);
+    this.installedPackagesCache = requireNonNull(installedPackagesCache);
+    this.expressionCache = requireNonNull(expressionCache);
 
     this.aggregateEnvironment = new DataShieldEnvironment(DSMethodType.AGGREGATE);
     this.assignEnvironment = new DataShieldEnvironment(DSMethodType.ASSIGN);
@@ -61,9 +67,15 @@ public class DSEnvironmentCache {
         .filter(dsMethod -> validateMethodIsUnique(dsMethod, assignEnvironment))
         .filter(this::isMethodAllowed)
         .forEach(dsMethod -> addToEnvironment(dsMethod, assignEnvironment));
+    // the scripts generated with the previous environments may call other functions
+    expressionCache.invalidate(profileConfig.getName());
   }
 
   private List<RPackage> getPackages() {
+    return installedPackagesCache.getPackages(profileConfig.getName(), this::getInstalledPackages);
+  }
+
+  private List<RPackage> getInstalledPackages() {
     RServerConnection connection = null;
     try {
       connection = rConnectionFactory.tryCreateConnection();
@@ -0,0 +1,92 @@
+package org.molgenis.armadillo.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import org.molgenis.armadillo.exceptions.ExpressionException;
+import org.obiba.datashield.core.DSMethodType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Remembers the scripts generated for DataSHIELD expressions, per profile and method type, so that
+ * an expression that clients send over and over is only parsed once. Expressions that can't be
+ * rewritten are remembered with the message of their {@link ExpressionException}, every lookup
+ * throws a new exception. The expressions and scripts that are kept take up at most {@code
+ * armadillo.expressions.cache-max-size}, counting two bytes per character; the least recently used
+ * ones are evicted first. Hits and misses are published as {@code cache.gets} of the {@code
+ * expressions} cache.
+ *
+ * <p>The entries of a profile are invalidated when its {@link DSEnvironmentCache} is populated.
+ */
+@Component
+public class ExpressionCache {
+
+  static final String CACHE_MAX_SIZE_PROPERTY = "armadillo.expressions.cache-max-size";
+
+  private final Cache<Key, Rewrite> rewrites;
+
+  private record Key(String profile, DSMethodType methodType, String expression) {}
+
+  private record Rewrite(String script, String error) {
+    String get() {
+      if (error != null) {
+        throw new ExpressionException(error);
+      }
+      return script;
+    }
+
+    int length() {
+      return error != null ? error.length() : script.length();
+    }
+  }
+
+  public ExpressionCache(
+      MeterRegistry meterRegistry,
+      @Value("${" + CACHE_MAX_SIZE_PROPERTY + ":16MB}") DataSize maxSize) {
+    this.rewrites =
+        GuavaCacheMetrics.monitor(
+            meterRegistry,
+            CacheBuilder.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher(
+                    (Key key, Rewrite rewrite) ->
+                        2 * (key.profile().length() + key.expression().length() + rewrite.length()))
+                .recordStats()
+                .build(),
+            "expressions");
+  }
+
+  /**
+   * Gets the script for an expression, rewriting it if it isn't known yet.
+   *
+   * @throws ExpressionException if the expression can't be rewritten
+   */
+  public String get(
+      String profile, DSMethodType methodType, String expression, Supplier<String> rewriter) {
+    try {
+      return rewrites.get(new Key(profile, methodType, expression), () -> rewrite(rewriter)).get();
+    } catch (UncheckedExecutionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Rewrite rewrite(Supplier<String> rewriter) {
+    try {
+      return new Rewrite(rewriter.get(), null);
+    } catch (ExpressionException e) {
+      return new Rewrite(null, e.getMessage());
+    }
+  }
+
+  public void invalidate(String profile) {
+    rewrites.asMap().keySet().removeIf(key -> key.profile().equals(profile));
+  }
+}
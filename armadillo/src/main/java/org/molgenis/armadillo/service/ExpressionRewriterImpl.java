@@ -1,5 +1,7 @@
 package org.molgenis.armadillo.service;
 
+import static org.molgenis.armadillo.profile.ActiveProfileNameAccessor.getActiveProfileName;
+
 import org.molgenis.armadillo.exceptions.ExpressionException;
 import org.molgenis.armadillo.profile.annotation.ProfileScope;
 import org.obiba.datashield.core.DSEnvironment;
@@ -20,19 +22,29 @@ public class ExpressionRewriterImpl implements ExpressionRewriter {
   private static final Logger LOGGER = LoggerFactory.getLogger(ExpressionRewriterImpl.class);
 
   private final DSEnvironmentCache environments;
+  private final ExpressionCache expressionCache;
 
-  public ExpressionRewriterImpl(DSEnvironmentCache environments) {
+  public ExpressionRewriterImpl(DSEnvironmentCache environments, ExpressionCache expressionCache) {
     this.environments = environments;
+    this.expressionCache = expressionCache;
   }
 
   @Override
   public String rewriteAssign(String expression) {
-    return rewrite(expression, environments.getEnvironment(DSMethodType.ASSIGN));
+    return rewrite(expression, DSMethodType.ASSIGN);
   }
 
   @Override
   public String rewriteAggregate(String expression) {
-    return rewrite(expression, environments.getEnvironment(DSMethodType.AGGREGATE));
+    return rewrite(expression, DSMethodType.AGGREGATE);
+  }
+
+  private String rewrite(String expression, DSMethodType methodType) {
+    return expressionCache.get(
+        getActiveProfileName(),
+        methodType,
+        expression,
+        () -> rewrite(expression, environments.getEnvironment(methodType)));
   }
 
   private String rewrite(String expression, DSEnvironment environment) {
@@ -0,0 +1,84 @@
+package org.molgenis.armadillo.service;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.armadillo.security.RunAs.runAsSystem;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.molgenis.armadillo.metadata.InstalledPackages;
+import org.molgenis.armadillo.metadata.PackagesLoader;
+import org.molgenis.armadillo.metadata.PackagesMetadata;
+import org.molgenis.armadillo.profile.DockerService;
+import org.molgenis.r.model.RPackage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Remembers which packages are installed in the R environment of each profile, so they don't have
+ * to be read from R every time a profile's beans are created. The packages are stored in the system
+ * bucket and survive restarts of Armadillo. They are read again when the image or the container of
+ * the profile changes, or when a package is installed.
+ *
+ * <p>The environment of a profile can only be identified when Docker management is enabled. Without
+ * it the packages are always read from R.
+ */
+@Service
+public class InstalledPackagesCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(InstalledPackagesCache.class);
+
+  private final PackagesLoader loader;
+  private final DockerService dockerService;
+  private final PackagesMetadata packages;
+
+  public InstalledPackagesCache(PackagesLoader packagesLoader, Optional<DockerService> docker) {
+    this.loader = requireNonNull(packagesLoader);
+    this.dockerService = docker.orElse(null);
+    this.packages = runAsSystem(loader::load);
+  }
+
+  /**
+   * Gets the installed packages of a profile.
+   *
+   * @param profileName the profile
+   * @param installedPackages reads the installed packages from R, used on a cache miss
+   */
+  public List<RPackage> getPackages(
+      String profileName, Supplier<List<RPackage>> installedPackages) {
+    var environmentId = getEnvironmentId(profileName);
+    if (environmentId.isEmpty()) {
+      return installedPackages.get();
+    }
+
+    var cached = packages.getProfiles().get(profileName);
+    if (cached != null && cached.getEnvironmentId().equals(environmentId.get())) {
+      LOGGER.debug("Using cached packages of profile '{}'", profileName);
+      return cached.getPackages();
+    }
+
+    var result = InstalledPackages.create(environmentId.get(), installedPackages.get());
+    packages.getProfiles().put(profileName, result);
+    save();
+    return result.getPackages();
+  }
+
+  /** Forgets the packages of a profile, for instance because a package was installed. */
+  public void evict(String profileName) {
+    if (packages.getProfiles().remove(profileName) != null) {
+      save();
+    }
+  }
+
+  private Optional<String> getEnvironmentId(String profileName) {
+    if (dockerService == null) {
+      return Optional.empty();
+    }
+    return runAsSystem(() -> dockerService.getEnvironmentId(profileName));
+  }
+
+  private synchronized void save() {
+    runAsSystem(() -> loader.save(packages));
+  }
+}
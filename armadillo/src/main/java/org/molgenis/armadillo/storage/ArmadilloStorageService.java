@@ -1,23 +1,35 @@
 package org.molgenis.armadillo.storage;
 
 import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.io.FilenameUtils.removeExtension;
 import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Principal;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.parquet.io.InputFile;
 import org.molgenis.armadillo.exceptions.DuplicateObjectException;
 import org.molgenis.armadillo.exceptions.InvalidProjectNameException;
 import org.molgenis.armadillo.exceptions.UnknownObjectException;
 import org.molgenis.armadillo.exceptions.UnknownProjectException;
 import org.molgenis.armadillo.model.Workspace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PostFilter;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -32,6 +44,9 @@ public class ArmadilloStorageService {
   public static final String PARQUET = ".parquet";
   public static final String RDS = ".rds";
   public static final String SYSTEM = "system";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ArmadilloStorageService.class);
+
   private final StorageService storageService;
 
   public ArmadilloStorageService(StorageService storageService) {
@@ -69,16 +84,16 @@ public class ArmadilloStorageService {
 
   @PreAuthorize("hasRole('ROLE_SU')")
   public void moveObject(String project, String newObject, String oldObject) {
-    copyObject(project, newObject, oldObject);
-    storageService.delete(SHARED_PREFIX + project, oldObject);
+    throwIfUnknown(project, oldObject);
+    throwIfDuplicate(project, newObject);
+    storageService.move(SHARED_PREFIX + project, oldObject, newObject);
   }
 
   @PreAuthorize("hasRole('ROLE_SU')")
   public void copyObject(String project, String newObject, String oldObject) {
     throwIfUnknown(project, oldObject);
     throwIfDuplicate(project, newObject);
-    var inputStream = storageService.load(SHARED_PREFIX + project, oldObject);
-    storageService.save(inputStream, SHARED_PREFIX + project, newObject, APPLICATION_OCTET_STREAM);
+    storageService.copy(SHARED_PREFIX + project, oldObject, newObject);
   }
 
   @PreAuthorize("hasRole('ROLE_SU')")
@@ -93,6 +108,19 @@ public class ArmadilloStorageService {
     return storageService.load(SHARED_PREFIX + project, object);
   }
 
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public ObjectMetadata getObjectMetadata(String project, String object) {
+    throwIfUnknown(project, object);
+    return storageService.getObjectMetadata(SHARED_PREFIX + project, object);
+  }
+
+  /** Writes {@code length} bytes of an object, starting at {@code offset}, to a stream. */
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public void transferObject(
+      String project, String object, long offset, long length, OutputStream outputStream) {
+    storageService.transfer(SHARED_PREFIX + project, object, offset, length, outputStream);
+  }
+
   @PostFilter("hasAnyRole('ROLE_SU', 'ROLE_' + filterObject.toUpperCase() + '_RESEARCHER')")
   @SuppressWarnings("java:S6204") // result of method can't be unmodifiable because of @PostFilter
   public List<String> listProjects() {
@@ -129,6 +157,51 @@ public class ArmadilloStorageService {
     return storageService.load(SHARED_PREFIX + project, objectName + PARQUET);
   }
 
+  /**
+   * Loads a table, leaving out the data of all columns that aren't in the list of variables, so
+   * that only the data that is needed gets copied to R. Loads the complete table if there are no
+   * variables or if the table can't be projected.
+   */
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public InputStream loadTable(String project, String objectName, List<String> variables) {
+    if (!variables.isEmpty()) {
+      var table = storageService.getInputFile(SHARED_PREFIX + project, objectName + PARQUET);
+      var projection = projectTable(table, variables);
+      if (projection.isPresent()) {
+        return projection.get();
+      }
+    }
+    return storageService.load(SHARED_PREFIX + project, objectName + PARQUET);
+  }
+
+  /** Random access to an object, for reading parts of it without loading all of it. */
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public InputFile getInputFile(String project, String object) {
+    throwIfUnknown(project, object);
+    return storageService.getInputFile(SHARED_PREFIX + project, object);
+  }
+
+  private static Optional<InputStream> projectTable(InputFile table, List<String> variables) {
+    Path projection = null;
+    try {
+      projection = Files.createTempFile("armadillo-", PARQUET);
+      boolean projected;
+      try (var outputStream = new BufferedOutputStream(Files.newOutputStream(projection))) {
+        projected = ParquetUtils.projectColumns(table, variables, outputStream);
+      }
+      if (projected) {
+        LOGGER.debug("Projected table to {} bytes", Files.size(projection));
+        return Optional.of(Files.newInputStream(projection, DELETE_ON_CLOSE));
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Failed to project table, loading all columns", e);
+    }
+    if (projection != null) {
+      FileUtils.deleteQuietly(projection.toFile());
+    }
+    return Optional.empty();
+  }
+
   @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
   public boolean resourceExists(String project, String objectName) {
     return storageService.objectExists(SHARED_PREFIX + project, objectName + RDS);
@@ -202,6 +275,22 @@ public class ArmadilloStorageService {
     }
   }
 
+  /** Lists the names of the system files that start with a prefix, in order. */
+  public List<String> listSystemFiles(String prefix) {
+    if (!storageService.listBuckets().contains(SYSTEM)) {
+      return emptyList();
+    }
+    return storageService.listObjects(SYSTEM).stream()
+        .map(ObjectMetadata::name)
+        .filter(name -> name.startsWith(prefix))
+        .sorted()
+        .toList();
+  }
+
+  public void deleteSystemFile(String name) {
+    storageService.delete(SYSTEM, name);
+  }
+
   private void throwIfDuplicate(String project, String object) {
     if (hasObject(project, object)) {
       throw new DuplicateObjectException(project, object);
@@ -0,0 +1,208 @@
+package org.molgenis.armadillo.storage;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import org.apache.parquet.io.InputFile;
+import org.molgenis.armadillo.exceptions.StorageException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+/**
+ * Remembers the buckets, the objects in each bucket and whether objects exist, so that checking a
+ * project or a table doesn't cost a round trip to the storage every time. Entries expire after
+ * {@code storage.cache.ttl} and at most {@code storage.cache.max-size} entries are kept per cache.
+ * Every change that goes through this service evicts the entries it affects. Hits and misses are
+ * published as {@code cache.gets}, tagged with the name of the cache.
+ *
+ * <p>Wraps whichever {@link StorageService} is configured. Spring only injects a bean into itself
+ * if there is no other candidate.
+ */
+@Service
+@Primary
+class CachingStorageService implements StorageService {
+
+  static final String TTL_PROPERTY = "storage.cache.ttl";
+  static final String MAX_SIZE_PROPERTY = "storage.cache.max-size";
+  private static final String ALL_BUCKETS = "";
+
+  private final StorageService storageService;
+  private final Cache<String, List<String>> buckets;
+  private final Cache<String, List<ObjectMetadata>> objects;
+  private final Cache<ObjectKey, Boolean> existence;
+
+  private record ObjectKey(String bucket, String objectName) {}
+
+  public CachingStorageService(
+      StorageService storageService,
+      MeterRegistry meterRegistry,
+      @Value("${" + TTL_PROPERTY + ":30s}") Duration ttl,
+      @Value("${" + MAX_SIZE_PROPERTY + ":10000}") long maxSize) {
+    this.storageService = requireNonNull(storageService);
+    this.buckets =
+        GuavaCacheMetrics.monitor(meterRegistry, newCache(ttl, maxSize), "storage.buckets");
+    this.objects =
+        GuavaCacheMetrics.monitor(meterRegistry, newCache(ttl, maxSize), "storage.objects");
+    this.existence =
+        GuavaCacheMetrics.monitor(meterRegistry, newCache(ttl, maxSize), "storage.existence");
+  }
+
+  private static <K, V> Cache<K, V> newCache(Duration ttl, long maxSize) {
+    return CacheBuilder.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumSize(maxSize)
+        .recordStats()
+        .build();
+  }
+
+  private static <K, V> V get(Cache<K, V> cache, K key, Callable<V> loader) {
+    try {
+      return cache.get(key, loader);
+    } catch (UncheckedExecutionException e) {
+      // let the exceptions of the storage through, they're handled further up
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    } catch (ExecutionException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public boolean objectExists(String bucket, String objectName) {
+    return get(
+        existence,
+        new ObjectKey(bucket, objectName),
+        () -> storageService.objectExists(bucket, objectName));
+  }
+
+  @Override
+  public void createBucketIfNotExists(String bucketName) {
+    try {
+      storageService.createBucketIfNotExists(bucketName);
+    } finally {
+      evictBucket(bucketName);
+    }
+  }
+
+  @Override
+  public void deleteBucket(String bucketName) {
+    try {
+      storageService.deleteBucket(bucketName);
+    } finally {
+      evictBucket(bucketName);
+    }
+  }
+
+  @Override
+  public List<String> listBuckets() {
+    return get(buckets, ALL_BUCKETS, storageService::listBuckets);
+  }
+
+  @Override
+  public void save(InputStream is, String bucketName, String objectName, MediaType mediaType) {
+    try {
+      storageService.save(is, bucketName, objectName, mediaType);
+    } finally {
+      // saving creates the bucket if it doesn't exist yet
+      buckets.invalidateAll();
+      evictObject(bucketName, objectName);
+    }
+  }
+
+  @Override
+  public List<ObjectMetadata> listObjects(String bucketName) {
+    return get(objects, bucketName, () -> storageService.listObjects(bucketName));
+  }
+
+  @Override
+  public InputStream load(String bucketName, String objectName) {
+    return storageService.load(bucketName, objectName);
+  }
+
+  @Override
+  public void copy(String bucketName, String sourceObjectName, String objectName) {
+    try {
+      storageService.copy(bucketName, sourceObjectName, objectName);
+    } finally {
+      evictObject(bucketName, objectName);
+    }
+  }
+
+  @Override
+  public void move(String bucketName, String sourceObjectName, String objectName) {
+    try {
+      storageService.move(bucketName, sourceObjectName, objectName);
+    } finally {
+      evictObject(bucketName, sourceObjectName);
+      evictObject(bucketName, objectName);
+    }
+  }
+
+  @Override
+  public void compose(
+      String sourceBucketName,
+      List<String> sourceObjectNames,
+      String bucketName,
+      String objectName) {
+    try {
+      storageService.compose(sourceBucketName, sourceObjectNames, bucketName, objectName);
+    } finally {
+      buckets.invalidateAll();
+      evictObject(bucketName, objectName);
+    }
+  }
+
+  @Override
+  public ObjectMetadata getObjectMetadata(String bucketName, String objectName) {
+    return storageService.getObjectMetadata(bucketName, objectName);
+  }
+
+  @Override
+  public void transfer(
+      String bucketName, String objectName, long offset, long length, OutputStream outputStream) {
+    storageService.transfer(bucketName, objectName, offset, length, outputStream);
+  }
+
+  @Override
+  public InputFile getInputFile(String bucketName, String objectName) {
+    return storageService.getInputFile(bucketName, objectName);
+  }
+
+  @Override
+  public List<Map<String, String>> preview(
+      String bucketName, String objectName, int rowLimit, int columnLimit) {
+    return storageService.preview(bucketName, objectName, rowLimit, columnLimit);
+  }
+
+  @Override
+  public void delete(String bucketName, String objectName) {
+    try {
+      storageService.delete(bucketName, objectName);
+    } finally {
+      evictObject(bucketName, objectName);
+    }
+  }
+
+  private void evictObject(String bucketName, String objectName) {
+    objects.invalidate(bucketName);
+    existence.invalidate(new ObjectKey(bucketName, objectName));
+  }
+
+  private void evictBucket(String bucketName) {
+    buckets.invalidateAll();
+    objects.invalidate(bucketName);
+    existence.asMap().keySet().removeIf(key -> key.bucket().equals(bucketName));
+  }
+}
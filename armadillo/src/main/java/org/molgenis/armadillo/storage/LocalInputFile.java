@@ -15,176 +15,184 @@
  */
 package org.molgenis.armadillo.storage;
 
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
 import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import org.apache.parquet.io.InputFile;
 import org.apache.parquet.io.SeekableInputStream;
 
 /**
- * Modified version of
- * https://github.com/tideworks/arvo2parquet/blob/master/src/main/java/com/tideworks/data_load/io/InputFile.java
+ * {@link InputFile} for a file on disk. Every stream has its own position and reads at that
+ * position, straight into the buffer it's given, so any number of streams can read the same file at
+ * the same time.
+ *
+ * <p>Files of at least {@code mapThreshold} bytes are memory mapped once and the mapping is shared
+ * by all streams. A mapped file must not be overwritten while it's being read, because the streams
+ * would see the new contents, or fail if the file got shorter.
  */
 public class LocalInputFile implements InputFile {
 
-  private static final int COPY_BUFFER_SIZE = 8192;
-  private final RandomAccessFile input;
+  /** Never memory map files. */
+  public static final long NO_MAPPING = -1;
+
+  private final Path path;
+  private final long length;
+  private final boolean mapped;
+  private MappedByteBuffer mapping;
 
   public LocalInputFile(Path path) throws FileNotFoundException {
-    this.input = new RandomAccessFile(path.toFile(), "r");
+    this(path, NO_MAPPING);
   }
 
-  private static int readDirectBuffer(ByteBuffer byteBufr, byte[] tmpBuf, ByteBufReader rdr)
-      throws IOException {
-    // copy all the bytes that return immediately, stopping at the first
-    // read that doesn't return a full buffer.
-    int nextReadLength = Math.min(byteBufr.remaining(), tmpBuf.length);
-    int totalBytesRead = 0;
-    int bytesRead;
-
-    while ((bytesRead = rdr.read(tmpBuf, 0, nextReadLength)) == tmpBuf.length) {
-      byteBufr.put(tmpBuf);
-      totalBytesRead += bytesRead;
-      nextReadLength = Math.min(byteBufr.remaining(), tmpBuf.length);
-    }
-
-    if (bytesRead < 0) {
-      // return -1 if nothing was read
-      return totalBytesRead == 0 ? -1 : totalBytesRead;
-    } else {
-      // copy the last partial buffer
-      byteBufr.put(tmpBuf, 0, bytesRead);
-      totalBytesRead += bytesRead;
-      return totalBytesRead;
+  public LocalInputFile(Path path, long mapThreshold) throws FileNotFoundException {
+    if (!Files.isRegularFile(path)) {
+      throw new FileNotFoundException(path.toString());
     }
+    this.path = path;
+    this.length = path.toFile().length();
+    // a mapping can't be larger than Integer.MAX_VALUE bytes
+    this.mapped = mapThreshold >= 0 && length >= mapThreshold && length <= Integer.MAX_VALUE;
   }
 
-  private static void readFullyDirectBuffer(ByteBuffer byteBufr, byte[] tmpBuf, ByteBufReader rdr)
-      throws IOException {
-    int nextReadLength = Math.min(byteBufr.remaining(), tmpBuf.length);
-    int bytesRead = 0;
+  @Override
+  public long getLength() {
+    return length;
+  }
 
-    while (nextReadLength > 0 && (bytesRead = rdr.read(tmpBuf, 0, nextReadLength)) >= 0) {
-      byteBufr.put(tmpBuf, 0, bytesRead);
-      nextReadLength = Math.min(byteBufr.remaining(), tmpBuf.length);
+  @Override
+  public SeekableInputStream newStream() throws IOException {
+    if (mapped) {
+      return new LocalInputStream(null, getMapping());
     }
+    return new LocalInputStream(FileChannel.open(path, READ), null);
+  }
 
-    if (bytesRead < 0 && byteBufr.remaining() > 0) {
-      throw new EOFException(
-          "Reached the end of stream with " + byteBufr.remaining() + " bytes left to read");
+  private synchronized MappedByteBuffer getMapping() throws IOException {
+    if (mapping == null) {
+      try (var channel = FileChannel.open(path, READ)) {
+        mapping = channel.map(READ_ONLY, 0, length);
+      }
     }
+    return mapping;
   }
 
-  @Override
-  public long getLength() throws IOException {
-    return input.length();
-  }
+  private class LocalInputStream extends SeekableInputStream {
+    private final FileChannel channel;
+    private final ByteBuffer mappedFile;
+    private long position = 0;
+    private long markPosition = 0;
 
-  @Override
-  public SeekableInputStream newStream() {
-    return new SeekableInputStream() {
-      private final byte[] tmpBuf = new byte[COPY_BUFFER_SIZE];
-      private long markPos = 0;
-
-      @Override
-      public int read() throws IOException {
-        return input.read();
-      }
+    /** Reads either from a channel or from a mapping of the file. */
+    private LocalInputStream(FileChannel channel, ByteBuffer mappedFile) {
+      this.channel = channel;
+      this.mappedFile = mappedFile;
+    }
 
-      @SuppressWarnings("NullableProblems")
-      @Override
-      public int read(byte[] b) throws IOException {
-        return input.read(b);
+    /** Reads at the given position without moving the stream. */
+    private int readAt(ByteBuffer buffer, long from) throws IOException {
+      if (from >= length) {
+        return buffer.hasRemaining() ? -1 : 0;
       }
-
-      @SuppressWarnings("NullableProblems")
-      @Override
-      public int read(byte[] b, int off, int len) throws IOException {
-        return input.read(b, off, len);
+      if (channel != null) {
+        return channel.read(buffer, from);
       }
+      int count = (int) Math.min(buffer.remaining(), length - from);
+      buffer.put(buffer.position(), mappedFile, (int) from, count);
+      buffer.position(buffer.position() + count);
+      return count;
+    }
 
-      @Override
-      public long skip(long n) throws IOException {
-        final long savPos = input.getFilePointer();
-        final long amtLeft = input.length() - savPos;
-        n = Math.min(n, amtLeft);
-        final long newPos = savPos + n;
-        input.seek(newPos);
-        final long curPos = input.getFilePointer();
-        return curPos - savPos;
-      }
+    @Override
+    public int read() throws IOException {
+      var b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
 
-      @Override
-      public int available() throws IOException {
-        return 0;
-      }
+    @SuppressWarnings("NullableProblems")
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return read(ByteBuffer.wrap(b, off, len));
+    }
 
-      @Override
-      public void close() throws IOException {
-        input.close();
+    @Override
+    public int read(ByteBuffer byteBuffer) throws IOException {
+      int count = readAt(byteBuffer, position);
+      if (count > 0) {
+        position += count;
       }
+      return count;
+    }
 
-      @SuppressWarnings({"unchecked", "unused", "UnusedReturnValue"})
-      private <T extends Throwable, R> R uncheckedExceptionThrow(Throwable t) throws T {
-        throw (T) t;
-      }
+    @Override
+    public void readFully(byte[] bytes) throws IOException {
+      readFully(ByteBuffer.wrap(bytes));
+    }
 
-      @Override
-      public synchronized void mark(int readlimit) {
-        try {
-          markPos = input.getFilePointer();
-        } catch (IOException e) {
-          uncheckedExceptionThrow(e);
+    @Override
+    public void readFully(byte[] bytes, int start, int len) throws IOException {
+      readFully(ByteBuffer.wrap(bytes, start, len));
+    }
+
+    @Override
+    public void readFully(ByteBuffer byteBuffer) throws IOException {
+      while (byteBuffer.hasRemaining()) {
+        if (read(byteBuffer) < 0) {
+          throw new EOFException(
+              "Reached the end of stream with " + byteBuffer.remaining() + " bytes left to read");
         }
       }
+    }
 
-      @Override
-      public synchronized void reset() throws IOException {
-        input.seek(markPos);
-      }
+    @Override
+    public long skip(long n) {
+      long skipped = Math.max(0, Math.min(n, length - position));
+      position += skipped;
+      return skipped;
+    }
 
-      @Override
-      public boolean markSupported() {
-        return true;
-      }
+    @Override
+    public int available() {
+      return (int) Math.min(Math.max(0, length - position), Integer.MAX_VALUE);
+    }
 
-      @Override
-      public long getPos() throws IOException {
-        return input.getFilePointer();
-      }
+    @Override
+    public long getPos() {
+      return position;
+    }
 
-      @Override
-      public void seek(long l) throws IOException {
-        input.seek(l);
-      }
+    @Override
+    public void seek(long newPos) {
+      position = newPos;
+    }
 
-      @Override
-      public void readFully(byte[] bytes) throws IOException {
-        input.readFully(bytes);
-      }
+    @Override
+    public synchronized void mark(int readlimit) {
+      markPosition = position;
+    }
 
-      @Override
-      public void readFully(byte[] bytes, int i, int i1) throws IOException {
-        input.readFully(bytes, i, i1);
-      }
+    @Override
+    public synchronized void reset() {
+      position = markPosition;
+    }
 
-      @Override
-      public int read(ByteBuffer byteBuffer) throws IOException {
-        return readDirectBuffer(byteBuffer, tmpBuf, input::read);
-      }
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
 
-      @Override
-      public void readFully(ByteBuffer byteBuffer) throws IOException {
-        readFullyDirectBuffer(byteBuffer, tmpBuf, input::read);
+    @Override
+    public void close() throws IOException {
+      if (channel != null) {
+        channel.close();
       }
-    };
-  }
-
-  private interface ByteBufReader {
-
-    int read(byte[] b, int off, int len) throws IOException;
+    }
   }
 }
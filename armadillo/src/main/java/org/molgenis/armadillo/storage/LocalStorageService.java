@@ -1,17 +1,26 @@
 package org.molgenis.armadillo.storage;
 
 import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static java.util.Collections.emptyList;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import org.apache.commons.io.IOUtils;
+import org.apache.parquet.io.InputFile;
 import org.molgenis.armadillo.exceptions.IllegalPathException;
 import org.molgenis.armadillo.exceptions.StorageException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.http.MediaType;
@@ -22,12 +31,27 @@ import org.springframework.stereotype.Service;
 public class LocalStorageService implements StorageService {
 
   static final String ROOT_DIR_PROPERTY = "storage.root-dir";
+  static final String MAP_THRESHOLD_PROPERTY = "storage.map-threshold";
+  /** Where objects are written before they are moved into their bucket. */
+  static final String STAGING_DIR = ".staging";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LocalStorageService.class);
 
   private final String rootDir;
+  private final long mapThreshold;
 
-  public LocalStorageService(@Value("${" + ROOT_DIR_PROPERTY + "}") String rootDir) {
+  public LocalStorageService(String rootDir) {
+    this(rootDir, LocalInputFile.NO_MAPPING);
+  }
+
+  /**
+   * @param mapThreshold size in bytes from which files are memory mapped when read with {@link
+   *     #getInputFile}, or -1 to never map them
+   */
+  @Autowired
+  public LocalStorageService(
+      @Value("${" + ROOT_DIR_PROPERTY + "}") String rootDir,
+      @Value("${" + MAP_THRESHOLD_PROPERTY + ":-1}") long mapThreshold) {
     var dir = new File(rootDir);
     if (!dir.isDirectory()) {
       throw new StorageException(
@@ -37,10 +61,28 @@ public class LocalStorageService implements StorageService {
     }
 
     this.rootDir = rootDir;
+    this.mapThreshold = mapThreshold;
+    cleanStaging();
 
     LOGGER.info("Using local storage at {}", dir.getAbsolutePath());
   }
 
+  /** Creates the staging directory, and removes the files left in it by a previous run. */
+  private void cleanStaging() {
+    var staging = Paths.get(rootDir, STAGING_DIR);
+    try {
+      Files.createDirectories(staging);
+      try (var files = Files.list(staging)) {
+        for (var file : (Iterable<Path>) files::iterator) {
+          LOGGER.info("Removing unfinished write {}", file);
+          Files.deleteIfExists(file);
+        }
+      }
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
   @Override
   public boolean objectExists(String bucketName, String objectName) {
     Objects.requireNonNull(objectName);
@@ -88,7 +130,11 @@ public class LocalStorageService implements StorageService {
     if (files == null) {
       return emptyList();
     }
-    return Arrays.stream(files).filter(File::isDirectory).map(File::getName).toList();
+    return Arrays.stream(files)
+        .filter(File::isDirectory)
+        .map(File::getName)
+        .filter(name -> !name.equals(STAGING_DIR))
+        .toList();
   }
 
   @Override
@@ -102,8 +148,18 @@ public class LocalStorageService implements StorageService {
       //noinspection ResultOfMethodCallIgnored
       path.toFile().getParentFile().mkdirs();
 
-      try (FileOutputStream outputStream = new FileOutputStream(path.toFile(), false)) {
-        inputStream.transferTo(outputStream);
+      // write to the staging directory and swap it in, so that overwriting an object replaces its
+      // file instead of changing it, which would also change the copies that link to it; staging
+      // is outside the buckets, so unfinished writes aren't listed, but on the same file store, so
+      // the move is atomic
+      var tempPath = Files.createTempFile(Paths.get(rootDir, STAGING_DIR), "", ".tmp");
+      try {
+        try (FileOutputStream outputStream = new FileOutputStream(tempPath.toFile(), false)) {
+          inputStream.transferTo(outputStream);
+        }
+        Files.move(tempPath, path, REPLACE_EXISTING, ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tempPath);
       }
     } catch (Exception e) {
       throw new StorageException(e);
@@ -154,6 +210,123 @@ public class LocalStorageService implements StorageService {
     }
   }
 
+  @Override
+  public void copy(String bucketName, String sourceObjectName, String objectName) {
+    try {
+      Path sourcePath = getPathIfObjectExists(bucketName, sourceObjectName);
+      Path path = getObjectPathSafely(bucketName, objectName);
+      Files.createDirectories(path.getParent());
+      try {
+        // objects are never changed in place (see save), so the copy can share the file's data
+        Files.createLink(path, sourcePath);
+      } catch (UnsupportedOperationException | FileSystemException e) {
+        LOGGER.debug("Unable to link {} to {}, copying it instead", path, sourcePath);
+        Files.copy(sourcePath, path, REPLACE_EXISTING);
+      }
+    } catch (Exception e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public void move(String bucketName, String sourceObjectName, String objectName) {
+    try {
+      Path sourcePath = getPathIfObjectExists(bucketName, sourceObjectName);
+      Path path = getObjectPathSafely(bucketName, objectName);
+      Files.createDirectories(path.getParent());
+      Files.move(sourcePath, path, REPLACE_EXISTING);
+    } catch (Exception e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public void compose(
+      String sourceBucketName,
+      List<String> sourceObjectNames,
+      String bucketName,
+      String objectName) {
+    Path path = getObjectPathSafely(bucketName, objectName);
+    try {
+      createBucketIfNotExists(bucketName);
+      //noinspection ResultOfMethodCallIgnored
+      path.toFile().getParentFile().mkdirs();
+
+      // composed in the staging directory and swapped in, like save does
+      var tempPath = Files.createTempFile(Paths.get(rootDir, STAGING_DIR), "", ".tmp");
+      try {
+        try (var target = FileChannel.open(tempPath, WRITE)) {
+          for (var sourceObjectName : sourceObjectNames) {
+            var sourcePath = getPathIfObjectExists(sourceBucketName, sourceObjectName);
+            try (var source = FileChannel.open(sourcePath)) {
+              long size = source.size();
+              for (long position = 0; position < size; ) {
+                long transferred = source.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                  throw new EOFException(
+                      format("Unexpected end of %s at %d", sourceObjectName, position));
+                }
+                position += transferred;
+              }
+            }
+          }
+        }
+        Files.move(tempPath, path, REPLACE_EXISTING, ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tempPath);
+      }
+    } catch (Exception e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public ObjectMetadata getObjectMetadata(String bucketName, String objectName) {
+    try {
+      Objects.requireNonNull(bucketName);
+      Objects.requireNonNull(objectName);
+
+      Path objectPath = getPathIfObjectExists(bucketName, objectName);
+      return ObjectMetadata.of(Paths.get(rootDir, bucketName), objectPath);
+    } catch (Exception e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public void transfer(
+      String bucketName, String objectName, long offset, long length, OutputStream outputStream) {
+    try {
+      Objects.requireNonNull(bucketName);
+      Objects.requireNonNull(objectName);
+
+      Path objectPath = getPathIfObjectExists(bucketName, objectName);
+      try (var channel = FileChannel.open(objectPath)) {
+        long count = Math.max(0, Math.min(offset + length, channel.size()) - offset);
+        var inputStream = Channels.newInputStream(channel.position(offset));
+        long copied = IOUtils.copyLarge(inputStream, outputStream, 0, count);
+        if (copied < count) {
+          throw new EOFException(format("Unexpected end of %s at %d", objectName, offset + copied));
+        }
+      }
+    } catch (Exception e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public InputFile getInputFile(String bucketName, String objectName) {
+    try {
+      Objects.requireNonNull(bucketName);
+      Objects.requireNonNull(objectName);
+
+      Path objectPath = getPathIfObjectExists(bucketName, objectName);
+      return new LocalInputFile(objectPath, mapThreshold);
+    } catch (Exception e) {
+      throw new StorageException(e);
+    }
+  }
+
   @Override
   public List<Map<String, String>> preview(
       String bucketName, String objectName, int rowLimit, int columnLimit) {
@@ -162,7 +335,8 @@ public class LocalStorageService implements StorageService {
       Objects.requireNonNull(objectName);
 
       Path objectPath = getPathIfObjectExists(bucketName, objectName);
-      return ParquetUtils.previewRecords(objectPath, rowLimit, columnLimit);
+      return ParquetUtils.previewRecords(
+          new LocalInputFile(objectPath, mapThreshold), rowLimit, columnLimit);
     } catch (Exception e) {
       throw new StorageException(e);
     }
@@ -0,0 +1,185 @@
+package org.molgenis.armadillo.storage;
+
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.parquet.io.DelegatingSeekableInputStream;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+
+/**
+ * {@link InputFile} on top of ranged GetObject requests. Small reads are served from blocks of
+ * {@link #BLOCK_SIZE} bytes, of which the {@link #CACHED_BLOCKS} most recently used are kept, so
+ * that reading the footer and the first pages of a parquet file only fetches the blocks they're
+ * in. Reads of at least a block, and reads that go on past a block where the previous read ended,
+ * open a response from there to the end of the file that the next forward reads continue with, so
+ * that copying a column chunk is streamed in one request instead of one per block.
+ */
+class MinioInputFile implements InputFile {
+
+  static final int BLOCK_SIZE = 256 * 1024;
+  static final int CACHED_BLOCKS = 16;
+
+  private final MinioClient minioClient;
+  private final String bucketName;
+  private final String objectName;
+  private final long length;
+
+  private final Map<Long, byte[]> blocks =
+      new LinkedHashMap<>(CACHED_BLOCKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+          return size() > CACHED_BLOCKS;
+        }
+      };
+
+  MinioInputFile(MinioClient minioClient, String bucketName, String objectName, long length) {
+    this.minioClient = minioClient;
+    this.bucketName = bucketName;
+    this.objectName = objectName;
+    this.length = length;
+  }
+
+  @Override
+  public long getLength() {
+    return length;
+  }
+
+  @Override
+  public SeekableInputStream newStream() {
+    var rangeStream = new RangeInputStream();
+    return new DelegatingSeekableInputStream(rangeStream) {
+      @Override
+      public long getPos() {
+        return rangeStream.position;
+      }
+
+      @Override
+      public void seek(long newPos) {
+        rangeStream.position = newPos;
+      }
+    };
+  }
+
+  private synchronized byte[] getBlock(long index) throws IOException {
+    var block = blocks.get(index);
+    if (block == null) {
+      long offset = index * BLOCK_SIZE;
+      block = new byte[toIntExact(min(BLOCK_SIZE, length - offset))];
+      fetch(offset, block, 0, block.length);
+      blocks.put(index, block);
+    }
+    return block;
+  }
+
+  private void fetch(long offset, byte[] buffer, int bufferOffset, int size) throws IOException {
+    try (InputStream response = open(offset, size)) {
+      int read = response.readNBytes(buffer, bufferOffset, size);
+      if (read < size) {
+        throw new EOFException(
+            String.format("Expected %d bytes at offset %d but got %d", size, offset, read));
+      }
+    }
+  }
+
+  private InputStream open(long offset, long size) throws IOException {
+    try {
+      return minioClient.getObject(
+          GetObjectArgs.builder()
+              .bucket(bucketName)
+              .object(objectName)
+              .offset(offset)
+              .length(size)
+              .build());
+    } catch (InvalidKeyException
+        | InsufficientDataException
+        | NoSuchAlgorithmException
+        | InvalidResponseException
+        | ErrorResponseException
+        | InternalException
+        | ServerException
+        | XmlParserException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private synchronized boolean isCached(long index) {
+    return blocks.containsKey(index);
+  }
+
+  private class RangeInputStream extends InputStream {
+    private long position;
+    private long previousEnd = -1;
+    // streams forward from responsePosition, null if no response is open
+    private InputStream response;
+    private long responsePosition;
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (position >= length) {
+        return -1;
+      }
+      int read;
+      if (response != null && responsePosition == position) {
+        read = readResponse(b, off, len);
+      } else if (len >= BLOCK_SIZE
+          || (position == previousEnd && !isCached(position / BLOCK_SIZE))) {
+        closeResponse();
+        response = open(position, length - position);
+        responsePosition = position;
+        read = readResponse(b, off, len);
+      } else {
+        var block = getBlock(position / BLOCK_SIZE);
+        int blockOffset = toIntExact(position % BLOCK_SIZE);
+        read = min(len, block.length - blockOffset);
+        System.arraycopy(block, blockOffset, b, off, read);
+      }
+      position += read;
+      previousEnd = position;
+      return read;
+    }
+
+    private int readResponse(byte[] b, int off, int len) throws IOException {
+      int read = response.read(b, off, toIntExact(min(len, length - position)));
+      if (read < 0) {
+        throw new EOFException(
+            String.format("Expected %d bytes at offset %d", length - position, position));
+      }
+      responsePosition += read;
+      return read;
+    }
+
+    private void closeResponse() throws IOException {
+      if (response != null) {
+        response.close();
+        response = null;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      closeResponse();
+    }
+  }
+}
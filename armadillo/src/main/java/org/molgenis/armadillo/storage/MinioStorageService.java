@@ -5,6 +5,8 @@ import static java.lang.String.format;
 import static org.molgenis.armadillo.storage.MinioStorageService.MINIO_URL_PROPERTY;
 
 import io.minio.BucketExistsArgs;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
 import io.minio.GetObjectArgs;
 import io.minio.ListObjectsArgs;
 import io.minio.MakeBucketArgs;
@@ -22,20 +24,20 @@ import io.minio.errors.XmlParserException;
 import io.minio.messages.Bucket;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.Map;
+import org.apache.parquet.io.InputFile;
 import org.molgenis.armadillo.exceptions.StorageException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.context.annotation.Primary;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
 @Service
-@Primary
 @ConditionalOnProperty(MINIO_URL_PROPERTY)
 class MinioStorageService implements StorageService {
 
@@ -205,12 +207,125 @@ class MinioStorageService implements StorageService {
     }
   }
 
+  @Override
+  public void copy(String bucketName, String sourceObjectName, String objectName) {
+    // composing a single source copies it, in parts if it's too large for a single copy request
+    compose(bucketName, List.of(sourceObjectName), bucketName, objectName);
+  }
+
+  @Override
+  public void move(String bucketName, String sourceObjectName, String objectName) {
+    copy(bucketName, sourceObjectName, objectName);
+    delete(bucketName, sourceObjectName);
+  }
+
+  @Override
+  public void compose(
+      String sourceBucketName,
+      List<String> sourceObjectNames,
+      String bucketName,
+      String objectName) {
+    createBucketIfNotExists(bucketName);
+    LOGGER.info("Composing object {} from {} parts.", objectName, sourceObjectNames.size());
+    var sources =
+        sourceObjectNames.stream()
+            .map(source -> ComposeSource.builder().bucket(sourceBucketName).object(source).build())
+            .toList();
+    try {
+      minioClient.composeObject(
+          ComposeObjectArgs.builder()
+              .bucket(bucketName)
+              .object(objectName)
+              .sources(sources)
+              .build());
+    } catch (InvalidKeyException
+        | InsufficientDataException
+        | NoSuchAlgorithmException
+        | InvalidResponseException
+        | ErrorResponseException
+        | InternalException
+        | IOException
+        | ServerException
+        | XmlParserException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public ObjectMetadata getObjectMetadata(String bucketName, String objectName) {
+    try {
+      var stat =
+          minioClient.statObject(
+              StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+      return new ObjectMetadata(objectName, stat.lastModified(), stat.size());
+    } catch (InvalidKeyException
+        | InsufficientDataException
+        | NoSuchAlgorithmException
+        | InvalidResponseException
+        | ErrorResponseException
+        | InternalException
+        | IOException
+        | ServerException
+        | XmlParserException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public void transfer(
+      String bucketName, String objectName, long offset, long length, OutputStream outputStream) {
+    LOGGER.info("Transferring {} bytes at offset {} of object {}.", length, offset, objectName);
+    try (var inputStream =
+        minioClient.getObject(
+            GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .offset(offset)
+                .length(length)
+                .build())) {
+      inputStream.transferTo(outputStream);
+    } catch (InvalidKeyException
+        | InsufficientDataException
+        | NoSuchAlgorithmException
+        | InvalidResponseException
+        | ErrorResponseException
+        | InternalException
+        | IOException
+        | ServerException
+        | XmlParserException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public InputFile getInputFile(String bucketName, String objectName) {
+    try {
+      var stat =
+          minioClient.statObject(
+              StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+      return new MinioInputFile(minioClient, bucketName, objectName, stat.size());
+    } catch (InvalidKeyException
+        | InsufficientDataException
+        | NoSuchAlgorithmException
+        | InvalidResponseException
+        | ErrorResponseException
+        | InternalException
+        | IOException
+        | ServerException
+        | XmlParserException e) {
+      throw new StorageException(e);
+    }
+  }
+
   @Override
   public List<Map<String, String>> preview(
       String bucketName, String objectName, int rowLimit, int columnLimit) {
-    throw new UnsupportedOperationException();
-    // would require us I suppose to download the file to temp and then run the ParquetUtils.preview
-    // from there
+    try {
+      return ParquetUtils.previewRecords(
+          getInputFile(bucketName, objectName), rowLimit, columnLimit);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
   }
 
   @Override
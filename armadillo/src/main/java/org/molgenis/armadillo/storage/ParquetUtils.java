@@ -1,37 +1,81 @@
 package org.molgenis.armadillo.storage;
 
 import static java.lang.Math.min;
+import static org.apache.parquet.column.Encoding.PLAIN;
+import static org.apache.parquet.column.Encoding.RLE;
+import static org.apache.parquet.hadoop.ParquetFileWriter.CURRENT_VERSION;
+import static org.apache.parquet.hadoop.ParquetFileWriter.MAGIC;
+import static org.apache.parquet.hadoop.metadata.CompressionCodecName.UNCOMPRESSED;
+import static org.apache.parquet.schema.Type.Repetition.OPTIONAL;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.bytes.BytesUtils;
+import org.apache.parquet.column.ColumnDescriptor;
 import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.column.statistics.Statistics;
 import org.apache.parquet.example.data.simple.SimpleGroup;
 import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.format.Util;
+import org.apache.parquet.format.converter.ParquetMetadataConverter;
 import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.FileMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.InputFile;
 import org.apache.parquet.io.MessageColumnIO;
 import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.io.SeekableInputStream;
 import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
 
 public class ParquetUtils {
+  private static final int COPY_BUFFER_SIZE = 65536;
+  /** Rows per row group that still fit in a single run-length encoded run of nulls. */
+  private static final long MAX_NULL_RUN = Integer.MAX_VALUE >> 1;
+
   public static List<Map<String, String>> previewRecords(Path path, int rowLimit, int columnLimit)
       throws IOException {
+    return previewRecords(new LocalInputFile(path), rowLimit, columnLimit);
+  }
+
+  /**
+   * Reads the first rows of the first row group. Only the column chunks of the first columns are
+   * read, so a preview doesn't have to fetch the whole file when the file is remote.
+   */
+  public static List<Map<String, String>> previewRecords(
+      InputFile file, int rowLimit, int columnLimit) throws IOException {
     List<Map<String, String>> result = new ArrayList<>();
-    LocalInputFile file = new LocalInputFile(path);
     try (ParquetFileReader reader = ParquetFileReader.open(file)) {
-      MessageType schema = reader.getFooter().getFileMetaData().getSchema();
+      MessageType fileSchema = reader.getFooter().getFileMetaData().getSchema();
+      MessageType schema =
+          new MessageType(
+              fileSchema.getName(),
+              fileSchema.getFields().subList(0, min(fileSchema.getFieldCount(), columnLimit)));
+      reader.setRequestedSchema(schema);
       MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(schema);
       PageReadStore store = reader.readNextRowGroup();
+      if (store == null) {
+        return result;
+      }
       RecordReader recordReader = columnIO.getRecordReader(store, new GroupRecordConverter(schema));
       int fieldSize = schema.getFields().size();
-      for (int i = 0; i < rowLimit; i++) {
+      for (int i = 0; i < min(rowLimit, store.getRowCount()); i++) {
         SimpleGroup group = (SimpleGroup) recordReader.read();
         Map<String, String> row = new LinkedHashMap<>();
-        for (int fieldIndex = 0; fieldIndex < min(fieldSize, columnLimit); fieldIndex++) {
+        for (int fieldIndex = 0; fieldIndex < fieldSize; fieldIndex++) {
           try {
             row.put(schema.getFieldName(fieldIndex), group.getValueToString(fieldIndex, 0));
           } catch (Exception e) {
@@ -43,4 +87,185 @@ public class ParquetUtils {
     }
     return result;
   }
+
+  /** Reads the layout of a table from the footer of its parquet file, without reading any data. */
+  public static TableMetadata readMetadata(InputFile inputFile) throws IOException {
+    try (SeekableInputStream input = inputFile.newStream()) {
+      ParquetMetadata footer =
+          ParquetFileReader.readFooter(inputFile, ParquetReadOptions.builder().build(), input);
+      // compressed and uncompressed size of each top level column
+      Map<String, long[]> sizes = new LinkedHashMap<>();
+      List<TableMetadata.RowGroup> rowGroups = new ArrayList<>();
+      long rowCount = 0;
+      for (BlockMetaData block : footer.getBlocks()) {
+        rowCount += block.getRowCount();
+        rowGroups.add(
+            new TableMetadata.RowGroup(
+                block.getRowCount(), block.getCompressedSize(), block.getTotalByteSize()));
+        for (ColumnChunkMetaData chunk : block.getColumns()) {
+          long[] size = sizes.computeIfAbsent(chunk.getPath().toArray()[0], name -> new long[2]);
+          size[0] += chunk.getTotalSize();
+          size[1] += chunk.getTotalUncompressedSize();
+        }
+      }
+      List<TableMetadata.Column> columns =
+          footer.getFileMetaData().getSchema().getFields().stream()
+              .map(
+                  field -> {
+                    long[] size = sizes.getOrDefault(field.getName(), new long[2]);
+                    return new TableMetadata.Column(
+                        field.getName(), getTypeName(field), size[0], size[1]);
+                  })
+              .toList();
+      return new TableMetadata(rowCount, columns, rowGroups);
+    }
+  }
+
+  private static String getTypeName(Type field) {
+    if (field.getLogicalTypeAnnotation() != null) {
+      return field.getLogicalTypeAnnotation().toString();
+    }
+    return field.isPrimitive() ? field.asPrimitiveType().getPrimitiveTypeName().name() : "GROUP";
+  }
+
+  /**
+   * Writes a copy of a parquet file that only holds data for the requested columns.
+   *
+   * <p>The column chunks of the requested columns are copied byte for byte, without decoding them.
+   * The chunks of the other columns are replaced by a single page of nulls, which takes a few bytes
+   * regardless of the size of the original column. The schema and the key-value metadata stay the
+   * same, so readers that depend on them (e.g. the Arrow schema that R writes to keep factors and
+   * other R attributes) still see the original table layout. Columns that can't hold nulls
+   * (required or nested columns) are copied as well.
+   *
+   * @param inputFile the parquet file to project
+   * @param columns names of the top level columns to keep, unknown names are ignored
+   * @param outputStream the stream to write the projected file to
+   * @return false if there are no columns to leave out, in which case nothing is written
+   */
+  public static boolean projectColumns(
+      InputFile inputFile, Collection<String> columns, OutputStream outputStream)
+      throws IOException {
+    try (SeekableInputStream input = inputFile.newStream()) {
+      ParquetMetadata footer =
+          ParquetFileReader.readFooter(inputFile, ParquetReadOptions.builder().build(), input);
+      MessageType schema = footer.getFileMetaData().getSchema();
+      List<ColumnDescriptor> descriptors = schema.getColumns();
+      boolean[] emptied = new boolean[descriptors.size()];
+      boolean anyEmptied = false;
+      for (int i = 0; i < descriptors.size(); i++) {
+        emptied[i] = canBeEmptied(descriptors.get(i), columns);
+        anyEmptied |= emptied[i];
+      }
+      if (!anyEmptied
+          || footer.getBlocks().stream().anyMatch(block -> block.getRowCount() > MAX_NULL_RUN)) {
+        return false;
+      }
+
+      var converter = new ParquetMetadataConverter();
+      var output = new CountingOutputStream(outputStream);
+      output.write(MAGIC);
+      List<BlockMetaData> blocks = new ArrayList<>();
+      for (BlockMetaData block : footer.getBlocks()) {
+        var projectedBlock = new BlockMetaData();
+        projectedBlock.setRowCount(block.getRowCount());
+        List<ColumnChunkMetaData> chunks = block.getColumns();
+        for (int i = 0; i < chunks.size(); i++) {
+          ColumnChunkMetaData chunk =
+              emptied[i]
+                  ? writeNullChunk(converter, chunks.get(i), block.getRowCount(), output)
+                  : copyChunk(input, chunks.get(i), output);
+          projectedBlock.addColumn(chunk);
+          projectedBlock.setTotalByteSize(
+              projectedBlock.getTotalByteSize() + chunk.getTotalUncompressedSize());
+        }
+        blocks.add(projectedBlock);
+      }
+
+      var fileMetaData = footer.getFileMetaData();
+      var projectedFooter =
+          new ParquetMetadata(
+              new FileMetaData(
+                  schema, fileMetaData.getKeyValueMetaData(), fileMetaData.getCreatedBy()),
+              blocks);
+      long footerStart = output.getByteCount();
+      Util.writeFileMetaData(converter.toParquetMetadata(CURRENT_VERSION, projectedFooter), output);
+      BytesUtils.writeIntLittleEndian(output, (int) (output.getByteCount() - footerStart));
+      output.write(MAGIC);
+      output.flush();
+      return true;
+    }
+  }
+
+  private static boolean canBeEmptied(ColumnDescriptor descriptor, Collection<String> columns) {
+    return descriptor.getPath().length == 1
+        && !columns.contains(descriptor.getPath()[0])
+        && descriptor.getPrimitiveType().getRepetition() == OPTIONAL;
+  }
+
+  private static ColumnChunkMetaData copyChunk(
+      SeekableInputStream input, ColumnChunkMetaData chunk, CountingOutputStream output)
+      throws IOException {
+    long offset = output.getByteCount() - chunk.getStartingPos();
+    input.seek(chunk.getStartingPos());
+    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    long remaining = chunk.getTotalSize();
+    while (remaining > 0) {
+      int length = (int) min(buffer.length, remaining);
+      input.readFully(buffer, 0, length);
+      output.write(buffer, 0, length);
+      remaining -= length;
+    }
+    return ColumnChunkMetaData.get(
+        chunk.getPath(),
+        chunk.getPrimitiveType(),
+        chunk.getCodec(),
+        chunk.getEncodingStats(),
+        chunk.getEncodings(),
+        chunk.getStatistics(),
+        chunk.getFirstDataPageOffset() + offset,
+        chunk.getDictionaryPageOffset() > 0 ? chunk.getDictionaryPageOffset() + offset : 0,
+        chunk.getValueCount(),
+        chunk.getTotalSize(),
+        chunk.getTotalUncompressedSize());
+  }
+
+  /**
+   * Writes a data page in which every row is null. The page only holds the definition levels,
+   * encoded as one run of zeroes, and no values.
+   */
+  private static ColumnChunkMetaData writeNullChunk(
+      ParquetMetadataConverter converter,
+      ColumnChunkMetaData chunk,
+      long rowCount,
+      CountingOutputStream output)
+      throws IOException {
+    var levels = new ByteArrayOutputStream();
+    BytesUtils.writeUnsignedVarInt((int) rowCount << 1, levels);
+    levels.write(0);
+    var page = new ByteArrayOutputStream();
+    BytesUtils.writeIntLittleEndian(page, levels.size());
+    levels.writeTo(page);
+
+    long start = output.getByteCount();
+    converter.writeDataPageV1Header(
+        page.size(), page.size(), (int) rowCount, RLE, RLE, PLAIN, output);
+    page.writeTo(output);
+    long size = output.getByteCount() - start;
+
+    Statistics<?> statistics = Statistics.createStats(chunk.getPrimitiveType());
+    statistics.incrementNumNulls(rowCount);
+    return ColumnChunkMetaData.get(
+        chunk.getPath(),
+        chunk.getPrimitiveType(),
+        UNCOMPRESSED,
+        null,
+        Set.of(PLAIN, RLE),
+        statistics,
+        start,
+        0,
+        rowCount,
+        size,
+        size);
+  }
 }
@@ -1,8 +1,10 @@
 package org.molgenis.armadillo.storage;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
+import org.apache.parquet.io.InputFile;
 import org.springframework.http.MediaType;
 
 public interface StorageService {
@@ -20,6 +22,31 @@ public interface StorageService {
 
   InputStream load(String bucketName, String objectName);
 
+  ObjectMetadata getObjectMetadata(String bucketName, String objectName);
+
+  /** Writes a range of an object to a stream, without holding the range in memory. */
+  void transfer(
+      String bucketName, String objectName, long offset, long length, OutputStream outputStream);
+
+  /** Copies an object within a bucket without downloading it. */
+  void copy(String bucketName, String sourceObjectName, String objectName);
+
+  /** Moves an object within a bucket without downloading it. */
+  void move(String bucketName, String sourceObjectName, String objectName);
+
+  /**
+   * Concatenates objects, in order, into a new object without downloading them first. The sources
+   * are left in place.
+   */
+  void compose(
+      String sourceBucketName,
+      List<String> sourceObjectNames,
+      String bucketName,
+      String objectName);
+
+  /** Random access to an object, for reading parts of it without loading all of it. */
+  InputFile getInputFile(String bucketName, String objectName);
+
   List<Map<String, String>> preview(
       String bucketName, String objectName, int rowLimit, int columnLimit);
 
@@ -0,0 +1,28 @@
+package org.molgenis.armadillo.storage;
+
+import java.util.List;
+
+/**
+ * The layout of a table, as read from the footer of its parquet file.
+ *
+ * @param rowCount The number of rows in the table
+ * @param columns The top level columns of the table, in order
+ * @param rowGroups The row groups the rows are stored in, in order
+ */
+public record TableMetadata(long rowCount, List<Column> columns, List<RowGroup> rowGroups) {
+
+  /**
+   * @param name The name of the column
+   * @param type The logical type of the column (e.g. STRING), or its physical type if it has none
+   * @param compressedSize The number of bytes the column takes in the file
+   * @param uncompressedSize The number of bytes the column takes when uncompressed
+   */
+  public record Column(String name, String type, long compressedSize, long uncompressedSize) {}
+
+  /**
+   * @param rowCount The number of rows in the row group
+   * @param compressedSize The number of bytes the row group takes in the file
+   * @param uncompressedSize The number of bytes the row group takes when uncompressed
+   */
+  public record RowGroup(long rowCount, long compressedSize, long uncompressedSize) {}
+}
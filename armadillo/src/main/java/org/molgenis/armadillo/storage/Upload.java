@@ -0,0 +1,14 @@
+package org.molgenis.armadillo.storage;
+
+import java.time.Instant;
+import java.util.SortedMap;
+
+/**
+ * @param id The id of the upload, used to address it in later requests
+ * @param project The project the object is uploaded to
+ * @param object The fully qualified name of the object (e.g. core/nonrep.parquet)
+ * @param created The date & time the upload was started
+ * @param parts The size in bytes of each part received so far, by part number
+ */
+public record Upload(
+    String id, String project, String object, Instant created, SortedMap<Integer, Long> parts) {}
@@ -0,0 +1,296 @@
+package org.molgenis.armadillo.storage;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.molgenis.armadillo.storage.ArmadilloStorageService.SHARED_PREFIX;
+import static org.molgenis.armadillo.storage.ArmadilloStorageService.SYSTEM;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CountingInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Pattern;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.molgenis.armadillo.exceptions.DuplicateObjectException;
+import org.molgenis.armadillo.exceptions.InvalidUploadException;
+import org.molgenis.armadillo.exceptions.UnknownUploadException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+/**
+ * Uploads objects in parts, so that large objects can be sent in parallel and a failed part can be
+ * sent again without starting over. Each part is stored as a temporary object in the system bucket
+ * and completing the upload composes them into the object on the storage itself. Uploads that
+ * aren't completed within {@code storage.upload.expiry} are removed, along with their parts.
+ *
+ * <p>Each upload has a manifest next to its parts, so that the uploads in progress are picked up
+ * again after a restart. Every {@code storage.upload.sweep-interval}, expired uploads are removed,
+ * and so are parts and manifests older than the expiry that belong to no upload, e.g. because the
+ * server stopped while they were written. The parts and manifests are named {@code
+ * upload-<id>-<part>} and {@code upload-<id>.json}, at the top of the system bucket, because
+ * listing MinIO buckets doesn't descend into folders.
+ */
+@Service
+public class UploadService {
+
+  static final String EXPIRY_PROPERTY = "storage.upload.expiry";
+  static final String SWEEP_INTERVAL_PROPERTY = "storage.upload.sweep-interval";
+  static final String UPLOAD_PREFIX = "upload-";
+  /** The storage can only compose parts of at least this size, except for the last one. */
+  static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+  static final int MAX_PARTS = 10000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(UploadService.class);
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final Pattern UPLOAD_FILE =
+      Pattern.compile(UPLOAD_PREFIX + "([0-9a-f-]{36})(?:\\.json|-(\\d{5}))");
+
+  private final ArmadilloStorageService armadilloStorage;
+  private final StorageService storageService;
+  private final Duration expiry;
+  private final Duration sweepInterval;
+  private final ConcurrentMap<String, Upload> uploads = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService executor =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            var thread = new Thread(runnable, "upload-sweeper");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  public UploadService(
+      ArmadilloStorageService armadilloStorage,
+      StorageService storageService,
+      @Value("${" + EXPIRY_PROPERTY + ":24h}") Duration expiry,
+      @Value("${" + SWEEP_INTERVAL_PROPERTY + ":1h}") Duration sweepInterval) {
+    this.armadilloStorage = armadilloStorage;
+    this.storageService = storageService;
+    this.expiry = expiry;
+    this.sweepInterval = sweepInterval;
+  }
+
+  @PostConstruct
+  public void start() {
+    try {
+      restoreUploads();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to restore the uploads in progress", e);
+    }
+    if (!sweepInterval.isZero()) {
+      executor.scheduleWithFixedDelay(
+          this::sweep, sweepInterval.toMillis(), sweepInterval.toMillis(), MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public Upload startUpload(String project, String object) {
+    removeExpiredUploads();
+    throwIfDuplicate(project, object);
+    var upload =
+        new Upload(
+            UUID.randomUUID().toString(),
+            project,
+            object,
+            Instant.now(),
+            new ConcurrentSkipListMap<>());
+    saveManifest(upload);
+    uploads.put(upload.id(), upload);
+    return upload;
+  }
+
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public Upload getUpload(String project, String uploadId) {
+    var upload = uploads.get(uploadId);
+    if (upload == null || !upload.project().equals(project)) {
+      throw new UnknownUploadException(project, uploadId);
+    }
+    return upload;
+  }
+
+  /** Stores a part of an upload. Sending a part again replaces it. */
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public void addPart(String project, String uploadId, int partNumber, InputStream inputStream) {
+    var upload = getUpload(project, uploadId);
+    if (partNumber < 1 || partNumber > MAX_PARTS) {
+      throw new InvalidUploadException(
+          uploadId, format("part number %d is not between 1 and %d", partNumber, MAX_PARTS));
+    }
+    var countingInputStream = new CountingInputStream(inputStream);
+    storageService.save(
+        countingInputStream, SYSTEM, getPartName(uploadId, partNumber), APPLICATION_OCTET_STREAM);
+    upload.parts().put(partNumber, countingInputStream.getCount());
+  }
+
+  /** Composes the parts into the object and removes the upload. */
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public Upload completeUpload(String project, String uploadId) {
+    var upload = getUpload(project, uploadId);
+    var parts = upload.parts();
+    if (parts.isEmpty() || parts.lastKey() != parts.size()) {
+      throw new InvalidUploadException(uploadId, "parts should be numbered 1 to n without gaps");
+    }
+    for (var part : parts.headMap(parts.lastKey()).entrySet()) {
+      if (part.getValue() < MIN_PART_SIZE) {
+        throw new InvalidUploadException(
+            uploadId,
+            format(
+                "part %d has %d bytes, all parts but the last need at least %d",
+                part.getKey(), part.getValue(), MIN_PART_SIZE));
+      }
+    }
+    throwIfDuplicate(project, upload.object());
+
+    var partNames =
+        parts.keySet().stream().map(partNumber -> getPartName(uploadId, partNumber)).toList();
+    storageService.compose(SYSTEM, partNames, SHARED_PREFIX + project, upload.object());
+    removeUpload(upload);
+    return upload;
+  }
+
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public void abortUpload(String project, String uploadId) {
+    removeUpload(getUpload(project, uploadId));
+  }
+
+  private void throwIfDuplicate(String project, String object) {
+    if (armadilloStorage.hasObject(project, object)) {
+      throw new DuplicateObjectException(project, object);
+    }
+  }
+
+  void sweep() {
+    try {
+      removeExpiredUploads();
+      removeOrphans();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to sweep the uploads", e);
+    }
+  }
+
+  /** Picks up the uploads whose manifest was stored, with the parts that were stored. */
+  void restoreUploads() {
+    Map<String, ConcurrentSkipListMap<Integer, Long>> parts = new HashMap<>();
+    List<String> manifests = new ArrayList<>();
+    for (var file : listUploadFiles()) {
+      var matcher = UPLOAD_FILE.matcher(file.name());
+      matcher.matches();
+      var id = matcher.group(1);
+      if (matcher.group(2) == null) {
+        manifests.add(id);
+      } else {
+        parts
+            .computeIfAbsent(id, key -> new ConcurrentSkipListMap<>())
+            .put(Integer.parseInt(matcher.group(2)), file.size());
+      }
+    }
+    for (var id : manifests) {
+      try (var inputStream = storageService.load(SYSTEM, getManifestName(id))) {
+        var manifest = objectMapper.readValue(inputStream, Manifest.class);
+        var upload =
+            new Upload(
+                id,
+                manifest.project(),
+                manifest.object(),
+                Instant.ofEpochMilli(manifest.created()),
+                parts.getOrDefault(id, new ConcurrentSkipListMap<>()));
+        uploads.putIfAbsent(id, upload);
+      } catch (IOException | RuntimeException e) {
+        LOGGER.warn("Couldn't restore upload {}, it will be removed when it expires", id, e);
+      }
+    }
+  }
+
+  /** Removes the parts and manifests older than the expiry that belong to no upload. */
+  private void removeOrphans() {
+    var expired = Instant.now().minus(expiry);
+    for (var file : listUploadFiles()) {
+      var matcher = UPLOAD_FILE.matcher(file.name());
+      matcher.matches();
+      if (!uploads.containsKey(matcher.group(1))
+          && file.lastModified().toInstant().isBefore(expired)) {
+        LOGGER.info("Removing orphaned upload file {}", file.name());
+        storageService.delete(SYSTEM, file.name());
+      }
+    }
+  }
+
+  private List<ObjectMetadata> listUploadFiles() {
+    if (!storageService.listBuckets().contains(SYSTEM)) {
+      return List.of();
+    }
+    return storageService.listObjects(SYSTEM).stream()
+        .filter(file -> UPLOAD_FILE.matcher(file.name()).matches())
+        .toList();
+  }
+
+  private void saveManifest(Upload upload) {
+    try {
+      var manifest =
+          new Manifest(upload.project(), upload.object(), upload.created().toEpochMilli());
+      storageService.save(
+          new ByteArrayInputStream(objectMapper.writeValueAsBytes(manifest)),
+          SYSTEM,
+          getManifestName(upload.id()),
+          APPLICATION_JSON);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void removeExpiredUploads() {
+    var expired = Instant.now().minus(expiry);
+    uploads.values().stream()
+        .filter(upload -> upload.created().isBefore(expired))
+        .forEach(
+            upload -> {
+              LOGGER.info("Removing expired upload {} of {}", upload.id(), upload.object());
+              removeUpload(upload);
+            });
+  }
+
+  private void removeUpload(Upload upload) {
+    if (uploads.remove(upload.id(), upload)) {
+      List.copyOf(upload.parts().keySet())
+          .forEach(
+              partNumber -> storageService.delete(SYSTEM, getPartName(upload.id(), partNumber)));
+      storageService.delete(SYSTEM, getManifestName(upload.id()));
+    }
+  }
+
+  private static String getPartName(String uploadId, int partNumber) {
+    return format("%s%s-%05d", UPLOAD_PREFIX, uploadId, partNumber);
+  }
+
+  private static String getManifestName(String uploadId) {
+    return UPLOAD_PREFIX + uploadId + ".json";
+  }
+
+  /** What is stored of an upload, besides its parts. */
+  record Manifest(String project, String object, long created) {}
+}
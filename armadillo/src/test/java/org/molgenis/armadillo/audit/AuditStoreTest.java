@@ -0,0 +1,187 @@
+package org.molgenis.armadillo.audit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.audit.AuditEvent;
+
+@ExtendWith(MockitoExtension.class)
+class AuditStoreTest {
+
+  @TempDir Path tempDir;
+  @Mock Clock clock;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final Instant yesterday = Instant.parse("2022-10-05T23:59:00Z");
+  private final Instant today = Instant.parse("2022-10-06T11:35:02Z");
+
+  private Path logFile() {
+    return tempDir.resolve("audit.log");
+  }
+
+  private AuditStore createStore() {
+    return new AuditStore(
+        logFile(), tempDir.resolve("audit"), 1000, Duration.ofDays(31), clock, meterRegistry);
+  }
+
+  /** A closed writer writes events right away. */
+  private AuditWriter createWriter(AuditStore store) throws IOException, InterruptedException {
+    var writer = new AuditWriter(logFile(), 10, Duration.ofHours(1), false, store, meterRegistry);
+    writer.close();
+    store.setWriter(writer);
+    return writer;
+  }
+
+  private static AuditEvent event(Instant timestamp, String principal, String project) {
+    return new AuditEvent(
+        timestamp, principal, "LOAD_TABLE", Map.of("project", project, "sessionId", "abc"));
+  }
+
+  /** Events that are read back from the audit file are new objects, so compare their lines. */
+  private static List<Map<String, Object>> json(List<AuditEvent> events) {
+    return events.stream().map(AuditWriter::toJson).toList();
+  }
+
+  @Test
+  void testFindFilters() throws IOException, InterruptedException {
+    when(clock.instant()).thenReturn(today.plusSeconds(10));
+    var store = createStore();
+    var writer = createWriter(store);
+    var first = event(today, "bofke", "lifecycle");
+    var second = event(today.plusSeconds(1), "bofke", "gecko");
+    var third = event(today.plusSeconds(2), "jan", "lifecycle");
+    List.of(first, second, third).forEach(writer::append);
+
+    assertEquals(
+        json(List.of(third, first)),
+        json(store.find(new AuditQuery(null, null, null, null, "lifecycle", null), 0, 10)));
+    assertEquals(
+        json(List.of(second)),
+        json(store.find(new AuditQuery(null, null, "bofke", null, "gecko", null), 0, 10)));
+    assertEquals(
+        json(List.of(second)),
+        json(
+            store.find(
+                new AuditQuery(null, today.plusSeconds(2), null, null, null, "abc"), 0, 1)));
+    assertEquals(
+        json(List.of(first)),
+        json(
+            store.find(
+                new AuditQuery(null, today.plusSeconds(2), null, null, null, "abc"), 1, 10)));
+    assertEquals(
+        List.of(), store.find(new AuditQuery(null, null, null, "EXECUTE", null, null), 0, 10));
+    store.close();
+  }
+
+  @Test
+  void testAddAppendsToWriter() throws IOException, InterruptedException {
+    when(clock.instant()).thenReturn(today.plusSeconds(10));
+    var store = createStore();
+    createWriter(store);
+    var event = event(today, "bofke", "lifecycle");
+
+    store.add(event);
+
+    assertEquals(1, Files.readAllLines(logFile()).size());
+    assertEquals(
+        json(List.of(event)),
+        json(store.find(new AuditQuery(null, null, "bofke", null, null, null), 0, 10)));
+    store.close();
+  }
+
+  @Test
+  void testAddWithoutWriterDropsEvent() throws IOException {
+    when(clock.instant()).thenReturn(today.plusSeconds(10));
+    var store = createStore();
+
+    assertDoesNotThrow(() -> store.add(event(today, "bofke", "lifecycle")));
+
+    assertFalse(Files.exists(logFile()));
+    assertEquals(List.of(), store.find(new AuditQuery(null, null, null, null, null, null), 0, 10));
+    store.close();
+  }
+
+  @Test
+  void testSavesIndexesAndReloads() throws IOException, InterruptedException {
+    when(clock.instant()).thenReturn(today.plusSeconds(10));
+    var store = createStore();
+    var writer = createWriter(store);
+    writer.append(event(yesterday, "bofke", "lifecycle"));
+    writer.append(event(today, "bofke", "lifecycle"));
+    assertTrue(Files.exists(tempDir.resolve("audit/audit-2022-10-05.idx")));
+    store.close();
+    assertTrue(Files.exists(tempDir.resolve("audit/audit-2022-10-06.idx")));
+
+    var reopened = createStore();
+    var found = reopened.find(new AuditQuery(null, null, "bofke", null, null, null), 0, 10);
+    assertEquals(2, found.size());
+    assertEquals(today, found.get(0).getTimestamp());
+    assertEquals(yesterday, found.get(1).getTimestamp());
+    assertEquals(Map.of("project", "lifecycle", "sessionId", "abc"), found.get(1).getData());
+    assertEquals(
+        List.of(),
+        reopened.find(new AuditQuery(null, yesterday, null, null, null, null), 0, 10));
+    reopened.close();
+  }
+
+  @Test
+  void testIndexesExistingAuditFile() throws IOException {
+    when(clock.instant()).thenReturn(today.plusSeconds(10));
+    var objectMapper = new ObjectMapper();
+    var lines = new StringBuilder();
+    for (var event :
+        List.of(event(yesterday, "bofke", "lifecycle"), event(today, "jan", "lifecycle"))) {
+      lines.append(objectMapper.writeValueAsString(AuditWriter.toJson(event))).append('\n');
+    }
+    // the application stopped while writing the last line
+    lines.append("{\"timestamp\":");
+    Files.writeString(logFile(), lines, UTF_8);
+
+    var store = createStore();
+
+    assertTrue(Files.exists(tempDir.resolve("audit/audit-2022-10-05.idx")));
+    var found = store.find(new AuditQuery(null, null, null, null, "lifecycle", null), 0, 10);
+    assertEquals(List.of("jan", "bofke"), found.stream().map(AuditEvent::getPrincipal).toList());
+    store.close();
+  }
+
+  @Test
+  void testCapsTimeRange() throws IOException, InterruptedException {
+    when(clock.instant()).thenReturn(today.plusSeconds(10));
+    var store =
+        new AuditStore(
+            logFile(), tempDir.resolve("audit"), 1000, Duration.ofHours(1), clock, meterRegistry);
+    var writer = createWriter(store);
+    writer.append(event(yesterday, "bofke", "lifecycle"));
+    writer.append(event(today, "bofke", "lifecycle"));
+
+    var found = store.find(new AuditQuery(null, null, null, null, null, null), 0, 10);
+    assertEquals(List.of(today), found.stream().map(AuditEvent::getTimestamp).toList());
+    found =
+        store.find(
+            new AuditQuery(Instant.EPOCH, yesterday.plusSeconds(1), null, null, null, null),
+            0,
+            10);
+    assertEquals(List.of(yesterday), found.stream().map(AuditEvent::getTimestamp).toList());
+    store.close();
+  }
+}
@@ -0,0 +1,94 @@
+package org.molgenis.armadillo.audit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.audit.AuditEvent;
+
+class AuditWriterTest {
+
+  @TempDir Path tempDir;
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final List<long[]> written = new ArrayList<>();
+  private final AuditWriter.Listener listener = (events, offsets) -> written.add(offsets);
+
+  private static AuditEvent event(String type) {
+    return new AuditEvent(
+        Instant.parse("2021-01-06T11:35:02.781470Z"),
+        "principal",
+        type,
+        Map.of("detail", Map.of("foo", "bar")));
+  }
+
+  @Test
+  void testWritesJsonLines() throws IOException, InterruptedException {
+    var path = tempDir.resolve("logs/audit.log");
+    var writer = new AuditWriter(path, 10, Duration.ofMillis(10), true, listener, meterRegistry);
+
+    writer.append(event("TYPE"));
+    writer.close();
+
+    assertEquals(
+        List.of(
+            "{\"timestamp\":\"2021-01-06T11:35:02.781470Z\",\"principal\":\"principal\",\"type\":\"TYPE\",\"data\":{\"detail\":{\"foo\":\"bar\"}}}"),
+        Files.readAllLines(path));
+    assertEquals(1, written.size());
+    assertArrayEquals(new long[] {0, Files.size(path)}, written.get(0));
+  }
+
+  @Test
+  void testEndsIncompleteLine() throws IOException, InterruptedException {
+    var path = tempDir.resolve("audit.log");
+    Files.writeString(path, "{\"timestamp\":");
+    var writer = new AuditWriter(path, 10, Duration.ofHours(1), false, listener, meterRegistry);
+
+    writer.append(event("TYPE"));
+    writer.close();
+
+    var lines = Files.readAllLines(path);
+    assertEquals(2, lines.size());
+    assertEquals(14, written.get(0)[0]);
+    assertEquals(Files.size(path), written.get(0)[1]);
+  }
+
+  @Test
+  void testWritesBacklogOnClose() throws IOException, InterruptedException {
+    var path = tempDir.resolve("audit.log");
+    var writer = new AuditWriter(path, 10, Duration.ofHours(1), false, listener, meterRegistry);
+
+    writer.append(event("FIRST"));
+    writer.append(event("SECOND"));
+    assertEquals(2.0, meterRegistry.get("armadillo.audit.backlog").gauge().value());
+    writer.close();
+    writer.append(event("THIRD"));
+
+    var lines = Files.readAllLines(path);
+    assertEquals(3, lines.size());
+    assertEquals(0.0, meterRegistry.get("armadillo.audit.backlog").gauge().value());
+  }
+
+  @Test
+  void testDropsEventsBeyondCapacity() throws IOException, InterruptedException {
+    var path = tempDir.resolve("audit.log");
+    var writer = new AuditWriter(path, 2, Duration.ofHours(1), false, listener, meterRegistry);
+
+    writer.append(event("FIRST"));
+    writer.append(event("SECOND"));
+    writer.append(event("THIRD"));
+    writer.close();
+
+    assertEquals(2, Files.readAllLines(path).size());
+    assertEquals(1.0, meterRegistry.get("armadillo.audit.dropped").counter().count());
+  }
+}
@@ -0,0 +1,67 @@
+package org.molgenis.armadillo.command;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.molgenis.armadillo.exceptions.TooManyCommandsException;
+
+class CommandAdmissionTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CommandAdmission admission = new CommandAdmission(meterRegistry, 2, 2, 2, 3);
+
+  @Test
+  void testAdmitPerUser() {
+    admission.admit("henk", "default");
+    var release = admission.admit("henk", "default");
+
+    assertThrows(TooManyCommandsException.class, () -> admission.admit("henk", "default"));
+    assertDoesNotThrow(() -> admission.admit("piet", "default"));
+
+    release.run();
+    assertDoesNotThrow(() -> admission.admit("henk", "default"));
+    assertEquals(1, rejected("user"));
+  }
+
+  @Test
+  void testAdmitPerProfile() {
+    admission.admit("henk", "default");
+    admission.admit("piet", "default");
+    admission.admit("jan", "default");
+
+    assertThrows(TooManyCommandsException.class, () -> admission.admit("kees", "default"));
+    assertDoesNotThrow(() -> admission.admit("kees", "omics"));
+    assertEquals(1, rejected("profile"));
+  }
+
+  @Test
+  void testAdmitInTotal() {
+    admission.admit("henk", "default");
+    admission.admit("piet", "default");
+    admission.admit("jan", "omics");
+    admission.admit("kees", "omics");
+
+    assertThrows(TooManyCommandsException.class, () -> admission.admit("klaas", "xenon"));
+    assertEquals(1, rejected("total"));
+    assertEquals(4, meterRegistry.get("armadillo.commands.pending").gauge().value());
+  }
+
+  @Test
+  void testReleaseIsIdempotent() {
+    var release = admission.admit("henk", "default");
+    admission.admit("henk", "default");
+
+    release.run();
+    release.run();
+
+    assertEquals(1, admission.getCommands());
+    assertDoesNotThrow(() -> admission.admit("henk", "default"));
+  }
+
+  private double rejected(String limit) {
+    return meterRegistry.get("armadillo.commands.rejected").tag("limit", limit).counter().count();
+  }
+}
@@ -0,0 +1,75 @@
+package org.molgenis.armadillo.command;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.molgenis.armadillo.command.CommandMetrics.Kind.LOAD_TABLE;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.InputStreamResource;
+
+class CommandMetricsTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CommandMetrics metrics = new CommandMetrics(meterRegistry);
+
+  @Test
+  void testRecordCommand() {
+    metrics.recordCommand(
+        "default", LOAD_TABLE, true, Duration.ofSeconds(1), Duration.ofSeconds(3));
+    metrics.recordCommand("default", LOAD_TABLE, false, Duration.ofSeconds(2), null);
+
+    var run = meterRegistry.get("armadillo.commands.run").tag("outcome", "success").timer();
+    assertEquals(1, run.count());
+    assertEquals(3, run.totalTime(SECONDS));
+    assertEquals(1, meterRegistry.find("armadillo.commands.run").timers().size());
+    assertEquals(2, meterRegistry.find("armadillo.commands.queued").timers().size());
+  }
+
+  @Test
+  void testMeterTransfer() throws IOException {
+    var resource =
+        metrics.meterTransfer(
+            new InputStreamResource(new ByteArrayInputStream(new byte[1000])),
+            "default",
+            LOAD_TABLE);
+
+    try (var inputStream = resource.getInputStream()) {
+      assertEquals(1000, inputStream.readAllBytes().length);
+    }
+
+    var size =
+        meterRegistry
+            .get("armadillo.commands.transfer.size")
+            .tags("profile", "default", "kind", "loadTable", "outcome", "success")
+            .summary();
+    assertEquals(1, size.count());
+    assertEquals(1000, size.totalAmount());
+    assertEquals(1, meterRegistry.get("armadillo.commands.transfer.duration").timer().count());
+    assertTrue(
+        meterRegistry.get("armadillo.commands.transfer.throughput").summary().totalAmount() > 0);
+  }
+
+  @Test
+  void testMeterTransferClosedEarly() throws IOException {
+    var resource =
+        metrics.meterTransfer(
+            new InputStreamResource(new ByteArrayInputStream(new byte[1000])),
+            "default",
+            LOAD_TABLE);
+
+    var inputStream = resource.getInputStream();
+    assertEquals(10, inputStream.readNBytes(10).length);
+    inputStream.close();
+    inputStream.close();
+
+    var size =
+        meterRegistry.get("armadillo.commands.transfer.size").tag("outcome", "failure").summary();
+    assertEquals(1, size.count());
+    assertEquals(10, size.totalAmount());
+  }
+}
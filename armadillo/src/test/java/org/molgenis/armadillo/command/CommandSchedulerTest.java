@@ -0,0 +1,136 @@
+package org.molgenis.armadillo.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+class CommandSchedulerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final Queue<Runnable> executed = new ArrayDeque<>();
+  private final List<String> order = new ArrayList<>();
+  private final CommandScheduler scheduler =
+      new CommandScheduler(executed::add, meterRegistry, 1, 4);
+
+  @Test
+  void testMaxRunningPerProfile() {
+    submit("default", "henk", false, "first");
+    submit("default", "henk", false, "second");
+    submit("omics", "henk", false, "other profile");
+
+    assertEquals(2, executed.size());
+    assertEquals(1, scheduler.getRunning("default"));
+    runExecuted();
+
+    assertEquals(List.of("first", "other profile", "second"), order);
+    assertEquals(0, scheduler.getRunning("default"));
+  }
+
+  @Test
+  void testInteractiveGoesFirst() {
+    submit("default", "henk", false, "load");
+    submit("default", "henk", false, "assign");
+    submit("default", "piet", false, "load");
+    submit("default", "jan", true, "execute");
+
+    runExecuted();
+
+    assertEquals(List.of("load", "execute", "load", "assign"), order);
+  }
+
+  @Test
+  void testFairShareBetweenUsers() {
+    submit("default", "henk", false, "henk 1");
+    submit("default", "henk", false, "henk 2");
+    submit("default", "henk", false, "henk 3");
+    submit("default", "piet", false, "piet 1");
+    submit("default", "piet", false, "piet 2");
+
+    runExecuted();
+
+    assertEquals(List.of("henk 1", "piet 1", "henk 2", "piet 2", "henk 3"), order);
+    assertEquals(5, meterRegistry.get("armadillo.commands.wait").timer().count());
+  }
+
+  @Test
+  void testRejected() {
+    var rejection = new TaskRejectedException("full");
+    var rejectingScheduler =
+        new CommandScheduler(
+            task -> {
+              throw rejection;
+            },
+            meterRegistry,
+            1,
+            4);
+    var rejected = new AtomicReference<TaskRejectedException>();
+
+    rejectingScheduler.submit("default", "henk", true, () -> order.add("run"), rejected::set);
+
+    assertSame(rejection, rejected.get());
+    assertEquals(List.of(), order);
+    assertEquals(0, rejectingScheduler.getRunning("default"));
+  }
+
+  @Test
+  void testRejectedRetriedWhenCommandFinishes() {
+    var full = new AtomicBoolean();
+    var accepted = new ArrayDeque<Runnable>();
+    var fullScheduler =
+        new CommandScheduler(
+            task -> {
+              if (full.get()) {
+                throw new TaskRejectedException("full");
+              }
+              accepted.add(task);
+            },
+            meterRegistry,
+            2,
+            4);
+    var rejected = new AtomicReference<TaskRejectedException>();
+
+    fullScheduler.submit("default", "henk", true, () -> order.add("first"), rejected::set);
+    full.set(true);
+    fullScheduler.submit("default", "henk", true, () -> order.add("second"), rejected::set);
+    fullScheduler.submit("omics", "henk", true, () -> order.add("other profile"), rejected::set);
+
+    assertEquals(1, fullScheduler.getRunning("default"));
+    assertEquals(0, fullScheduler.getRunning("omics"));
+    full.set(false);
+    Runnable task;
+    while ((task = accepted.poll()) != null) {
+      task.run();
+    }
+
+    assertNull(rejected.get());
+    assertEquals(List.of("first", "second", "other profile"), order);
+  }
+
+  private void submit(String profile, String user, boolean interactive, String label) {
+    scheduler.submit(
+        profile,
+        user,
+        interactive,
+        () -> order.add(label),
+        e -> {
+          throw e;
+        });
+  }
+
+  private void runExecuted() {
+    Runnable task;
+    while ((task = executed.poll()) != null) {
+      task.run();
+    }
+  }
+}
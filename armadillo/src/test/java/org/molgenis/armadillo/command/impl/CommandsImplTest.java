@@ -1,24 +1,36 @@
 package org.molgenis.armadillo.command.impl;
 
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.molgenis.armadillo.command.CommandMetrics.Kind.EVALUATE;
 import static org.molgenis.armadillo.controller.ArmadilloUtils.GLOBAL_ENV;
 import static org.springframework.web.context.request.RequestAttributes.SCOPE_SESSION;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.InputStream;
 import java.security.Principal;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.command.ArmadilloCommandDTO;
+import org.molgenis.armadillo.command.CommandAdmission;
+import org.molgenis.armadillo.command.CommandMetrics;
+import org.molgenis.armadillo.command.CommandScheduler;
+import org.molgenis.armadillo.exceptions.SessionEvictedException;
+import org.molgenis.armadillo.exceptions.TooManyCommandsException;
 import org.molgenis.armadillo.exceptions.UnknownProfileException;
 import org.molgenis.armadillo.metadata.ProfileConfig;
 import org.molgenis.armadillo.metadata.ProfileService;
@@ -32,9 +44,10 @@ import org.molgenis.r.service.PackageService;
 import org.molgenis.r.service.ProcessService;
 import org.molgenis.r.service.RExecutorService;
 import org.rosuda.REngine.REXP;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 
@@ -53,8 +66,10 @@ class CommandsImplTest {
   @Mock InputStream inputStream;
   @Mock RServerResult rexp;
   @Mock Principal principal;
+  @Mock SessionReaper reaper;
 
   static ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
   CommandsImpl commands;
 
   @BeforeAll
@@ -71,10 +86,15 @@ class CommandsImplTest {
             armadilloStorage,
             packageService,
             rExecutorService,
-            taskExecutor,
+            new CommandScheduler(taskExecutor, new SimpleMeterRegistry(), 4, 4),
             connectionFactory,
             processService,
-            profileService);
+            profileService,
+            new CommandAdmission(new SimpleMeterRegistry(), 2, 2, 2, 2),
+            reaper,
+            new CommandMetrics(meterRegistry),
+            Duration.ofMinutes(10),
+            2);
   }
 
   @Test
@@ -87,12 +107,97 @@ class CommandsImplTest {
             return rexp;
           }
         };
-    CompletableFuture<RServerResult> result = commands.schedule(command);
+    CompletableFuture<RServerResult> result = commands.schedule(EVALUATE, command);
     assertSame(rexp, result.get());
     assertEquals(Optional.of(command.asDto()), commands.getLastCommand());
     assertSame(result, commands.getLastExecution().get());
   }
 
+  @Test
+  void testScheduleRunsCommandsInOrder() throws Exception {
+    var started = new CountDownLatch(1);
+    var proceed = new CountDownLatch(1);
+    var order = Collections.synchronizedList(new ArrayList<String>());
+    var first =
+        commands.schedule(
+            EVALUATE,
+            new ArmadilloCommandImpl<Void>("first", false) {
+              @Override
+              protected Void doWithConnection(RServerConnection connection) {
+                started.countDown();
+                awaitUninterruptibly(proceed);
+                order.add("first");
+                return null;
+              }
+            });
+    var second =
+        commands.schedule(
+            EVALUATE,
+            new ArmadilloCommandImpl<Void>("second", false) {
+              @Override
+              protected Void doWithConnection(RServerConnection connection) {
+                order.add("second");
+                return null;
+              }
+            });
+
+    started.await();
+    assertEquals("PENDING", commands.getLastCommand().orElseThrow().status().name());
+    proceed.countDown();
+    second.get();
+
+    assertTrue(first.isDone());
+    assertEquals(List.of("first", "second"), order);
+  }
+
+  @Test
+  void testScheduleRejectsTooManyCommands() throws Exception {
+    var proceed = new CountDownLatch(1);
+    commands.schedule(EVALUATE, blockedCommand(proceed));
+    var second = commands.schedule(EVALUATE, blockedCommand(proceed));
+
+    assertThrows(TooManyCommandsException.class, () -> commands.evaluate("ls()"));
+
+    proceed.countDown();
+    second.get();
+    when(rExecutorService.execute("ls()", rConnection)).thenReturn(rexp);
+    assertSame(rexp, commands.evaluate("ls()").get());
+  }
+
+  private ArmadilloCommandImpl<Void> blockedCommand(CountDownLatch proceed) {
+    return new ArmadilloCommandImpl<>("blocked", false) {
+      @Override
+      protected Void doWithConnection(RServerConnection connection) {
+        awaitUninterruptibly(proceed);
+        return null;
+      }
+    };
+  }
+
+  @Test
+  void testGetCommand() throws Exception {
+    var result = commands.evaluate("ls()");
+    result.get();
+
+    var command = commands.getCommand(result.getCommandId()).orElseThrow();
+    assertEquals("ls()", command.expression());
+    assertEquals(Optional.of(command), commands.getCommand(command.id()));
+    assertSame(result, commands.getExecution(command.id()).orElseThrow());
+    assertEquals(List.of(command), commands.getCommands());
+  }
+
+  @Test
+  void testGetCommandRetainsMostRecent() throws Exception {
+    var first = commands.evaluate("first");
+    commands.evaluate("second").get();
+    commands.evaluate("third").get();
+
+    assertEquals(Optional.empty(), commands.getCommand(first.getCommandId()));
+    assertEquals(
+        List.of("second", "third"),
+        commands.getCommands().stream().map(ArmadilloCommandDTO::expression).toList());
+  }
+
   @Test
   void testScheduleFailingCommand() {
     IllegalStateException exception = new IllegalStateException("Error");
@@ -105,11 +210,42 @@ class CommandsImplTest {
             throw exception;
           }
         };
-    CompletableFuture<REXP> result = commands.schedule(command);
+    CompletableFuture<REXP> result = commands.schedule(EVALUATE, command);
     assertSame(
         exception, assertThrows(ExecutionException.class, result::get).getCause().getCause());
   }
 
+  @Test
+  void testScheduleRecordsCommand() throws Exception {
+    commands.assign("D", "E").get();
+    var failed = commands.schedule(EVALUATE, failingCommand());
+    assertThrows(ExecutionException.class, failed::get);
+
+    assertEquals(
+        1,
+        meterRegistry
+            .get("armadillo.commands.run")
+            .tags("profile", "default", "kind", "assign", "outcome", "success")
+            .timer()
+            .count());
+    assertEquals(
+        1,
+        meterRegistry
+            .get("armadillo.commands.queued")
+            .tags("kind", "evaluate", "outcome", "failure")
+            .timer()
+            .count());
+  }
+
+  private ArmadilloCommandImpl<Void> failingCommand() {
+    return new ArmadilloCommandImpl<>("failing", false) {
+      @Override
+      protected Void doWithConnection(RServerConnection connection) {
+        throw new IllegalStateException("Error");
+      }
+    };
+  }
+
   @Test
   void testAssign() throws Exception {
     commands.assign("D", "E").get();
@@ -124,6 +260,16 @@ class CommandsImplTest {
     assertSame(rexp, commands.evaluate("ls()").get());
   }
 
+  private ArmadilloCommandImpl<Void> blockedCommand(CountDownLatch proceed) {
+    return new ArmadilloCommandImpl<>("blocked", false) {
+      @Override
+      protected Void doWithConnection(RServerConnection connection) {
+        awaitUninterruptibly(proceed);
+        return null;
+      }
+    };
+  }
+
   @Test
   void testSaveWorkspace() throws Exception {
     doAnswer(
@@ -146,19 +292,20 @@ class CommandsImplTest {
     commands.loadWorkspace(principal, "core").get();
 
     verify(rExecutorService)
-        .loadWorkspace(eq(rConnection), any(InputStreamResource.class), eq(GLOBAL_ENV));
+        .loadWorkspace(eq(rConnection), any(Resource.class), eq(GLOBAL_ENV));
   }
 
   @Test
   void testLoadTable() throws Exception {
-    when(armadilloStorage.loadTable("project", "folder/table")).thenReturn(inputStream);
+    when(armadilloStorage.loadTable("project", "folder/table", List.of("col1", "col2")))
+        .thenReturn(inputStream);
 
     commands.loadTable("D", "project/folder/table", List.of("col1", "col2")).get();
 
     verify(rExecutorService)
         .loadTable(
             eq(rConnection),
-            any(InputStreamResource.class),
+            any(Resource.class),
             eq("project/folder/table.parquet"),
             eq("D"),
             eq(List.of("col1", "col2")));
@@ -191,6 +338,57 @@ class CommandsImplTest {
     verify(rConnection).close();
   }
 
+  @Test
+  void testEvict() throws Exception {
+    assertEquals(Optional.of("default"), commands.getSessionProfile());
+
+    assertEquals(OptionalInt.of(218), commands.evict(false));
+    verify(rConnection).close();
+    assertEquals(Optional.empty(), commands.getSessionProfile());
+    assertEquals(OptionalInt.empty(), commands.evict(false));
+
+    var exception = assertThrows(SessionEvictedException.class, () -> commands.evaluate("ls()"));
+    assertTrue(exception.getMessage().contains("not saved"));
+    when(rExecutorService.execute("ls()", rConnection)).thenReturn(rexp);
+    assertSame(rexp, commands.evaluate("ls()").get());
+    verify(connectionFactory, times(2)).createConnection();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testEvictSavesWorkspace() throws Exception {
+    SecurityContextHolder.getContext()
+        .setAuthentication(new TestingAuthenticationToken("henk", null));
+    try {
+      when(rExecutorService.execute("ls()", rConnection)).thenReturn(rexp);
+      commands.evaluate("ls()").get();
+    } finally {
+      SecurityContextHolder.clearContext();
+    }
+
+    assertEquals(OptionalInt.of(218), commands.evict(true));
+
+    ArgumentCaptor<Consumer<InputStream>> consumer = ArgumentCaptor.forClass(Consumer.class);
+    verify(rExecutorService).saveWorkspace(eq(rConnection), consumer.capture());
+    consumer.getValue().accept(inputStream);
+    var workspace = ArgumentCaptor.forClass(String.class);
+    verify(armadilloStorage).saveWorkspace(eq(inputStream), any(), workspace.capture());
+    assertTrue(workspace.getValue().matches("evicted-\\d{8}-\\d{6}-218"));
+    var exception = assertThrows(SessionEvictedException.class, () -> commands.evaluate("ls()"));
+    assertTrue(exception.getMessage().contains(workspace.getValue()));
+  }
+
+  @Test
+  void testEvictBusy() throws Exception {
+    var proceed = new CountDownLatch(1);
+    var result = commands.schedule(EVALUATE, blockedCommand(proceed));
+
+    assertEquals(OptionalInt.empty(), commands.evict(false));
+
+    proceed.countDown();
+    result.get();
+  }
+
   @Test
   void testLoadResource() throws Exception {
     when(armadilloStorage.loadResource("gecko", "2_1-core-1_0/hpc-resource"))
@@ -202,7 +400,7 @@ class CommandsImplTest {
         .loadResource(
             eq(principal),
             eq(rConnection),
-            any(InputStreamResource.class),
+            any(Resource.class),
             eq("gecko/2_1-core-1_0/hpc-resource.rds"),
             eq("core_nonrep"));
   }
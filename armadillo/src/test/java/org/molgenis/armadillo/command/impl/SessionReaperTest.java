@@ -0,0 +1,124 @@
+package org.molgenis.armadillo.command.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.info.RProcessEndpoint;
+import org.molgenis.r.model.RProcess;
+import org.molgenis.r.service.ProcessService;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+class SessionReaperTest {
+
+  @Mock RProcessEndpoint processEndpoint;
+  @Mock ProcessService processService;
+  @Mock CommandsImpl idleSession;
+  @Mock CommandsImpl activeSession;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void testReapIdleSessions() {
+    var reaper = createReaper(Duration.ofHours(1), DataSize.ofBytes(0), true);
+    when(idleSession.getLastActivity()).thenReturn(Instant.now().minus(Duration.ofHours(2)));
+    when(activeSession.getLastActivity()).thenReturn(Instant.now());
+    when(idleSession.evict(true)).thenReturn(OptionalInt.of(218));
+
+    reaper.reap();
+
+    verify(idleSession).evict(true);
+    verify(activeSession, never()).evict(anyBoolean());
+    assertEquals(1, evicted("idle"));
+  }
+
+  @Test
+  void testReapForMemory() {
+    var reaper = createReaper(Duration.ZERO, DataSize.ofBytes(1000), false);
+    when(idleSession.getLastActivity()).thenReturn(Instant.now().minus(Duration.ofMinutes(5)));
+    when(activeSession.getLastActivity()).thenReturn(Instant.now());
+    when(idleSession.getSessionProfile()).thenReturn(Optional.of("default"));
+    when(activeSession.getSessionProfile()).thenReturn(Optional.of("default"));
+    when(processEndpoint.doWithConnection(eq("default"), any()))
+        .thenReturn(List.of(process(1, 100.0), process(218, 600.0), process(219, 600.0)));
+    when(idleSession.evict(false)).thenReturn(OptionalInt.of(218));
+
+    reaper.reap();
+
+    verify(idleSession).evict(false);
+    verify(activeSession, never()).evict(anyBoolean());
+    assertEquals(1, evicted("memory"));
+  }
+
+  @Test
+  void testReapForMemorySkipsRecentlyUsedSessions() {
+    var reaper = createReaper(Duration.ZERO, DataSize.ofBytes(1000), false);
+    when(idleSession.getLastActivity()).thenReturn(Instant.now().minus(Duration.ofSeconds(30)));
+    when(activeSession.getLastActivity()).thenReturn(Instant.now());
+    when(idleSession.getSessionProfile()).thenReturn(Optional.of("default"));
+    when(activeSession.getSessionProfile()).thenReturn(Optional.of("default"));
+    when(processEndpoint.doWithConnection(eq("default"), any()))
+        .thenReturn(List.of(process(218, 600.0), process(219, 600.0)));
+
+    reaper.reap();
+
+    verify(idleSession, never()).evict(anyBoolean());
+    verify(activeSession, never()).evict(anyBoolean());
+  }
+
+  @Test
+  void testReapForMemorySkipsBusySessions() {
+    var reaper = createReaper(Duration.ZERO, DataSize.ofBytes(1000), false);
+    when(idleSession.getLastActivity()).thenReturn(Instant.now().minus(Duration.ofMinutes(5)));
+    when(activeSession.getLastActivity()).thenReturn(Instant.now().minus(Duration.ofMinutes(2)));
+    when(idleSession.getSessionProfile()).thenReturn(Optional.of("default"));
+    when(activeSession.getSessionProfile()).thenReturn(Optional.of("default"));
+    when(processEndpoint.doWithConnection(eq("default"), any()))
+        .thenReturn(List.of(process(218, 600.0), process(219, 600.0)));
+    when(idleSession.evict(false)).thenReturn(OptionalInt.empty());
+    when(activeSession.evict(false)).thenReturn(OptionalInt.of(219));
+
+    reaper.reap();
+
+    verify(activeSession).evict(false);
+  }
+
+  private SessionReaper createReaper(Duration idleTimeout, DataSize maxMemory, boolean save) {
+    var reaper =
+        new SessionReaper(
+            processEndpoint,
+            processService,
+            meterRegistry,
+            Duration.ZERO,
+            idleTimeout,
+            maxMemory,
+            Duration.ofMinutes(1),
+            save);
+    reaper.register(idleSession);
+    reaper.register(activeSession);
+    return reaper;
+  }
+
+  private static RProcess process(int pid, double rss) {
+    return RProcess.builder().setPid(pid).setRss(rss).build();
+  }
+
+  private double evicted(String reason) {
+    return meterRegistry.get("armadillo.sessions.evicted").tag("reason", reason).counter().count();
+  }
+}
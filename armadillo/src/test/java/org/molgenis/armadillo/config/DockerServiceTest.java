@@ -17,6 +17,7 @@ import com.github.dockerjava.api.model.Container;
 import java.net.SocketException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import javax.ws.rs.ProcessingException;
 import org.junit.jupiter.api.BeforeEach;
@@ -88,6 +89,23 @@ class DockerServiceTest {
     verify(profileService).getByName("default");
   }
 
+  @Test
+  void testGetEnvironmentId() {
+    var inspectContainerResponse = mock(InspectContainerResponse.class);
+    when(dockerClient.inspectContainerCmd("default").exec()).thenReturn(inspectContainerResponse);
+    when(inspectContainerResponse.getImageId()).thenReturn("sha256:1234");
+    when(inspectContainerResponse.getId()).thenReturn("5678");
+
+    assertEquals(Optional.of("sha256:1234/5678"), dockerService.getEnvironmentId("default"));
+  }
+
+  @Test
+  void testGetEnvironmentIdNotFound() {
+    when(dockerClient.inspectContainerCmd("default").exec()).thenThrow(new NotFoundException(""));
+
+    assertEquals(Optional.empty(), dockerService.getEnvironmentId("default"));
+  }
+
   @Test
   void testGetAllProfileStatuses() {
     when(profileService.getAll()).thenReturn(createExampleSettings());
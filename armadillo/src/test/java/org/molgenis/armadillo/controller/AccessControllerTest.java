@@ -26,6 +26,7 @@ import org.molgenis.armadillo.metadata.AccessMetadata;
 import org.molgenis.armadillo.metadata.AccessService;
 import org.molgenis.armadillo.metadata.ProjectDetails;
 import org.molgenis.armadillo.metadata.ProjectPermission;
+import org.molgenis.armadillo.metadata.TableMetadataService;
 import org.molgenis.armadillo.metadata.UserDetails;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -52,6 +53,7 @@ class AccessControllerTest {
   @Autowired MockMvc mockMvc;
   @MockBean JwtDecoder jwtDecoder;
   @MockBean AccessLoader accessLoader;
+  @MockBean TableMetadataService tableMetadata;
   @Autowired AccessService accessService;
 
   @BeforeEach
@@ -190,6 +192,7 @@ class AccessControllerTest {
     var expected = AccessMetadata.create();
     expected.getUsers().put("bofke@email.com", UserDetails.create("bofke@email.com"));
     verify(accessLoader).save(expected);
+    verify(tableMetadata).evictProject("bofkesProject");
   }
 
   @Test
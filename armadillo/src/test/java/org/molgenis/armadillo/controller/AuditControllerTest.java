@@ -0,0 +1,90 @@
+package org.molgenis.armadillo.controller;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.GET_AUDIT_EVENTS;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.github.dockerjava.api.DockerClient;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.molgenis.armadillo.audit.AuditQuery;
+import org.molgenis.armadillo.audit.AuditStore;
+import org.springframework.boot.actuate.audit.AuditEvent;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+
+@WebMvcTest(AuditController.class)
+class AuditControllerTest extends ArmadilloControllerTestBase {
+
+  @MockBean DockerClient dockerClient;
+  @MockBean AuditStore auditStore;
+
+  @Test
+  @WithMockUser(roles = "SU")
+  void testGetEvents() throws Exception {
+    var query =
+        new AuditQuery(
+            Instant.parse("2022-10-01T00:00:00Z"),
+            Instant.parse("2022-11-01T00:00:00Z"),
+            "bofke@email.com",
+            null,
+            "lifecycle",
+            null);
+    var event =
+        new AuditEvent(
+            Instant.parse("2022-10-06T11:35:02Z"),
+            "bofke@email.com",
+            "LOAD_TABLE",
+            Map.of("project", "lifecycle"));
+    when(auditStore.find(query, 2, 3)).thenReturn(List.of(event, event, event));
+
+    mockMvc
+        .perform(
+            get("/audit/events")
+                .param("from", "2022-10-01T00:00:00Z")
+                .param("to", "2022-11-01T00:00:00Z")
+                .param("user", "bofke@email.com")
+                .param("project", "lifecycle")
+                .param("page", "1")
+                .param("size", "2")
+                .session(session))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.events", hasSize(2)))
+        .andExpect(jsonPath("$.events[0].principal").value("bofke@email.com"))
+        .andExpect(jsonPath("$.events[0].type").value("LOAD_TABLE"))
+        .andExpect(jsonPath("$.page").value(1))
+        .andExpect(jsonPath("$.more").value(true));
+
+    verify(auditStore).find(query, 2, 3);
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            GET_AUDIT_EVENTS,
+            Map.of(
+                "sessionId",
+                sessionId,
+                "roles",
+                List.of("ROLE_SU"),
+                "query",
+                query,
+                "page",
+                1)));
+  }
+
+  @Test
+  @WithMockUser
+  void testGetEventsForbidden() throws Exception {
+    mockMvc.perform(get("/audit/events").session(session)).andExpect(status().isForbidden());
+
+    verifyNoInteractions(auditStore);
+  }
+}
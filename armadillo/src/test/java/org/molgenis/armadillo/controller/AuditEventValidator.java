@@ -2,8 +2,11 @@ package org.molgenis.armadillo.controller;
 
 import static org.apache.commons.lang3.builder.EqualsBuilder.reflectionEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.List;
 import org.mockito.ArgumentCaptor;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.listener.AuditApplicationEvent;
@@ -31,4 +34,20 @@ public class AuditEventValidator {
     }
     assertTrue(equal);
   }
+
+  void validateAuditEvents(AuditEvent... expectedEvents) {
+    verify(applicationEventPublisher, times(expectedEvents.length))
+        .publishEvent(eventCaptor.capture());
+    List<AuditApplicationEvent> events = eventCaptor.getAllValues();
+    assertEquals(expectedEvents.length, events.size());
+    for (int i = 0; i < expectedEvents.length; i++) {
+      final var auditEvent = events.get(i).getAuditEvent();
+      final var equal = reflectionEquals(auditEvent, expectedEvents[i]);
+      if (!equal) {
+        System.out.println(auditEvent);
+        System.out.println(expectedEvents[i]);
+      }
+      assertTrue(equal);
+    }
+  }
 }
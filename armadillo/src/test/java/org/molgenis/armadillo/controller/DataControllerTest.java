@@ -3,14 +3,13 @@ package org.molgenis.armadillo.controller;
 import static java.time.Instant.now;
 import static java.util.Collections.emptyList;
 import static java.util.concurrent.CompletableFuture.completedFuture;
-import static java.util.concurrent.CompletableFuture.failedFuture;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
-import static org.molgenis.armadillo.controller.ArmadilloUtils.serializeExpression;
 import static org.molgenis.armadillo.controller.DataController.TABLE_RESOURCE_REGEX;
 import static org.obiba.datashield.core.DSMethodType.AGGREGATE;
 import static org.obiba.datashield.core.DSMethodType.ASSIGN;
@@ -19,19 +18,23 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.github.dockerjava.api.DockerClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.security.Principal;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.molgenis.armadillo.command.ArmadilloCommandDTO;
+import org.molgenis.armadillo.command.CommandExecution;
 import org.molgenis.armadillo.command.Commands;
 import org.molgenis.armadillo.command.Commands.ArmadilloCommandStatus;
 import org.molgenis.armadillo.exceptions.ExpressionException;
+import org.molgenis.armadillo.exceptions.SessionEvictedException;
 import org.molgenis.armadillo.exceptions.UnknownProfileException;
 import org.molgenis.armadillo.model.Workspace;
+import org.molgenis.armadillo.service.CatalogService;
 import org.molgenis.armadillo.service.DSEnvironmentCache;
 import org.molgenis.armadillo.service.ExpressionRewriter;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
@@ -42,15 +45,24 @@ import org.obiba.datashield.core.DSEnvironment;
 import org.obiba.datashield.core.DSMethod;
 import org.obiba.datashield.core.impl.DefaultDSMethod;
 import org.obiba.datashield.r.expr.v2.ParseException;
+import org.rosuda.REngine.REXP;
 import org.rosuda.REngine.REXPDouble;
+import org.rosuda.REngine.REXPInteger;
+import org.rosuda.REngine.REXPGenericVector;
+import org.rosuda.REngine.REXPNull;
 import org.rosuda.REngine.REXPRaw;
+import org.rosuda.REngine.REXPString;
+import org.rosuda.REngine.RList;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(DataController.class)
+@Import({CatalogService.class, RawResults.class, SimpleMeterRegistry.class})
 class DataControllerTest extends ArmadilloControllerTestBase {
 
   private static final RPackage BASE =
@@ -74,6 +86,8 @@ class DataControllerTest extends ArmadilloControllerTestBase {
   @MockBean DockerClient dockerClient;
   @MockBean private ArmadilloStorageService armadilloStorage;
   @MockBean private DSEnvironmentCache environments;
+  @Autowired private CatalogService catalogService;
+  @Autowired private RawResults rawResults;
   @Mock private RServerResult rexp;
   @Mock private DSEnvironment assignEnvironment;
 
@@ -198,7 +212,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
   @Test
   @WithMockUser
   void getGetSymbols() throws Exception {
-    when(commands.evaluate("base::ls()")).thenReturn(completedFuture(rexp));
+    when(commands.evaluate("base::ls()")).thenReturn(completedExecution(rexp));
     when(rexp.asStrings()).thenReturn(new String[] {"D"});
 
     mockMvc
@@ -218,7 +232,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
   @Test
   @WithMockUser
   void deleteSymbol() throws Exception {
-    when(commands.evaluate("base::rm(D)")).thenReturn(completedFuture(null));
+    when(commands.evaluate("base::rm(D)")).thenReturn(completedExecution(null));
     mockMvc.perform(delete("/symbols/D").session(session)).andExpect(status().isOk());
 
     auditEventValidator.validateAuditEvent(
@@ -333,6 +347,54 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     verifyNoInteractions(applicationEventPublisher);
   }
 
+  @Test
+  @WithMockUser
+  void testGetCommand() throws Exception {
+    var id = UUID.randomUUID();
+    ArmadilloCommandDTO command =
+        ArmadilloCommandDTO.builder()
+            .createDate(now())
+            .status(ArmadilloCommandStatus.COMPLETED)
+            .expression("expression")
+            .id(id)
+            .withResult(true)
+            .build();
+    when(commands.getCommand(id)).thenReturn(Optional.of(command));
+
+    mockMvc
+        .perform(get("/commands/" + id).accept(APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("status").value("COMPLETED"));
+
+    verifyNoInteractions(applicationEventPublisher);
+  }
+
+  @Test
+  @WithMockUser
+  void testGetCommandResult() throws Exception {
+    var id = UUID.randomUUID();
+    byte[] bytes = {0x0, 0x1, 0x2};
+    when(commands.getExecution(id))
+        .thenReturn(Optional.of(completedFuture(new RserveResult(new REXPRaw(bytes)))));
+
+    MvcResult result =
+        mockMvc
+            .perform(get("/commands/" + id + "/result").accept(APPLICATION_OCTET_STREAM))
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().bytes(bytes));
+  }
+
+  @Test
+  @WithMockUser
+  void testGetCommandResultUnknown() throws Exception {
+    MvcResult result =
+        mockMvc.perform(get("/commands/" + UUID.randomUUID() + "/result")).andReturn();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isNotFound());
+  }
+
   @Test
   @WithMockUser(username = "henk")
   void testDeleteWorkspace() throws Exception {
@@ -406,10 +468,10 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     String expression = "meanDS(D$age)";
     String rewrittenExpression = "dsBase::meanDS(D$age)";
     when(expressionRewriter.rewriteAggregate(expression)).thenReturn(rewrittenExpression);
-    String serializedExpression = serializeExpression(rewrittenExpression);
+    String serializedExpression = rawResults.serializeExpression(rewrittenExpression);
 
     when(commands.evaluate(serializedExpression))
-        .thenReturn(completedFuture(new RserveResult(new REXPRaw(new byte[0]))));
+        .thenReturn(completedExecution(new RserveResult(new REXPRaw(new byte[0]))));
 
     mockMvc
         .perform(
@@ -434,12 +496,34 @@ class DataControllerTest extends ArmadilloControllerTestBase {
                 "meanDS(D$age)")));
   }
 
+  @Test
+  @WithMockUser
+  void testExecuteResultTooLarge() throws Exception {
+    when(expressionRewriter.rewriteAggregate("meanDS(D$age)")).thenReturn("dsBase::meanDS(D$age)");
+    // R returns the size of a result that is too large, instead of the result
+    when(commands.evaluate(rawResults.serializeExpression("dsBase::meanDS(D$age)")))
+        .thenReturn(completedExecution(new RserveResult(new REXPInteger(600_000_000))));
+
+    MvcResult result =
+        mockMvc
+            .perform(
+                post("/execute")
+                    .session(session)
+                    .contentType(TEXT_PLAIN)
+                    .content("meanDS(D$age)")
+                    .accept(APPLICATION_OCTET_STREAM))
+            .andReturn();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isUnprocessableEntity());
+  }
+
   @Test
   @WithMockUser
   void testExecuteAsync() throws Exception {
     when(expressionRewriter.rewriteAggregate("meanDS(D$age)")).thenReturn("dsBase::meanDS(D$age)");
-    when(commands.evaluate("try(base::serialize({dsBase::meanDS(D$age)}, NULL))"))
-        .thenReturn(completedFuture(new RserveResult(new REXPDouble(36.6))));
+    CommandExecution<RServerResult> execution =
+        completedExecution(new RserveResult(new REXPDouble(36.6)));
+    when(commands.evaluate(rawResults.serializeExpression("dsBase::meanDS(D$age)")))
+        .thenReturn(execution);
 
     MvcResult result =
         mockMvc
@@ -453,7 +537,8 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     mockMvc
         .perform(asyncDispatch(result))
         .andExpect(status().isCreated())
-        .andExpect(header().string("Location", "http://localhost/lastcommand"))
+        .andExpect(
+            header().string("Location", "http://localhost/commands/" + execution.getCommandId()))
         .andExpect(content().string(""));
 
     auditEventValidator.validateAuditEvent(
@@ -470,6 +555,253 @@ class DataControllerTest extends ArmadilloControllerTestBase {
                 "meanDS(D$age)")));
   }
 
+  @Test
+  @WithMockUser
+  void testBatch() throws Exception {
+    when(expressionRewriter.rewriteAssign("meanDS(D$age)")).thenReturn("dsBase::meanDS(D$age)");
+    when(expressionRewriter.rewriteAggregate("classDS(E)")).thenReturn("dsBase::classDS(E)");
+    when(commands.evaluate(anyString()))
+        .thenReturn(
+            completedExecution(
+                getBatchResult(
+                    new REXPNull(), new REXPRaw(new byte[0]), new REXPRaw(new byte[] {1, 2}))));
+
+    MvcResult result =
+        mockMvc
+            .perform(
+                post("/batch")
+                    .session(session)
+                    .contentType(APPLICATION_JSON)
+                    .content(
+                        """
+                        [{"type": "ASSIGN", "symbol": "E", "expression": "meanDS(D$age)"},
+                         {"type": "AGGREGATE", "expression": "classDS(E)"}]"""))
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].status").value("COMPLETED"))
+        .andExpect(jsonPath("$[0].result").doesNotExist())
+        .andExpect(jsonPath("$[1].status").value("COMPLETED"))
+        .andExpect(jsonPath("$[1].result").value("AQI="));
+
+    var expression = ArgumentCaptor.forClass(String.class);
+    verify(commands).evaluate(expression.capture());
+    assertTrue(expression.getValue().contains("base::assign('E'"));
+    assertTrue(expression.getValue().contains("{dsBase::meanDS(D$age)}"));
+    assertTrue(expression.getValue().contains("{dsBase::classDS(E)}"));
+    assertTrue(expression.getValue().contains("base::length(x) > 536870912"));
+
+    auditEventValidator.validateAuditEvents(
+        new AuditEvent(
+            instant,
+            "user",
+            "ASSIGN",
+            Map.of(
+                "sessionId",
+                sessionId,
+                "roles",
+                List.of("ROLE_USER"),
+                "symbol",
+                "E",
+                "expression",
+                "meanDS(D$age)")),
+        new AuditEvent(
+            instant,
+            "user",
+            "EXECUTE",
+            Map.of(
+                "sessionId",
+                sessionId,
+                "roles",
+                List.of("ROLE_USER"),
+                "expression",
+                "classDS(E)")));
+  }
+
+  @Test
+  @WithMockUser
+  void testBatchStopsAtFailedStep() throws Exception {
+    when(expressionRewriter.rewriteAssign("meanDS(D$age)")).thenReturn("dsBase::meanDS(D$age)");
+    when(expressionRewriter.rewriteAggregate("classDS(F)")).thenReturn("dsBase::classDS(F)");
+    when(expressionRewriter.rewriteAggregate("classDS(E)")).thenReturn("dsBase::classDS(E)");
+    when(commands.evaluate(anyString()))
+        .thenReturn(
+            completedExecution(
+                getBatchResult(new REXPString("object 'F' not found"), new REXPRaw(new byte[0]))));
+
+    MvcResult result =
+        mockMvc
+            .perform(
+                post("/batch")
+                    .session(session)
+                    .contentType(APPLICATION_JSON)
+                    .content(
+                        """
+                        [{"type": "ASSIGN", "symbol": "E", "expression": "meanDS(D$age)"},
+                         {"type": "AGGREGATE", "expression": "classDS(F)"},
+                         {"type": "AGGREGATE", "expression": "classDS(E)"}]"""))
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].status").value("COMPLETED"))
+        .andExpect(jsonPath("$[1].status").value("FAILED"))
+        .andExpect(jsonPath("$[1].message").value("object 'F' not found"))
+        .andExpect(jsonPath("$[2].status").value("SKIPPED"));
+
+    auditEventValidator.validateAuditEvents(
+        new AuditEvent(
+            instant,
+            "user",
+            "ASSIGN",
+            Map.of(
+                "sessionId",
+                sessionId,
+                "roles",
+                List.of("ROLE_USER"),
+                "symbol",
+                "E",
+                "expression",
+                "meanDS(D$age)")),
+        new AuditEvent(
+            instant,
+            "user",
+            "EXECUTE_FAILURE",
+            Map.of(
+                "sessionId",
+                sessionId,
+                "roles",
+                List.of("ROLE_USER"),
+                "expression",
+                "classDS(F)",
+                "type",
+                "org.molgenis.r.exceptions.RExecutionException",
+                "message",
+                "object 'F' not found")),
+        new AuditEvent(
+            instant,
+            "user",
+            "EXECUTE_FAILURE",
+            Map.of(
+                "sessionId",
+                sessionId,
+                "roles",
+                List.of("ROLE_USER"),
+                "expression",
+                "classDS(E)",
+                "type",
+                "org.molgenis.armadillo.exceptions.BatchStepSkippedException",
+                "message",
+                "Skipped because step 2 failed: object 'F' not found")));
+  }
+
+  @Test
+  @WithMockUser
+  void testBatchEvaluationFails() throws Exception {
+    when(expressionRewriter.rewriteAssign("meanDS(D$age)")).thenReturn("dsBase::meanDS(D$age)");
+    when(expressionRewriter.rewriteAggregate("classDS(E)")).thenReturn("dsBase::classDS(E)");
+    when(commands.evaluate(anyString()))
+        .thenReturn(failedExecution(new SessionEvictedException()));
+
+    MvcResult result =
+        mockMvc
+            .perform(
+                post("/batch")
+                    .session(session)
+                    .contentType(APPLICATION_JSON)
+                    .content(
+                        """
+                        [{"type": "ASSIGN", "symbol": "E", "expression": "meanDS(D$age)"},
+                         {"type": "AGGREGATE", "expression": "classDS(E)"}]"""))
+            .andReturn();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isConflict());
+
+    var message = new SessionEvictedException().getMessage();
+    auditEventValidator.validateAuditEvents(
+        new AuditEvent(
+            instant,
+            "user",
+            "ASSIGN_FAILURE",
+            Map.of(
+                "sessionId",
+                sessionId,
+                "roles",
+                List.of("ROLE_USER"),
+                "symbol",
+                "E",
+                "expression",
+                "meanDS(D$age)",
+                "type",
+                "org.molgenis.armadillo.exceptions.SessionEvictedException",
+                "message",
+                message)),
+        new AuditEvent(
+            instant,
+            "user",
+            "EXECUTE_FAILURE",
+            Map.of(
+                "sessionId",
+                sessionId,
+                "roles",
+                List.of("ROLE_USER"),
+                "expression",
+                "classDS(E)",
+                "type",
+                "org.molgenis.armadillo.exceptions.SessionEvictedException",
+                "message",
+                message)));
+  }
+
+  @Test
+  @WithMockUser
+  void testBatchSyntaxErrorInFirstStep() throws Exception {
+    doThrow(new ExpressionException("classDS(E", new ParseException("Missing end bracket")))
+        .when(expressionRewriter)
+        .rewriteAggregate("classDS(E");
+
+    MvcResult result =
+        mockMvc
+            .perform(
+                post("/batch")
+                    .session(session)
+                    .contentType(APPLICATION_JSON)
+                    .content(
+                        """
+                        [{"type": "AGGREGATE", "expression": "classDS(E"},
+                         {"type": "AGGREGATE", "expression": "classDS(D)"}]"""))
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].status").value("FAILED"))
+        .andExpect(jsonPath("$[1].status").value("SKIPPED"));
+
+    verify(commands, never()).evaluate(anyString());
+    verify(expressionRewriter, never()).rewriteAggregate("classDS(D)");
+  }
+
+  @Test
+  @WithMockUser
+  void testBatchAssignWithoutSymbol() throws Exception {
+    mockMvc
+        .perform(
+            post("/batch")
+                .session(session)
+                .contentType(APPLICATION_JSON)
+                .content("[{\"type\": \"ASSIGN\", \"expression\": \"meanDS(D$age)\"}]"))
+        .andExpect(status().isBadRequest());
+  }
+
+  private static RServerResult getBatchResult(REXP error, REXP... results) {
+    return new RserveResult(
+        new REXPGenericVector(
+            new RList(
+                new REXP[] {new REXPGenericVector(new RList(results)), error},
+                new String[] {"results", "error"})));
+  }
+
   @Test
   @WithMockUser
   void testAssign() throws Exception {
@@ -477,7 +809,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     String rewrittenExpression = "dsBase::meanDS(D$age)";
     when(expressionRewriter.rewriteAssign(expression)).thenReturn(rewrittenExpression);
 
-    CompletableFuture<Void> assignment = new CompletableFuture<>();
+    var assignment = new CommandExecution<Void>(UUID.randomUUID());
     when(commands.assign("E", rewrittenExpression)).thenReturn(assignment);
 
     MvcResult result =
@@ -551,7 +883,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     when(expressionRewriter.rewriteAssign(expression)).thenReturn(rewrittenExpression);
 
     when(commands.assign("D", rewrittenExpression))
-        .thenReturn(failedFuture(new NullPointerException("Execution failed")));
+        .thenReturn(failedExecution(new NullPointerException("Execution failed")));
 
     MvcResult mvcResult =
         mockMvc
@@ -627,7 +959,8 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     String rewrittenExpression = "dsBase::meanDS(D$age)";
     when(expressionRewriter.rewriteAssign(expression)).thenReturn(rewrittenExpression);
 
-    final var future = new CompletableFuture<Void>();
+    var id = UUID.randomUUID();
+    var future = new CommandExecution<Void>(id);
     when(commands.assign("E", rewrittenExpression)).thenReturn(future);
 
     MvcResult result =
@@ -643,7 +976,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     mockMvc
         .perform(asyncDispatch(result))
         .andExpect(status().isCreated())
-        .andExpect(header().string("Location", "http://localhost/lastcommand"))
+        .andExpect(header().string("Location", "http://localhost/commands/" + id))
         .andExpect(content().string(""));
 
     future.complete(null);
@@ -702,7 +1035,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
   void testLoadTable() throws Exception {
     when(armadilloStorage.tableExists("project", "folder/table")).thenReturn(true);
     when(commands.loadTable("D", "project/folder/table", emptyList()))
-        .thenReturn(completedFuture(null));
+        .thenReturn(completedExecution(null));
 
     mockMvc
         .perform(
@@ -734,7 +1067,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
   void testLoadTableWithVariables() throws Exception {
     when(armadilloStorage.tableExists("project", "folder/table")).thenReturn(true);
     when(commands.loadTable("D", "project/folder/table", List.of("age", "weight")))
-        .thenReturn(completedFuture(null));
+        .thenReturn(completedExecution(null));
 
     mockMvc
         .perform(
@@ -837,7 +1170,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     when(armadilloStorage.resourceExists("gecko", "2_1-core-1_1/hpc-resource-1")).thenReturn(true);
     when(commands.loadResource(
             any(Principal.class), eq("hpc_res"), eq("gecko/2_1-core-1_1/hpc-resource-1")))
-        .thenReturn(completedFuture(null));
+        .thenReturn(completedExecution(null));
 
     mockMvc
         .perform(
@@ -917,7 +1250,13 @@ class DataControllerTest extends ArmadilloControllerTestBase {
   void testGetMatchedData() {
     DataController dataController =
         new DataController(
-            commands, armadilloStorage, auditEventPublisher, expressionRewriter, environments);
+            commands,
+            armadilloStorage,
+            auditEventPublisher,
+            expressionRewriter,
+            environments,
+            catalogService,
+            rawResults);
     String regex = "^([a-z0-9-]{0,55}[a-z0-9])/([\\w-:]+)/([\\w-:]+)$";
     java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(regex);
     HashMap<String, Object> matchedData =
@@ -929,4 +1268,16 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     expected.put("RESOURCE", "Blaat");
     assertEquals(matchedData, expected);
   }
+
+  private static <T> CommandExecution<T> completedExecution(T value) {
+    var execution = new CommandExecution<T>(UUID.randomUUID());
+    execution.complete(value);
+    return execution;
+  }
+
+  private static <T> CommandExecution<T> failedExecution(Throwable throwable) {
+    var execution = new CommandExecution<T>(UUID.randomUUID());
+    execution.completeExceptionally(throwable);
+    return execution;
+  }
 }
@@ -3,6 +3,7 @@ package org.molgenis.armadillo.controller;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
@@ -21,6 +22,7 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.molgenis.armadillo.command.Commands;
 import org.molgenis.armadillo.metadata.ProfileService;
+import org.molgenis.armadillo.service.InstalledPackagesCache;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.listener.AuditApplicationEvent;
@@ -41,6 +43,7 @@ class DevelopmentControllerTest extends ArmadilloControllerTestBase {
   @MockBean private Commands commands;
   @MockBean private ArmadilloStorageService armadilloStorage;
   @MockBean DockerClient dockerClient;
+  @MockBean private InstalledPackagesCache installedPackagesCache;
 
   @Mock(lenient = true)
   private Clock clock;
@@ -72,6 +75,8 @@ class DevelopmentControllerTest extends ArmadilloControllerTestBase {
     mockMvc
         .perform(MockMvcRequestBuilders.multipart("/install-package").file(file))
         .andExpect(status().is(204));
+    verify(installedPackagesCache).evict("default");
+    verify(profileService).addToWhitelist("default", "hello.txt");
   }
 
   @Test
@@ -119,7 +124,8 @@ class DevelopmentControllerTest extends ArmadilloControllerTestBase {
   void testGetPackageNameFromFilename() {
     String filename = "hello_world_test.tar.gz";
     DevelopmentController controller =
-        new DevelopmentController(commands, auditEventPublisher, profileService);
+        new DevelopmentController(
+            commands, auditEventPublisher, profileService, installedPackagesCache);
     String pkgName = controller.getPackageNameFromFilename(filename);
     assertEquals("hello_world", pkgName);
   }
@@ -0,0 +1,49 @@
+package org.molgenis.armadillo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import org.molgenis.armadillo.exceptions.ResultTooLargeException;
+import org.molgenis.r.rserve.RserveResult;
+import org.rosuda.REngine.REXPInteger;
+import org.rosuda.REngine.REXPRaw;
+import org.springframework.util.unit.DataSize;
+
+class RawResultsTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RawResults rawResults = new RawResults(meterRegistry, DataSize.ofBytes(4));
+
+  @Test
+  void testCreateResponse() throws IOException {
+    byte[] bytes = {0x01, 0x02, 0x03};
+
+    var response = rawResults.createResponse(new RserveResult(new REXPRaw(bytes)));
+
+    assertEquals(3, response.getHeaders().getContentLength());
+    assertArrayEquals(bytes, response.getBody().getInputStream().readAllBytes());
+    assertEquals(3, meterRegistry.get("armadillo.results.size").summary().totalAmount());
+  }
+
+  @Test
+  void testSerializeExpression() {
+    assertEquals(
+        "try((function(x) if (base::length(x) > 4) base::length(x) else x)"
+            + "(base::serialize({meanDS(D$age)}, NULL)))",
+        rawResults.serializeExpression("meanDS(D$age)"));
+  }
+
+  @Test
+  void testCreateResponseTooLarge() {
+    // R returns the size instead of the result
+    var result = new RserveResult(new REXPInteger(5));
+
+    assertThrows(ResultTooLargeException.class, () -> rawResults.createResponse(result));
+    assertEquals(1, meterRegistry.get("armadillo.results.refused").counter().count());
+    assertEquals(5, meterRegistry.get("armadillo.results.size").summary().totalAmount());
+  }
+}
@@ -2,20 +2,29 @@ package org.molgenis.armadillo.controller;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.*;
+import static org.springframework.http.HttpHeaders.ACCEPT_RANGES;
+import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
+import static org.springframework.http.HttpHeaders.RANGE;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.github.dockerjava.api.DockerClient;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.time.ZonedDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +34,12 @@ import org.mockito.Captor;
 import org.molgenis.armadillo.exceptions.DuplicateObjectException;
 import org.molgenis.armadillo.exceptions.UnknownObjectException;
 import org.molgenis.armadillo.exceptions.UnknownProjectException;
+import org.molgenis.armadillo.metadata.TableMetadataService;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.ObjectMetadata;
+import org.molgenis.armadillo.storage.TableMetadata;
+import org.molgenis.armadillo.storage.TableMetadata.Column;
+import org.molgenis.armadillo.storage.TableMetadata.RowGroup;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -40,6 +54,7 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
 
   @MockBean DockerClient dockerClient;
   @MockBean ArmadilloStorageService storage;
+  @MockBean TableMetadataService tableMetadata;
 
   @Captor protected ArgumentCaptor<InputStream> inputStreamCaptor;
 
@@ -75,6 +90,7 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
     verify(storage)
         .addObject(eq("lifecycle"), eq("core/nonrep2.parquet"), inputStreamCaptor.capture());
     assertArrayEquals(contents, inputStreamCaptor.getValue().readAllBytes());
+    verify(tableMetadata).refresh("lifecycle", "core/nonrep2.parquet");
 
     auditEventValidator.validateAuditEvent(
         new AuditEvent(
@@ -347,6 +363,7 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
         .andExpect(status().isNoContent());
 
     verify(storage).deleteObject("lifecycle", "test.parquet");
+    verify(tableMetadata).evict("lifecycle", "test.parquet");
 
     auditEventValidator.validateAuditEvent(
         new AuditEvent(
@@ -386,13 +403,19 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
   @Test
   void downloadObject() throws Exception {
     var content = "content".getBytes();
-    var inputStream = new ByteArrayInputStream(content);
-    when(storage.loadObject("lifecycle", "test.parquet")).thenReturn(inputStream);
+    mockObject(content);
 
+    var result =
+        mockMvc
+            .perform(get("/storage/projects/lifecycle/objects/test.parquet").session(session))
+            .andExpect(request().asyncStarted())
+            .andReturn();
     mockMvc
-        .perform(get("/storage/projects/lifecycle/objects/test.parquet").session(session))
+        .perform(asyncDispatch(result))
         .andExpect(status().isOk())
         .andExpect(content().contentType(APPLICATION_OCTET_STREAM))
+        .andExpect(header().string(ACCEPT_RANGES, "bytes"))
+        .andExpect(header().longValue(CONTENT_LENGTH, content.length))
         .andExpect(content().bytes(content));
 
     auditEventValidator.validateAuditEvent(
@@ -403,6 +426,43 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
             mockSuAuditMap(Map.of(PROJECT, "lifecycle", OBJECT, "test.parquet"))));
   }
 
+  @Test
+  void downloadObjectRange() throws Exception {
+    mockObject("content".getBytes());
+
+    var result =
+        mockMvc
+            .perform(
+                get("/storage/projects/lifecycle/objects/test.parquet")
+                    .header(RANGE, "bytes=3-")
+                    .session(session))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(CONTENT_RANGE, "bytes 3-6/7"))
+        .andExpect(header().longValue(CONTENT_LENGTH, 4))
+        .andExpect(content().bytes("tent".getBytes()));
+  }
+
+  @Test
+  void downloadObjectRangeNotSatisfiable() throws Exception {
+    when(storage.getObjectMetadata("lifecycle", "test.parquet"))
+        .thenReturn(new ObjectMetadata("test.parquet", ZonedDateTime.now(), 7));
+
+    mockMvc
+        .perform(
+            get("/storage/projects/lifecycle/objects/test.parquet")
+                .header(RANGE, "bytes=7-")
+                .session(session))
+        .andExpect(status().isRequestedRangeNotSatisfiable())
+        .andExpect(header().string(CONTENT_RANGE, "bytes */7"));
+
+    verify(storage, never())
+        .transferObject(any(), any(), anyLong(), anyLong(), any(OutputStream.class));
+  }
+
   @Test
   void previewObject() throws Exception {
     when(storage.getPreview("lifecycle", "test.parquet")).thenReturn(List.of(Map.of("foo", "bar")));
@@ -421,11 +481,38 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
             mockSuAuditMap(Map.of(PROJECT, "lifecycle", OBJECT, "test.parquet"))));
   }
 
+  @Test
+  void getObjectMetadata() throws Exception {
+    when(tableMetadata.getMetadata("lifecycle", "test.parquet"))
+        .thenReturn(
+            new TableMetadata(
+                10,
+                List.of(new Column("age", "INT32", 40, 50)),
+                List.of(new RowGroup(10, 40, 50))));
+
+    mockMvc
+        .perform(get("/storage/projects/lifecycle/objects/test.parquet/metadata").session(session))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(APPLICATION_JSON))
+        .andExpect(
+            content()
+                .json(
+                    "{\"rowCount\": 10, \"columns\": [{\"name\": \"age\", \"type\": \"INT32\"}],"
+                        + " \"rowGroups\": [{\"rowCount\": 10}]}"));
+
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            GET_OBJECT_METADATA,
+            mockSuAuditMap(Map.of(PROJECT, "lifecycle", OBJECT, "test.parquet"))));
+  }
+
   @Test
   void downloadObjectNotExists() throws Exception {
     doThrow(new UnknownObjectException("lifecycle", "test.parquet"))
         .when(storage)
-        .loadObject("lifecycle", "test.parquet");
+        .getObjectMetadata("lifecycle", "test.parquet");
 
     mockMvc
         .perform(get("/storage/projects/lifecycle/objects/test.parquet").session(session))
@@ -448,6 +535,22 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
                     "org.molgenis.armadillo.exceptions.UnknownObjectException"))));
   }
 
+  private void mockObject(byte[] content) {
+    when(storage.getObjectMetadata("lifecycle", "test.parquet"))
+        .thenReturn(new ObjectMetadata("test.parquet", ZonedDateTime.now(), content.length));
+    doAnswer(
+            invocation -> {
+              long offset = invocation.getArgument(2);
+              long length = invocation.getArgument(3);
+              OutputStream outputStream = invocation.getArgument(4);
+              outputStream.write(content, (int) offset, (int) length);
+              return null;
+            })
+        .when(storage)
+        .transferObject(
+            eq("lifecycle"), eq("test.parquet"), anyLong(), anyLong(), any(OutputStream.class));
+  }
+
   private Map<String, Object> mockSuAuditMap() {
     var values = new HashMap<String, Object>();
     values.put("sessionId", sessionId);
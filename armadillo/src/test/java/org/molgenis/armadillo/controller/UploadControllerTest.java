@@ -0,0 +1,166 @@
+package org.molgenis.armadillo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.ABORT_UPLOAD;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.OBJECT;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.PART;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.PROJECT;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.START_UPLOAD;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.UPLOAD;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.UPLOAD_OBJECT;
+import static org.molgenis.armadillo.audit.AuditEventPublisher.UPLOAD_PART;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.github.dockerjava.api.DockerClient;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.molgenis.armadillo.exceptions.InvalidUploadException;
+import org.molgenis.armadillo.metadata.TableMetadataService;
+import org.molgenis.armadillo.storage.Upload;
+import org.molgenis.armadillo.storage.UploadService;
+import org.springframework.boot.actuate.audit.AuditEvent;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+
+@WebMvcTest(UploadController.class)
+@WithMockUser(roles = "SU")
+class UploadControllerTest extends ArmadilloControllerTestBase {
+
+  @MockBean DockerClient dockerClient;
+  @MockBean UploadService uploadService;
+  @MockBean TableMetadataService tableMetadata;
+
+  @Captor ArgumentCaptor<InputStream> inputStreamCaptor;
+
+  @Test
+  void startUpload() throws Exception {
+    when(uploadService.startUpload("lifecycle", "core/nonrep.parquet"))
+        .thenReturn(
+            new Upload(
+                "abc",
+                "lifecycle",
+                "core/nonrep.parquet",
+                Instant.now(),
+                new ConcurrentSkipListMap<>()));
+
+    mockMvc
+        .perform(
+            post("/storage/projects/lifecycle/uploads")
+                .content("{\"name\":\"core/nonrep.parquet\"}")
+                .contentType(APPLICATION_JSON)
+                .session(session))
+        .andExpect(status().isCreated())
+        .andExpect(content().json("{\"id\": \"abc\", \"object\": \"core/nonrep.parquet\"}"));
+
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            START_UPLOAD,
+            mockSuAuditMap(Map.of(PROJECT, "lifecycle", OBJECT, "core/nonrep.parquet"))));
+  }
+
+  @Test
+  void uploadPart() throws Exception {
+    var contents = "contents".getBytes();
+
+    mockMvc
+        .perform(
+            put("/storage/projects/lifecycle/uploads/abc/parts/2")
+                .content(contents)
+                .contentType(APPLICATION_OCTET_STREAM)
+                .session(session))
+        .andExpect(status().isNoContent());
+
+    verify(uploadService).addPart(eq("lifecycle"), eq("abc"), eq(2), inputStreamCaptor.capture());
+    assertArrayEquals(contents, inputStreamCaptor.getValue().readAllBytes());
+
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            UPLOAD_PART,
+            mockSuAuditMap(Map.of(PROJECT, "lifecycle", UPLOAD, "abc", PART, 2))));
+  }
+
+  @Test
+  void completeUpload() throws Exception {
+    when(uploadService.completeUpload("lifecycle", "abc"))
+        .thenReturn(
+            new Upload(
+                "abc",
+                "lifecycle",
+                "core/nonrep.parquet",
+                Instant.now(),
+                new ConcurrentSkipListMap<>()));
+
+    mockMvc
+        .perform(post("/storage/projects/lifecycle/uploads/abc/complete").session(session))
+        .andExpect(status().isNoContent());
+
+    verify(tableMetadata).refresh("lifecycle", "core/nonrep.parquet");
+
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            UPLOAD_OBJECT,
+            mockSuAuditMap(Map.of(PROJECT, "lifecycle", UPLOAD, "abc"))));
+  }
+
+  @Test
+  void completeUploadInvalid() throws Exception {
+    doThrow(new InvalidUploadException("abc", "parts should be numbered 1 to n without gaps"))
+        .when(uploadService)
+        .completeUpload("lifecycle", "abc");
+
+    mockMvc
+        .perform(post("/storage/projects/lifecycle/uploads/abc/complete").session(session))
+        .andExpect(status().isBadRequest());
+
+    verify(tableMetadata, never()).refresh("lifecycle", "core/nonrep.parquet");
+  }
+
+  @Test
+  void abortUpload() throws Exception {
+    mockMvc
+        .perform(delete("/storage/projects/lifecycle/uploads/abc").session(session))
+        .andExpect(status().isNoContent());
+
+    verify(uploadService).abortUpload("lifecycle", "abc");
+
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            ABORT_UPLOAD,
+            mockSuAuditMap(Map.of(PROJECT, "lifecycle", UPLOAD, "abc"))));
+  }
+
+  private Map<String, Object> mockSuAuditMap(Map<String, Object> additionalValues) {
+    var values = new HashMap<String, Object>();
+    values.put("sessionId", sessionId);
+    values.put("roles", List.of("ROLE_SU"));
+    values.putAll(additionalValues);
+    return values;
+  }
+}
@@ -2,16 +2,19 @@ package org.molgenis.armadillo.metadata;
 
 import static java.util.Collections.emptySet;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 @ExtendWith(MockitoExtension.class)
 class AccessServiceTest {
@@ -44,4 +47,23 @@ class AccessServiceTest {
 
     assertEquals(List.of(project2, project1), metadataService.projectsList());
   }
+
+  @Test
+  void testAuthoritiesFollowPermissionChanges() {
+    var metadataService = new AccessService(storage, new DummyAccessLoader(), null);
+    metadataService.initialize();
+    var index = metadataService.getAccessIndex();
+
+    metadataService.permissionsAdd("bofke@gmail.com", "lifecycle");
+    metadataService.userUpsert(UserDetails.createAdmin("jan@gmail.com"));
+
+    assertNotSame(index, metadataService.getAccessIndex());
+    assertEquals(
+        List.of(new SimpleGrantedAuthority("ROLE_LIFECYCLE_RESEARCHER")),
+        metadataService.getAuthoritiesForEmail("bofke@gmail.com", Map.of()));
+    assertEquals(
+        List.of(new SimpleGrantedAuthority("ROLE_SU")),
+        metadataService.getAuthoritiesForEmail("jan@gmail.com", Map.of()));
+    assertEquals(Set.of("lifecycle"), metadataService.userByEmail("bofke@gmail.com").getProjects());
+  }
 }
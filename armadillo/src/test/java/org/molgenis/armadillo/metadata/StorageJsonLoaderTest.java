@@ -0,0 +1,142 @@
+package org.molgenis.armadillo.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.molgenis.armadillo.exceptions.StorageException;
+import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.LocalStorageService;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class StorageJsonLoaderTest {
+
+  @TempDir Path tempDir;
+
+  private ArmadilloStorageService storage;
+  private AccessLoader accessLoader;
+
+  @BeforeEach
+  void setUp() {
+    storage = new ArmadilloStorageService(new LocalStorageService(tempDir.toString()));
+    accessLoader = createLoader();
+  }
+
+  private AccessLoader createLoader() {
+    var loader = new AccessLoader();
+    ReflectionTestUtils.setField(loader, "storage", storage);
+    ReflectionTestUtils.setField(loader, "compactAfter", 3);
+    return loader;
+  }
+
+  @Test
+  void testLoadDefault() {
+    assertEquals(AccessMetadata.create(), accessLoader.load());
+  }
+
+  @Test
+  void testSaveWritesChanges() {
+    var metadata = accessLoader.load();
+    metadata.getUsers().put("bofke@email.com", UserDetails.create("bofke@email.com"));
+    accessLoader.save(metadata);
+    metadata.getPermissions().add(ProjectPermission.create("bofke@email.com", "lifecycle"));
+
+    var saved = accessLoader.save(metadata);
+
+    assertEquals(metadata, saved);
+    assertEquals(
+        List.of("access.json.journal.000000000001", "access.json.journal.000000000002"),
+        storage.listSystemFiles("access.json.journal."));
+    assertFalse(Files.exists(tempDir.resolve("system/access.json")));
+    assertEquals(metadata, createLoader().load());
+  }
+
+  @Test
+  void testSaveWithoutChanges() {
+    var metadata = accessLoader.load();
+
+    accessLoader.save(metadata);
+
+    assertEquals(List.of(), storage.listSystemFiles("access.json.journal."));
+  }
+
+  @Test
+  void testSaveRemovals() {
+    var metadata = accessLoader.load();
+    metadata.getUsers().put("bofke@email.com", UserDetails.create("bofke@email.com"));
+    metadata.getPermissions().add(ProjectPermission.create("bofke@email.com", "lifecycle"));
+    accessLoader.save(metadata);
+    metadata.getUsers().remove("bofke@email.com");
+    metadata.getPermissions().clear();
+
+    accessLoader.save(metadata);
+
+    var loaded = createLoader().load();
+    assertTrue(loaded.getUsers().isEmpty());
+    assertTrue(loaded.getPermissions().isEmpty());
+  }
+
+  @Test
+  void testSaveCompacts() {
+    var metadata = accessLoader.load();
+    for (var project : List.of("a", "b", "c", "d")) {
+      metadata.getProjects().put(project, ProjectDetails.create(project, Set.of()));
+      accessLoader.save(metadata);
+    }
+
+    assertEquals(List.of(), storage.listSystemFiles("access.json.journal."));
+    assertTrue(Files.exists(tempDir.resolve("system/access.json")));
+    assertEquals(metadata, createLoader().load());
+  }
+
+  @Test
+  void testLoadContinuesJournal() {
+    var metadata = accessLoader.load();
+    metadata.getProjects().put("a", ProjectDetails.create("a", Set.of()));
+    accessLoader.save(metadata);
+
+    var loader = createLoader();
+    var loaded = loader.load();
+    loaded.getProjects().put("b", ProjectDetails.create("b", Set.of()));
+    loader.save(loaded);
+
+    assertEquals(
+        List.of("access.json.journal.000000000001", "access.json.journal.000000000002"),
+        storage.listSystemFiles("access.json.journal."));
+    assertEquals(loaded, createLoader().load());
+  }
+
+  @Test
+  void testFailedLoadDoesNotCompact() throws IOException {
+    var metadata = accessLoader.load();
+    for (var project : List.of("a", "b", "c", "d")) {
+      metadata.getProjects().put(project, ProjectDetails.create(project, Set.of()));
+      accessLoader.save(metadata);
+    }
+    var snapshot = Files.readString(tempDir.resolve("system/access.json"));
+    storage.saveSystemFile(
+        new ByteArrayInputStream("not json".getBytes()),
+        "access.json.journal.000000000001",
+        MediaType.APPLICATION_JSON);
+
+    var loader = createLoader();
+    assertThrows(StorageException.class, loader::load);
+    assertThrows(StorageException.class, () -> loader.save(AccessMetadata.create()));
+
+    assertEquals(snapshot, Files.readString(tempDir.resolve("system/access.json")));
+    assertEquals(
+        List.of("access.json.journal.000000000001"),
+        storage.listSystemFiles("access.json.journal."));
+  }
+}
@@ -0,0 +1,121 @@
+package org.molgenis.armadillo.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.FileNotFoundException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.exceptions.UnknownObjectException;
+import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.LocalInputFile;
+import org.molgenis.armadillo.storage.ObjectMetadata;
+import org.molgenis.armadillo.storage.TableMetadata;
+
+@ExtendWith(MockitoExtension.class)
+class TableMetadataServiceTest {
+
+  @Mock ArmadilloStorageService storage;
+  @Mock TablesLoader tablesLoader;
+
+  private final TableMetadata tableMetadata = new TableMetadata(1, List.of(), List.of());
+  private final ObjectMetadata object =
+      new ObjectMetadata("core/nonrep.parquet", ZonedDateTime.now(), 100);
+
+  @Test
+  void testGetMetadataIndexed() {
+    var tables = TablesMetadata.create();
+    tables.getTables().put("lifecycle/core/nonrep.parquet", IndexedTable.of(object, tableMetadata));
+    when(tablesLoader.load()).thenReturn(tables);
+    when(storage.getObjectMetadata("lifecycle", "core/nonrep.parquet")).thenReturn(object);
+    var service = new TableMetadataService(storage, tablesLoader);
+
+    assertSame(tableMetadata, service.getMetadata("lifecycle", "core/nonrep.parquet"));
+    verify(storage, never()).getInputFile("lifecycle", "core/nonrep.parquet");
+  }
+
+  @Test
+  void testGetMetadataIndexesChangedObject() throws URISyntaxException, FileNotFoundException {
+    var tables = TablesMetadata.create();
+    tables.getTables().put("lifecycle/patient.parquet", IndexedTable.of(object, tableMetadata));
+    when(tablesLoader.load()).thenReturn(tables);
+    var changed =
+        new ObjectMetadata("patient.parquet", object.lastModified().plusSeconds(1), object.size());
+    when(storage.getObjectMetadata("lifecycle", "patient.parquet")).thenReturn(changed);
+    var path = Path.of(getClass().getClassLoader().getResource("patient.parquet").toURI());
+    when(storage.getInputFile("lifecycle", "patient.parquet")).thenReturn(new LocalInputFile(path));
+    var service = new TableMetadataService(storage, tablesLoader);
+
+    var metadata = service.getMetadata("lifecycle", "patient.parquet");
+
+    assertNotEquals(tableMetadata, metadata);
+    assertTrue(tables.getTables().get("lifecycle/patient.parquet").isOf(changed));
+  }
+
+  @Test
+  void testEvictProject() {
+    var tables = TablesMetadata.create();
+    tables.getTables().put("lifecycle/core/nonrep.parquet", IndexedTable.of(object, tableMetadata));
+    tables.getTables().put("gecko/core/nonrep.parquet", IndexedTable.of(object, tableMetadata));
+    when(tablesLoader.load()).thenReturn(tables);
+    var service = new TableMetadataService(storage, tablesLoader);
+
+    service.evictProject("lifecycle");
+
+    assertEquals(Set.of("gecko/core/nonrep.parquet"), tables.getTables().keySet());
+    verify(tablesLoader).save(tables);
+  }
+
+  @Test
+  void testGetMetadataUnknownObject() {
+    when(tablesLoader.load()).thenReturn(TablesMetadata.create());
+    when(storage.getObjectMetadata("lifecycle", "core/nonrep.parquet"))
+        .thenThrow(new UnknownObjectException("lifecycle", "core/nonrep.parquet"));
+    var service = new TableMetadataService(storage, tablesLoader);
+
+    assertThrows(
+        UnknownObjectException.class,
+        () -> service.getMetadata("lifecycle", "core/nonrep.parquet"));
+  }
+
+  @Test
+  void testRefresh() throws URISyntaxException, FileNotFoundException {
+    var tables = TablesMetadata.create();
+    when(tablesLoader.load()).thenReturn(tables);
+    when(storage.getObjectMetadata("lifecycle", "patient.parquet")).thenReturn(object);
+    var path = Path.of(getClass().getClassLoader().getResource("patient.parquet").toURI());
+    when(storage.getInputFile("lifecycle", "patient.parquet")).thenReturn(new LocalInputFile(path));
+    var service = new TableMetadataService(storage, tablesLoader);
+
+    service.refresh("lifecycle", "patient.parquet");
+
+    assertTrue(tables.getTables().get("lifecycle/patient.parquet").metadata().rowCount() > 0);
+    verify(tablesLoader).save(tables);
+  }
+
+  @Test
+  void testRefreshIgnoresOtherObjects() {
+    var tables = TablesMetadata.create();
+    tables.getTables().put("lifecycle/resource.rds", IndexedTable.of(object, tableMetadata));
+    when(tablesLoader.load()).thenReturn(tables);
+    var service = new TableMetadataService(storage, tablesLoader);
+
+    service.refresh("lifecycle", "resource.rds");
+
+    assertEquals(0, tables.getTables().size());
+    verify(storage, never()).getInputFile("lifecycle", "resource.rds");
+  }
+}
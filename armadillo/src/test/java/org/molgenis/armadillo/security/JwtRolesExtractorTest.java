@@ -1,84 +1,73 @@
-// package org.molgenis.armadillo.security;
-//
-// import static java.util.Collections.emptySet;
-// import static org.junit.jupiter.api.Assertions.assertFalse;
-// import static org.junit.jupiter.api.Assertions.assertTrue;
-// import static org.mockito.Mockito.when;
-//
-// import java.util.Collection;
-// import java.util.List;
-// import java.util.Map;
-// import org.junit.jupiter.api.Test;
-// import org.junit.jupiter.api.extension.ExtendWith;
-// import org.mockito.Mock;
-// import org.mockito.junit.jupiter.MockitoExtension;
-// import org.molgenis.armadillo.metadata.ArmadilloMetadata;
-// import org.molgenis.armadillo.metadata.ArmadilloMetadataService;
-// <<<<<<< HEAD
-// import org.molgenis.armadillo.profile.ProfileService;
-// =======
-// import org.molgenis.armadillo.metadata.MetadataLoader;
-// import org.molgenis.armadillo.metadata.ProjectDetails;
-// import org.molgenis.armadillo.metadata.ProjectPermission;
-// import org.molgenis.armadillo.metadata.UserDetails;
-// >>>>>>> 7116458d5c90bb7d947200a3b014e573be12bc7d
-// import org.molgenis.armadillo.storage.ArmadilloStorageService;
-// import org.springframework.security.core.GrantedAuthority;
-// import org.springframework.security.core.authority.SimpleGrantedAuthority;
-// import org.springframework.security.oauth2.jwt.Jwt;
-// import org.springframework.test.util.ReflectionTestUtils;
-//
-// @ExtendWith(MockitoExtension.class)
-// class JwtRolesExtractorTest {
-//  @Mock Jwt jwt;
-//  @Mock ArmadilloStorageService armadilloStorage;
-// <<<<<<< HEAD
-//  @Mock ProfileService profileService;
-// =======
-//  @Mock MetadataLoader metadataLoader;
-// >>>>>>> 7116458d5c90bb7d947200a3b014e573be12bc7d
-//  ArmadilloMetadataService armadilloMetadataService;
-//
-//  @Test
-//  void convertTest() {
-//    when(jwt.getClaims()).thenReturn(Map.of("roles", List.of("lifecycle_RESEARCHER")));
-//    when(jwt.getClaimAsString("email")).thenReturn("bofke@email.com");
-// <<<<<<< HEAD
-//    // local only
-//    armadilloMetadataService = new ArmadilloMetadataService(armadilloStorage, profileService);
-//    when(armadilloStorage.loadSystemFile(METADATA_FILE))
-//        .thenReturn(
-//            new ByteArrayInputStream(
-//                "{\"users\":{\"bofke@email.com\":{\"email\":\"bofke@email.com\",
-// \"admin\":true}},\"projects\":{\"myproject\":{\"name\":\"myproject\"}},\"permissions\":[{\"email\":\"bofke@email.com\",\"project\":\"myproject\"}],\"profiles\":{}}"
-//                    .getBytes()));
-//    armadilloMetadataService.reload();
-// =======
-//
-//    var metadata = ArmadilloMetadata.create();
-//    metadata.getUsers().put("bofke@email.com", UserDetails.createAdmin("bofke@email.com"));
-//    metadata.getProjects().put("myproject", ProjectDetails.create("myproject", emptySet()));
-//    metadata.getPermissions().add(ProjectPermission.create("bofke@email.com", "myproject"));
-//    when(metadataLoader.load()).thenReturn(metadata);
-//
-//    armadilloMetadataService = new ArmadilloMetadataService(armadilloStorage, metadataLoader,
-// null);
-// >>>>>>> 7116458d5c90bb7d947200a3b014e573be12bc7d
-//    Collection<GrantedAuthority> authorities =
-//        new JwtRolesExtractor(armadilloMetadataService).convert(jwt);
-//    assertTrue(authorities.contains(new SimpleGrantedAuthority("ROLE_MYPROJECT_RESEARCHER")));
-//    assertTrue(authorities.contains(new SimpleGrantedAuthority("ROLE_SU")));
-//    // when role giving from central oauth is disable this shouldn't happen
-//    assertFalse(authorities.contains(new SimpleGrantedAuthority("ROLE_LIFECYCLE_RESEARCHER")));
-//
-//    // with option of oidc role extraction
-//    ReflectionTestUtils.setField(armadilloMetadataService, "oidcPermissionsEnabled", true);
-//
-//    authorities = new JwtRolesExtractor(armadilloMetadataService).convert(jwt);
-//    assertTrue(authorities.contains(new SimpleGrantedAuthority("ROLE_LIFECYCLE_RESEARCHER")));
-//    assertTrue(authorities.contains(new SimpleGrantedAuthority("ROLE_MYPROJECT_RESEARCHER")));
-//    assertTrue(authorities.contains(new SimpleGrantedAuthority("ROLE_SU")));
-//
-//    System.clearProperty("datashield.oidc-permission-enabled");
-//  }
-// }
+package org.molgenis.armadillo.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.metadata.AccessIndex;
+import org.molgenis.armadillo.metadata.AccessService;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+@ExtendWith(MockitoExtension.class)
+class JwtRolesExtractorTest {
+
+  @Mock AccessService accessService;
+  @Mock AccessIndex index;
+  @Mock AccessIndex changedIndex;
+
+  private final List<GrantedAuthority> authorities =
+      List.of(new SimpleGrantedAuthority("ROLE_MYPROJECT_RESEARCHER"));
+  private final Map<String, Object> claims = Map.of("email", "bofke@email.com");
+  private Jwt jwt;
+  private JwtRolesExtractor extractor;
+
+  @BeforeEach
+  void beforeEach() {
+    jwt =
+        Jwt.withTokenValue("token")
+            .header("alg", "none")
+            .jti("abc")
+            .claims(c -> c.putAll(claims))
+            .expiresAt(Instant.now().plusSeconds(300))
+            .build();
+    extractor =
+        new JwtRolesExtractor(accessService, new SimpleMeterRegistry(), Duration.ofMinutes(1), 10);
+  }
+
+  @Test
+  void testConvertIsCached() {
+    when(accessService.getAccessIndex()).thenReturn(index);
+    when(accessService.getAuthoritiesForEmail("bofke@email.com", jwt.getClaims()))
+        .thenReturn(authorities);
+
+    assertEquals(authorities, extractor.convert(jwt));
+    assertEquals(authorities, extractor.convert(jwt));
+
+    verify(accessService, times(1)).getAuthoritiesForEmail("bofke@email.com", jwt.getClaims());
+  }
+
+  @Test
+  void testConvertAfterAccessChange() {
+    when(accessService.getAccessIndex()).thenReturn(index, changedIndex);
+    when(accessService.getAuthoritiesForEmail("bofke@email.com", jwt.getClaims()))
+        .thenReturn(authorities);
+
+    extractor.convert(jwt);
+    extractor.convert(jwt);
+
+    verify(accessService, times(2)).getAuthoritiesForEmail("bofke@email.com", jwt.getClaims());
+  }
+}
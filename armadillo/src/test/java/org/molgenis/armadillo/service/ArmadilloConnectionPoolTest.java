@@ -0,0 +1,113 @@
+package org.molgenis.armadillo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.metadata.ProfileConfig;
+import org.molgenis.r.RServerConnection;
+import org.molgenis.r.RServerException;
+import org.molgenis.r.exceptions.ConnectionCreationFailedException;
+import org.molgenis.r.rserve.RserveException;
+
+@ExtendWith(MockitoExtension.class)
+class ArmadilloConnectionPoolTest {
+
+  @Mock ArmadilloConnectionFactoryImpl connectionFactory;
+  @Mock ProfileConfig profileConfig;
+  @Mock RServerConnection pooledConnection;
+  @Mock RServerConnection newConnection;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @BeforeEach
+  void beforeEach() {
+    when(profileConfig.getName()).thenReturn("default");
+  }
+
+  @Test
+  void testCreateConnectionWithoutPool() {
+    when(connectionFactory.createConnection()).thenReturn(newConnection);
+    var pool = new ArmadilloConnectionPool(connectionFactory, profileConfig, meterRegistry, 0);
+    pool.init();
+
+    assertEquals(newConnection, pool.createConnection());
+    assertEquals(1.0, requests("miss"));
+    pool.close();
+  }
+
+  @Test
+  void testCreateConnectionFromPool() throws RServerException {
+    when(connectionFactory.createConnection()).thenReturn(pooledConnection, newConnection);
+    var pool = new ArmadilloConnectionPool(connectionFactory, profileConfig, meterRegistry, 1);
+    pool.init();
+    verify(connectionFactory, timeout(1000)).createConnection();
+    awaitIdle(1);
+
+    assertEquals(pooledConnection, pool.createConnection());
+    verify(pooledConnection).eval("NULL");
+    assertEquals(1.0, requests("hit"));
+    verify(connectionFactory, timeout(1000).times(2)).createConnection();
+    awaitIdle(1);
+
+    pool.close();
+    verify(newConnection).close();
+  }
+
+  @Test
+  void testCreateConnectionSkipsDeadConnection() throws RServerException {
+    when(connectionFactory.createConnection()).thenReturn(pooledConnection, newConnection);
+    when(pooledConnection.eval("NULL"))
+        .thenThrow(new RserveException(new IOException("Connection closed")));
+    var pool = new ArmadilloConnectionPool(connectionFactory, profileConfig, meterRegistry, 1);
+    pool.init();
+    awaitIdle(1);
+
+    assertEquals(newConnection, pool.createConnection());
+    verify(pooledConnection, times(1)).close();
+    assertEquals(0.0, requests("hit"));
+    assertEquals(1.0, requests("miss"));
+    pool.close();
+  }
+
+  @Test
+  void testPoolSurvivesFailedConnection() {
+    when(connectionFactory.createConnection())
+        .thenThrow(new ConnectionCreationFailedException("Failed"))
+        .thenReturn(newConnection);
+    var pool = new ArmadilloConnectionPool(connectionFactory, profileConfig, meterRegistry, 1);
+    pool.init();
+    verify(connectionFactory, timeout(1000)).createConnection();
+
+    pool.createConnection();
+    assertEquals(1.0, requests("miss"));
+    pool.close();
+  }
+
+  private double requests(String result) {
+    return meterRegistry
+        .get("rserve.connection.pool.requests")
+        .tag("environment", "default")
+        .tag("result", result)
+        .counter()
+        .count();
+  }
+
+  private void awaitIdle(int expected) {
+    var gauge = meterRegistry.get("rserve.connection.pool.idle").gauge();
+    long deadline = System.currentTimeMillis() + 1000;
+    while (gauge.value() < expected && System.currentTimeMillis() < deadline) {
+      Thread.onSpinWait();
+    }
+    assertEquals(expected, gauge.value());
+  }
+}
@@ -0,0 +1,90 @@
+package org.molgenis.armadillo.service;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.exceptions.UnknownProjectException;
+import org.molgenis.armadillo.storage.ArmadilloStorageService;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogServiceTest {
+
+  @Mock ArmadilloStorageService storage;
+  private CatalogService catalogService;
+
+  @BeforeEach
+  void beforeEach() {
+    catalogService = new CatalogService(storage, 2, Duration.ofMillis(500), 16);
+  }
+
+  @AfterEach
+  void afterEach() {
+    catalogService.shutdown();
+  }
+
+  @Test
+  void testListTablesInOrder() {
+    when(storage.listProjects()).thenReturn(List.of("gecko", "lifecycle", "diabetes"));
+    when(storage.listTables("gecko")).thenReturn(List.of("gecko/1_1_core_2_1/core"));
+    when(storage.listTables("lifecycle")).thenReturn(List.of("lifecycle/core/nonrep"));
+    when(storage.listTables("diabetes")).thenReturn(List.of("diabetes/outcome/yearlyrep"));
+
+    assertEquals(
+        List.of("gecko/1_1_core_2_1/core", "lifecycle/core/nonrep", "diabetes/outcome/yearlyrep"),
+        catalogService.listTables());
+  }
+
+  @Test
+  void testListResourcesLeavesOutSlowProject() {
+    when(storage.listProjects()).thenReturn(List.of("gecko", "lifecycle"));
+    when(storage.listResources("gecko"))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(2000);
+              return List.of("gecko/hpc/resource");
+            });
+    when(storage.listResources("lifecycle")).thenReturn(List.of("lifecycle/hpc/resource"));
+
+    assertEquals(List.of("lifecycle/hpc/resource"), catalogService.listResources());
+  }
+
+  @Test
+  void testListTablesDoesNotWaitForStuckThreads() {
+    var release = new CountDownLatch(1);
+    when(storage.listProjects()).thenReturn(List.of("gecko", "lifecycle", "diabetes"));
+    when(storage.listTables(anyString()))
+        .thenAnswer(
+            invocation -> {
+              awaitUninterruptibly(release);
+              return List.of();
+            });
+    try {
+      assertEquals(
+          List.of(),
+          assertTimeoutPreemptively(Duration.ofSeconds(2), () -> catalogService.listTables()));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  void testListTablesFails() {
+    when(storage.listProjects()).thenReturn(List.of("gecko"));
+    when(storage.listTables("gecko")).thenThrow(new UnknownProjectException("gecko"));
+
+    assertThrows(UnknownProjectException.class, () -> catalogService.listTables());
+  }
+}
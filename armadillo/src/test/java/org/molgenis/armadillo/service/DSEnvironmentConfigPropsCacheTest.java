@@ -9,7 +9,9 @@ import static org.mockito.Mockito.*;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.gson.Gson;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -33,11 +35,19 @@ class DSEnvironmentConfigPropsCacheTest {
   @Mock RConnectionFactory rConnectionFactory;
   @Mock PackageService packageService;
   @Mock ProfileConfig profileConfig;
+  @Mock InstalledPackagesCache installedPackagesCache;
+  @Mock ExpressionCache expressionCache;
   private DSEnvironmentCache dsEnvironmentCache;
 
   @BeforeEach
   void beforeEach() {
-    dsEnvironmentCache = new DSEnvironmentCache(packageService, rConnectionFactory, profileConfig);
+    dsEnvironmentCache =
+        new DSEnvironmentCache(
+            packageService,
+            rConnectionFactory,
+            profileConfig,
+            installedPackagesCache,
+            expressionCache);
   }
 
   @Test
@@ -133,8 +143,12 @@ class DSEnvironmentConfigPropsCacheTest {
             .build();
 
     when(packageService.getInstalledPackages(rConnection)).thenReturn(singletonList(pack));
+    when(profileConfig.getName()).thenReturn("default");
+    when(installedPackagesCache.getPackages(eq("default"), any()))
+        .thenAnswer(invocation -> invocation.<Supplier<List<RPackage>>>getArgument(1).get());
 
     dsEnvironmentCache.populateEnvironments();
     verify(rConnection).close();
+    verify(expressionCache).invalidate("default");
   }
 }
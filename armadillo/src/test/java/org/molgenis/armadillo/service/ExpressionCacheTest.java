@@ -0,0 +1,116 @@
+package org.molgenis.armadillo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.obiba.datashield.core.DSMethodType.AGGREGATE;
+import static org.obiba.datashield.core.DSMethodType.ASSIGN;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.molgenis.armadillo.exceptions.ExpressionException;
+import org.obiba.datashield.core.DSMethodType;
+import org.springframework.util.unit.DataSize;
+
+class ExpressionCacheTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ExpressionCache expressionCache =
+      new ExpressionCache(meterRegistry, DataSize.ofKilobytes(10));
+  private final AtomicInteger rewrites = new AtomicInteger();
+
+  @Test
+  void testGetPerProfileAndMethodType() {
+    get("default", AGGREGATE, "dimDS(D)");
+    get("default", AGGREGATE, "dimDS(D)");
+    get("default", ASSIGN, "dimDS(D)");
+    get("omics", AGGREGATE, "dimDS(D)");
+
+    assertEquals(3, rewrites.get());
+    assertEquals(1, gets("hit"));
+    assertEquals(3, gets("miss"));
+  }
+
+  @Test
+  void testInvalidate() {
+    get("default", AGGREGATE, "dimDS(D)");
+    get("omics", AGGREGATE, "dimDS(D)");
+
+    expressionCache.invalidate("default");
+    get("default", AGGREGATE, "dimDS(D)");
+    get("omics", AGGREGATE, "dimDS(D)");
+
+    assertEquals(3, rewrites.get());
+  }
+
+  @Test
+  void testGetFaultyExpressionThrowsNewException() {
+    Supplier<String> rewriter =
+        () -> {
+          rewrites.incrementAndGet();
+          throw new ExpressionException("Error parsing expression 'dimDS(='");
+        };
+
+    var first =
+        assertThrows(
+            ExpressionException.class,
+            () -> expressionCache.get("default", AGGREGATE, "dimDS(=", rewriter));
+    var second =
+        assertThrows(
+            ExpressionException.class,
+            () -> expressionCache.get("default", AGGREGATE, "dimDS(=", rewriter));
+
+    assertNotSame(first, second);
+    assertEquals(first.getMessage(), second.getMessage());
+    assertEquals(1, rewrites.get());
+  }
+
+  @Test
+  void testGetLargeExpressionNotCached() {
+    var expression = "c(" + "1,".repeat(2000) + "1)";
+    get("default", AGGREGATE, expression);
+    get("default", AGGREGATE, expression);
+    get("default", AGGREGATE, "dimDS(D)");
+    get("default", AGGREGATE, "dimDS(D)");
+
+    assertEquals(3, rewrites.get());
+  }
+
+  @Test
+  void testGetOtherExceptionNotCached() {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            expressionCache.get(
+                "default",
+                AGGREGATE,
+                "dimDS(D)",
+                () -> {
+                  throw new IllegalStateException("no connection");
+                }));
+
+    assertEquals("dsBase::dimDS(D)", get("default", AGGREGATE, "dimDS(D)"));
+  }
+
+  private String get(String profile, DSMethodType methodType, String expression) {
+    return expressionCache.get(
+        profile,
+        methodType,
+        expression,
+        () -> {
+          rewrites.incrementAndGet();
+          return "dsBase::" + expression;
+        });
+  }
+
+  private double gets(String result) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", "expressions")
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+}
@@ -1,10 +1,14 @@
 package org.molgenis.armadillo.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +20,7 @@ import org.obiba.datashield.core.DSMethod;
 import org.obiba.datashield.core.DSMethodType;
 import org.obiba.datashield.core.NoSuchDSMethodException;
 import org.obiba.datashield.core.impl.DefaultDSMethod;
+import org.springframework.util.unit.DataSize;
 
 @ExtendWith(MockitoExtension.class)
 class ExpressionRewriterImplTest {
@@ -28,7 +33,8 @@ class ExpressionRewriterImplTest {
   @BeforeEach
   void beforeEach() {
     when(environments.getEnvironment(any(DSMethodType.class))).thenReturn(mockEnvironment);
-    expressionRewriter = new ExpressionRewriterImpl(environments);
+    var expressionCache = new ExpressionCache(new SimpleMeterRegistry(), DataSize.ofKilobytes(10));
+    expressionRewriter = new ExpressionRewriterImpl(environments, expressionCache);
   }
 
   @Test
@@ -76,4 +82,27 @@ class ExpressionRewriterImplTest {
   void testRewriteFaultyExpression() {
     assertThrows(ExpressionException.class, () -> expressionRewriter.rewriteAggregate("meanDS(="));
   }
+
+  @Test
+  void testRewriteCached() {
+    DSMethod meanDS = new DefaultDSMethod("meanDS", "dsBase::meanDS", "dsBase", "1.2.3");
+    when(mockEnvironment.getMethod("meanDS")).thenReturn(meanDS);
+    when(mockEnvironment.getMethodType()).thenReturn(DSMethodType.AGGREGATE);
+
+    expressionRewriter.rewriteAggregate("meanDS(D$age)");
+    assertEquals("dsBase::meanDS(D$age)", expressionRewriter.rewriteAggregate("meanDS(D$age)"));
+
+    verify(mockEnvironment, times(1)).getMethod("meanDS");
+  }
+
+  @Test
+  void testRewriteFaultyExpressionCached() {
+    var exception =
+        assertThrows(ExpressionException.class, () -> expressionRewriter.rewriteAssign("dim(="));
+    var cached =
+        assertThrows(ExpressionException.class, () -> expressionRewriter.rewriteAssign("dim(="));
+    assertNotSame(exception, cached);
+    assertEquals(exception.getMessage(), cached.getMessage());
+    verify(environments, times(1)).getEnvironment(DSMethodType.ASSIGN);
+  }
 }
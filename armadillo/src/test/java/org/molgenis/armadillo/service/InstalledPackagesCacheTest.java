@@ -0,0 +1,87 @@
+package org.molgenis.armadillo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.metadata.InstalledPackages;
+import org.molgenis.armadillo.metadata.PackagesLoader;
+import org.molgenis.armadillo.metadata.PackagesMetadata;
+import org.molgenis.armadillo.profile.DockerService;
+import org.molgenis.r.model.RPackage;
+
+@ExtendWith(MockitoExtension.class)
+class InstalledPackagesCacheTest {
+
+  @Mock PackagesLoader packagesLoader;
+  @Mock DockerService dockerService;
+  @Mock Supplier<List<RPackage>> installedPackages;
+
+  private final List<RPackage> packages =
+      List.of(
+          RPackage.builder()
+              .setName("dsBase")
+              .setLibPath("/usr/local/lib/R/site-library")
+              .setVersion("6.2.0")
+              .setBuilt("4.2.1")
+              .build());
+
+  @Test
+  void testGetPackagesCached() {
+    var metadata = PackagesMetadata.create();
+    metadata.getProfiles().put("default", InstalledPackages.create("image/container", packages));
+    when(packagesLoader.load()).thenReturn(metadata);
+    when(dockerService.getEnvironmentId("default")).thenReturn(Optional.of("image/container"));
+    var cache = new InstalledPackagesCache(packagesLoader, Optional.of(dockerService));
+
+    assertEquals(packages, cache.getPackages("default", installedPackages));
+    verify(installedPackages, never()).get();
+    verify(packagesLoader, never()).save(metadata);
+  }
+
+  @Test
+  void testGetPackagesEnvironmentChanged() {
+    var metadata = PackagesMetadata.create();
+    metadata.getProfiles().put("default", InstalledPackages.create("image/container", List.of()));
+    when(packagesLoader.load()).thenReturn(metadata);
+    when(dockerService.getEnvironmentId("default")).thenReturn(Optional.of("image/other"));
+    when(installedPackages.get()).thenReturn(packages);
+    var cache = new InstalledPackagesCache(packagesLoader, Optional.of(dockerService));
+
+    assertEquals(packages, cache.getPackages("default", installedPackages));
+    assertEquals(
+        InstalledPackages.create("image/other", packages), metadata.getProfiles().get("default"));
+    verify(packagesLoader).save(metadata);
+  }
+
+  @Test
+  void testGetPackagesWithoutDocker() {
+    when(packagesLoader.load()).thenReturn(PackagesMetadata.create());
+    when(installedPackages.get()).thenReturn(packages);
+    var cache = new InstalledPackagesCache(packagesLoader, Optional.empty());
+
+    assertEquals(packages, cache.getPackages("default", installedPackages));
+    verify(packagesLoader, never()).save(PackagesMetadata.create());
+  }
+
+  @Test
+  void testEvict() {
+    var metadata = PackagesMetadata.create();
+    metadata.getProfiles().put("default", InstalledPackages.create("image/container", packages));
+    when(packagesLoader.load()).thenReturn(metadata);
+    var cache = new InstalledPackagesCache(packagesLoader, Optional.of(dockerService));
+
+    cache.evict("default");
+
+    assertEquals(0, metadata.getProfiles().size());
+    verify(packagesLoader).save(metadata);
+  }
+}
@@ -5,6 +5,7 @@ import static java.util.Collections.singletonList;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -22,12 +23,26 @@ import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Principal;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type.Repetition;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -59,6 +74,7 @@ class ArmadilloStorageServiceTest {
   @Mock ObjectMetadata item;
   @Mock InputStream is;
   @Autowired ArmadilloStorageService armadilloStorage;
+  @TempDir Path tempDir;
 
   @EnableGlobalMethodSecurity(prePostEnabled = true)
   @Configuration
@@ -197,15 +213,12 @@ class ArmadilloStorageServiceTest {
   @Test
   @WithMockUser(roles = "SU")
   void testMoveObject() {
-    var inputStream = mock(InputStream.class);
     mockExistingObject("shared-test", "test.parquet");
-    when(storageService.load("shared-test", "test.parquet")).thenReturn(inputStream);
 
     armadilloStorage.moveObject("test", "renamed.parquet", "test.parquet");
 
-    verify(storageService)
-        .save(inputStream, "shared-test", "renamed.parquet", APPLICATION_OCTET_STREAM);
-    verify(storageService).delete("shared-test", "test.parquet");
+    verify(storageService).move("shared-test", "test.parquet", "renamed.parquet");
+    verifyNoObjectLoaded();
   }
 
   @Test
@@ -265,14 +278,12 @@ class ArmadilloStorageServiceTest {
   @Test
   @WithMockUser(roles = "SU")
   void testCopyObject() {
-    var inputStream = mock(InputStream.class);
     mockExistingObject("shared-test", "test.parquet");
-    when(storageService.load("shared-test", "test.parquet")).thenReturn(inputStream);
 
     armadilloStorage.copyObject("test", "copy.parquet", "test.parquet");
 
-    verify(storageService)
-        .save(inputStream, "shared-test", "copy.parquet", APPLICATION_OCTET_STREAM);
+    verify(storageService).copy("shared-test", "test.parquet", "copy.parquet");
+    verifyNoObjectLoaded();
     verifyNoObjectDeleted();
   }
 
@@ -468,6 +479,137 @@ class ArmadilloStorageServiceTest {
     assertSame(is, armadilloStorage.loadTable("gecko", "1_0_release_1_1/gecko"));
   }
 
+  @Test
+  @WithMockUser(roles = "GECKO_RESEARCHER")
+  void testLoadTableWithoutVariablesLoadsTable() {
+    when(storageService.load(SHARED_GECKO, "1_0_release_1_1/gecko.parquet")).thenReturn(is);
+    assertSame(is, armadilloStorage.loadTable("gecko", "1_0_release_1_1/gecko", List.of()));
+    verify(storageService, never()).getInputFile(any(), any());
+  }
+
+  @Test
+  @WithMockUser(roles = "GECKO_RESEARCHER")
+  void testLoadTableWithVariablesProjectsTable() throws Exception {
+    Path path = Path.of(getClass().getClassLoader().getResource("patient.parquet").toURI());
+    when(storageService.getInputFile(SHARED_GECKO, "1_0_release_1_1/gecko.parquet"))
+        .thenReturn(new LocalInputFile(path));
+
+    Path projection = tempDir.resolve("projection.parquet");
+    try (var inputStream =
+        armadilloStorage.loadTable("gecko", "1_0_release_1_1/gecko", List.of("name"))) {
+      Files.copy(inputStream, projection);
+    }
+
+    assertProjected(path, projection, Set.of("name"));
+    verify(storageService, never()).load(any(), any());
+  }
+
+  @Test
+  @WithMockUser(roles = "GECKO_RESEARCHER")
+  void testLoadTableIgnoresUnknownVariables() throws Exception {
+    Path path = Path.of(getClass().getClassLoader().getResource("patient.parquet").toURI());
+    when(storageService.getInputFile(SHARED_GECKO, "1_0_release_1_1/gecko.parquet"))
+        .thenReturn(new LocalInputFile(path));
+
+    Path projection = tempDir.resolve("projection.parquet");
+    try (var inputStream =
+        armadilloStorage.loadTable(
+            "gecko", "1_0_release_1_1/gecko", List.of("unknown", "name", "age"))) {
+      Files.copy(inputStream, projection);
+    }
+
+    assertProjected(path, projection, Set.of("name", "age"));
+    verify(storageService, never()).load(any(), any());
+  }
+
+  @Test
+  @WithMockUser(roles = "GECKO_RESEARCHER")
+  void testLoadTableWithAllVariablesLoadsTable() throws Exception {
+    Path path = Path.of(getClass().getClassLoader().getResource("patient.parquet").toURI());
+    when(storageService.getInputFile(SHARED_GECKO, "1_0_release_1_1/gecko.parquet"))
+        .thenReturn(new LocalInputFile(path));
+    when(storageService.load(SHARED_GECKO, "1_0_release_1_1/gecko.parquet")).thenReturn(is);
+    var variables = new ArrayList<>(readRows(path).get(0).keySet());
+    variables.add("unknown");
+
+    assertSame(is, armadilloStorage.loadTable("gecko", "1_0_release_1_1/gecko", variables));
+  }
+
+  @Test
+  @WithMockUser(roles = "GECKO_RESEARCHER")
+  void testLoadTableThatCantBeProjectedLoadsTable() throws Exception {
+    Path path = Files.writeString(tempDir.resolve("gecko.parquet"), "not a parquet file");
+    when(storageService.getInputFile(SHARED_GECKO, "1_0_release_1_1/gecko.parquet"))
+        .thenReturn(new LocalInputFile(path));
+    when(storageService.load(SHARED_GECKO, "1_0_release_1_1/gecko.parquet")).thenReturn(is);
+
+    assertSame(
+        is, armadilloStorage.loadTable("gecko", "1_0_release_1_1/gecko", List.of("name")));
+  }
+
+  /**
+   * The projection has the same rows and columns as the table, the kept columns and the columns
+   * that can't be emptied (required or nested columns) have the same values, and the other columns
+   * are all null.
+   */
+  private static void assertProjected(Path table, Path projection, Set<String> kept)
+      throws IOException {
+    MessageType schema;
+    try (var original = ParquetFileReader.open(new LocalInputFile(table));
+        var projected = ParquetFileReader.open(new LocalInputFile(projection))) {
+      schema = original.getFooter().getFileMetaData().getSchema();
+      assertEquals(schema, projected.getFooter().getFileMetaData().getSchema());
+      assertEquals(original.getRecordCount(), projected.getRecordCount());
+    }
+    var originalRows = readRows(table);
+    var projectedRows = readRows(projection);
+    assertEquals(originalRows.size(), projectedRows.size());
+    for (int i = 0; i < originalRows.size(); i++) {
+      for (var field : schema.getFields()) {
+        var name = field.getName();
+        if (kept.contains(name)
+            || !field.isPrimitive()
+            || !field.isRepetition(Repetition.OPTIONAL)) {
+          assertEquals(originalRows.get(i).get(name), projectedRows.get(i).get(name), name);
+        } else {
+          assertNull(projectedRows.get(i).get(name), name);
+        }
+      }
+    }
+    for (var name : kept) {
+      assertTrue(originalRows.stream().anyMatch(row -> row.get(name) != null), name);
+    }
+  }
+
+  /** Reads all rows of a parquet file, with null for the columns that have no value. */
+  private static List<Map<String, String>> readRows(Path path) throws IOException {
+    var rows = new ArrayList<Map<String, String>>();
+    try (var reader = ParquetFileReader.open(new LocalInputFile(path))) {
+      var schema = reader.getFooter().getFileMetaData().getSchema();
+      var columnIO = new ColumnIOFactory().getColumnIO(schema);
+      PageReadStore rowGroup;
+      while ((rowGroup = reader.readNextRowGroup()) != null) {
+        var recordReader = columnIO.getRecordReader(rowGroup, new GroupRecordConverter(schema));
+        for (long i = 0; i < rowGroup.getRowCount(); i++) {
+          Group group = recordReader.read();
+          var row = new HashMap<String, String>();
+          for (int field = 0; field < schema.getFieldCount(); field++) {
+            String value = null;
+            if (group.getFieldRepetitionCount(field) > 0) {
+              value =
+                  schema.getType(field).isPrimitive()
+                      ? group.getValueToString(field, 0)
+                      : group.getGroup(field, 0).toString();
+            }
+            row.put(schema.getFieldName(field), value);
+          }
+          rows.add(row);
+        }
+      }
+    }
+    return rows;
+  }
+
   @Test
   @WithMockUser
   void testListWorkspaces() {
@@ -606,6 +748,8 @@ class ArmadilloStorageServiceTest {
   private void verifyNoObjectSaved() {
     verify(storageService, never())
         .save(any(InputStream.class), any(String.class), any(String.class), any(MediaType.class));
+    verify(storageService, never()).copy(any(String.class), any(String.class), any(String.class));
+    verify(storageService, never()).move(any(String.class), any(String.class), any(String.class));
   }
 
   private void verifyNoObjectLoaded() {
@@ -0,0 +1,117 @@
+package org.molgenis.armadillo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.exceptions.StorageException;
+
+@ExtendWith(MockitoExtension.class)
+class CachingStorageServiceTest {
+
+  @Mock StorageService storageService;
+  @Mock InputStream inputStream;
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private CachingStorageService cachingStorageService;
+
+  @BeforeEach
+  void beforeEach() {
+    cachingStorageService =
+        new CachingStorageService(storageService, meterRegistry, Duration.ofMinutes(1), 100);
+  }
+
+  @Test
+  void testListBucketsCached() {
+    when(storageService.listBuckets()).thenReturn(List.of("shared-lifecycle"));
+
+    assertEquals(List.of("shared-lifecycle"), cachingStorageService.listBuckets());
+    assertEquals(List.of("shared-lifecycle"), cachingStorageService.listBuckets());
+
+    verify(storageService, times(1)).listBuckets();
+    var hits = meterRegistry.get("cache.gets").tag("cache", "storage.buckets").tag("result", "hit");
+    assertEquals(1.0, hits.functionCounter().count());
+  }
+
+  @Test
+  void testCreateBucketEvictsBuckets() {
+    when(storageService.listBuckets()).thenReturn(List.of(), List.of("shared-lifecycle"));
+    cachingStorageService.listBuckets();
+
+    cachingStorageService.createBucketIfNotExists("shared-lifecycle");
+
+    assertEquals(List.of("shared-lifecycle"), cachingStorageService.listBuckets());
+  }
+
+  @Test
+  void testObjectExistsCachesNegative() {
+    when(storageService.objectExists("shared-lifecycle", "core/nonrep.parquet")).thenReturn(false);
+
+    assertFalse(cachingStorageService.objectExists("shared-lifecycle", "core/nonrep.parquet"));
+    assertFalse(cachingStorageService.objectExists("shared-lifecycle", "core/nonrep.parquet"));
+
+    verify(storageService, times(1)).objectExists("shared-lifecycle", "core/nonrep.parquet");
+  }
+
+  @Test
+  void testSaveEvictsObject() {
+    when(storageService.objectExists("shared-lifecycle", "core/nonrep.parquet"))
+        .thenReturn(false, true);
+    when(storageService.listObjects("shared-lifecycle")).thenReturn(List.of());
+    cachingStorageService.objectExists("shared-lifecycle", "core/nonrep.parquet");
+    cachingStorageService.listObjects("shared-lifecycle");
+
+    cachingStorageService.save(
+        inputStream, "shared-lifecycle", "core/nonrep.parquet", APPLICATION_OCTET_STREAM);
+
+    assertTrue(cachingStorageService.objectExists("shared-lifecycle", "core/nonrep.parquet"));
+    cachingStorageService.listObjects("shared-lifecycle");
+    verify(storageService, times(2)).listObjects("shared-lifecycle");
+  }
+
+  @Test
+  void testDeleteEvictsObject() {
+    when(storageService.objectExists("shared-lifecycle", "core/nonrep.parquet"))
+        .thenReturn(true, false);
+    cachingStorageService.objectExists("shared-lifecycle", "core/nonrep.parquet");
+
+    cachingStorageService.delete("shared-lifecycle", "core/nonrep.parquet");
+
+    assertFalse(cachingStorageService.objectExists("shared-lifecycle", "core/nonrep.parquet"));
+  }
+
+  @Test
+  void testDeleteBucketEvictsObjects() {
+    when(storageService.objectExists("shared-lifecycle", "core/nonrep.parquet"))
+        .thenReturn(true, false);
+    cachingStorageService.objectExists("shared-lifecycle", "core/nonrep.parquet");
+
+    cachingStorageService.deleteBucket("shared-lifecycle");
+
+    assertFalse(cachingStorageService.objectExists("shared-lifecycle", "core/nonrep.parquet"));
+  }
+
+  @Test
+  void testFailureNotCached() {
+    when(storageService.listObjects("shared-lifecycle"))
+        .thenThrow(new StorageException("error"))
+        .thenReturn(List.of());
+
+    assertThrows(
+        StorageException.class, () -> cachingStorageService.listObjects("shared-lifecycle"));
+    assertEquals(List.of(), cachingStorageService.listObjects("shared-lifecycle"));
+  }
+}
@@ -0,0 +1,75 @@
+package org.molgenis.armadillo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class LocalInputFileTest {
+
+  @TempDir Path tempDir;
+  private Path path;
+  private final byte[] contents = new byte[10000];
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    for (int i = 0; i < contents.length; i++) {
+      contents[i] = (byte) i;
+    }
+    path = Files.write(tempDir.resolve("table.parquet"), contents);
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {LocalInputFile.NO_MAPPING, 0})
+  void testStreamsAreIndependent(long mapThreshold) throws IOException {
+    var inputFile = new LocalInputFile(path, mapThreshold);
+    assertEquals(contents.length, inputFile.getLength());
+
+    try (var first = inputFile.newStream();
+        var second = inputFile.newStream()) {
+      first.seek(9000);
+      var firstBytes = new byte[100];
+      first.readFully(firstBytes);
+
+      var secondBytes = ByteBuffer.allocateDirect(100);
+      second.readFully(secondBytes);
+
+      assertArrayEquals(Arrays.copyOfRange(contents, 9000, 9100), firstBytes);
+      assertEquals(9100, first.getPos());
+      assertEquals(100, second.getPos());
+      secondBytes.flip();
+      var copied = new byte[100];
+      secondBytes.get(copied);
+      assertArrayEquals(Arrays.copyOfRange(contents, 0, 100), copied);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {LocalInputFile.NO_MAPPING, 0})
+  void testReadFullyPastEnd(long mapThreshold) throws IOException {
+    try (var stream = new LocalInputFile(path, mapThreshold).newStream()) {
+      stream.seek(9950);
+      assertThrows(EOFException.class, () -> stream.readFully(new byte[100]));
+      stream.seek(contents.length);
+      assertEquals(-1, stream.read());
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {LocalInputFile.NO_MAPPING, 0})
+  void testFileNotFound(long mapThreshold) {
+    var missing = tempDir.resolve("missing.parquet");
+    assertThrows(FileNotFoundException.class, () -> new LocalInputFile(missing, mapThreshold));
+  }
+}
@@ -8,12 +8,15 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Collections;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.molgenis.armadillo.exceptions.IllegalPathException;
@@ -25,10 +28,11 @@ class LocalStorageServiceTest {
       "object/some/path"; // n.b. can be subfolders you see?
   public static final String SOME_PROJECT = "project";
   LocalStorageService localStorageService;
+  String tmpDir;
 
   @BeforeEach
   void beforeEach() throws IOException {
-    String tmpDir = Files.createTempDirectory("armadilloStorageTest").toFile().getAbsolutePath();
+    tmpDir = Files.createTempDirectory("armadilloStorageTest").toFile().getAbsolutePath();
     localStorageService = new LocalStorageService(tmpDir);
   }
 
@@ -94,6 +98,105 @@ class LocalStorageServiceTest {
         localStorageService.load("user-admin", "blah.RData").readAllBytes());
   }
 
+  @Test
+  void testTransfer() {
+    localStorageService.save(
+        new ByteArrayInputStream("content".getBytes()),
+        "user-admin",
+        "blah.RData",
+        MediaType.TEXT_PLAIN);
+
+    var outputStream = new ByteArrayOutputStream();
+    localStorageService.transfer("user-admin", "blah.RData", 3, 4, outputStream);
+
+    assertArrayEquals("tent".getBytes(), outputStream.toByteArray());
+    assertEquals(7, localStorageService.getObjectMetadata("user-admin", "blah.RData").size());
+  }
+
+  @Test
+  void testUnfinishedWritesAreNotListedAndRemovedAtStartup() throws IOException {
+    localStorageService.createBucketIfNotExists("shared-test");
+    var leftover = Path.of(tmpDir, LocalStorageService.STAGING_DIR, "123.tmp");
+    Files.writeString(leftover, "unfinished");
+
+    assertEquals(List.of("shared-test"), localStorageService.listBuckets());
+    assertEquals(List.of(), localStorageService.listObjects("shared-test"));
+
+    new LocalStorageService(tmpDir);
+    assertFalse(Files.exists(leftover));
+  }
+
+  @Test
+  void testCopy() throws IOException {
+    localStorageService.save(
+        new ByteArrayInputStream("test".getBytes()),
+        "shared-test",
+        "a.RData",
+        MediaType.TEXT_PLAIN);
+
+    localStorageService.copy("shared-test", "a.RData", "folder/b.RData");
+    localStorageService.save(
+        new ByteArrayInputStream("new".getBytes()),
+        "shared-test",
+        "a.RData",
+        MediaType.TEXT_PLAIN);
+
+    assertArrayEquals(
+        "test".getBytes(),
+        localStorageService.load("shared-test", "folder/b.RData").readAllBytes());
+    assertArrayEquals(
+        "new".getBytes(), localStorageService.load("shared-test", "a.RData").readAllBytes());
+  }
+
+  @Test
+  void testMove() throws IOException {
+    localStorageService.save(
+        new ByteArrayInputStream("test".getBytes()),
+        "shared-test",
+        "a.RData",
+        MediaType.TEXT_PLAIN);
+
+    localStorageService.move("shared-test", "a.RData", "folder/b.RData");
+
+    assertFalse(localStorageService.objectExists("shared-test", "a.RData"));
+    assertArrayEquals(
+        "test".getBytes(),
+        localStorageService.load("shared-test", "folder/b.RData").readAllBytes());
+  }
+
+  @Test
+  void testCompose() throws IOException {
+    localStorageService.save(
+        new ByteArrayInputStream("con".getBytes()), "system", "uploads/1", MediaType.TEXT_PLAIN);
+    localStorageService.save(
+        new ByteArrayInputStream("tent".getBytes()), "system", "uploads/2", MediaType.TEXT_PLAIN);
+
+    localStorageService.compose(
+        "system", List.of("uploads/1", "uploads/2"), "shared-lifecycle", "core/nonrep.parquet");
+
+    assertArrayEquals(
+        "content".getBytes(),
+        localStorageService.load("shared-lifecycle", "core/nonrep.parquet").readAllBytes());
+    assertTrue(localStorageService.objectExists("system", "uploads/1"));
+  }
+
+  @Test
+  void testComposeOverCopy() throws IOException {
+    localStorageService.save(
+        new ByteArrayInputStream("test".getBytes()), "shared-test", "a", MediaType.TEXT_PLAIN);
+    localStorageService.copy("shared-test", "a", "b");
+    localStorageService.save(
+        new ByteArrayInputStream("new".getBytes()), "system", "uploads/1", MediaType.TEXT_PLAIN);
+
+    localStorageService.compose("system", List.of("uploads/1"), "shared-test", "b");
+
+    assertArrayEquals(
+        "new".getBytes(), localStorageService.load("shared-test", "b").readAllBytes());
+    assertArrayEquals(
+        "test".getBytes(), localStorageService.load("shared-test", "a").readAllBytes());
+    assertEquals(2, localStorageService.listObjects("shared-test").size());
+  }
+
   @Test
   void testDelete() {
     // write a file
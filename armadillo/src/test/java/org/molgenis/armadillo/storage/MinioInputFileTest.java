@@ -0,0 +1,82 @@
+package org.molgenis.armadillo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.armadillo.storage.MinioInputFile.BLOCK_SIZE;
+
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Random;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MinioInputFileTest {
+
+  @Mock MinioClient minioClient;
+  private final byte[] bytes = new byte[16 * BLOCK_SIZE + 100];
+  private MinioInputFile inputFile;
+
+  @BeforeEach
+  void beforeEach() throws Exception {
+    new Random(0).nextBytes(bytes);
+    when(minioClient.getObject(any(GetObjectArgs.class)))
+        .thenAnswer(
+            invocation -> {
+              GetObjectArgs args = invocation.getArgument(0);
+              int from = args.offset().intValue();
+              int to = (int) (from + args.length());
+              return new GetObjectResponse(
+                  Headers.of(),
+                  args.bucket(),
+                  null,
+                  args.object(),
+                  new ByteArrayInputStream(Arrays.copyOfRange(bytes, from, to)));
+            });
+    inputFile = new MinioInputFile(minioClient, "shared-lifecycle", "core.parquet", bytes.length);
+  }
+
+  @Test
+  void testSequentialCopyStreams() throws Exception {
+    int start = 1000;
+    byte[] copy = new byte[bytes.length - start];
+    try (var stream = inputFile.newStream()) {
+      stream.seek(start);
+      for (int offset = 0; offset < copy.length; offset += 65536) {
+        stream.readFully(copy, offset, Math.min(65536, copy.length - offset));
+      }
+    }
+
+    assertArrayEquals(Arrays.copyOfRange(bytes, start, bytes.length), copy);
+    // the first block, and then one response for the rest
+    verify(minioClient, times(2)).getObject(any(GetObjectArgs.class));
+  }
+
+  @Test
+  void testSmallReadsUseBlocks() throws Exception {
+    byte[] footer = new byte[8];
+    byte[] header = new byte[4];
+    try (var stream = inputFile.newStream()) {
+      stream.seek(bytes.length - 8);
+      stream.readFully(footer);
+      stream.seek(0);
+      stream.readFully(header);
+      stream.seek(bytes.length - 20);
+      stream.readFully(footer);
+    }
+
+    assertArrayEquals(Arrays.copyOfRange(bytes, bytes.length - 20, bytes.length - 12), footer);
+    assertArrayEquals(Arrays.copyOfRange(bytes, 0, 4), header);
+    verify(minioClient, times(2)).getObject(any(GetObjectArgs.class));
+  }
+}
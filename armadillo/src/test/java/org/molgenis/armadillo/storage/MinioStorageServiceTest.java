@@ -29,8 +29,13 @@ import io.minio.StatObjectArgs;
 import io.minio.StatObjectResponse;
 import io.minio.errors.ErrorResponseException;
 import io.minio.messages.ErrorResponse;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import okhttp3.Headers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -160,4 +165,33 @@ class MinioStorageServiceTest {
 
     verify(minioClient).removeBucket(RemoveBucketArgs.builder().bucket("test").build());
   }
+
+  @Test
+  void testPreview() throws Exception {
+    var bytes =
+        Files.readAllBytes(
+            Path.of(getClass().getClassLoader().getResource("patient.parquet").toURI()));
+    var statObjectResponse = mock(StatObjectResponse.class);
+    when(statObjectResponse.size()).thenReturn((long) bytes.length);
+    when(minioClient.statObject(
+            StatObjectArgs.builder().bucket("shared-lifecycle").object("patient.parquet").build()))
+        .thenReturn(statObjectResponse);
+    when(minioClient.getObject(any(GetObjectArgs.class)))
+        .thenAnswer(
+            invocation -> {
+              GetObjectArgs args = invocation.getArgument(0);
+              int from = args.offset().intValue();
+              int to = (int) (from + args.length());
+              return new GetObjectResponse(
+                  Headers.of(),
+                  args.bucket(),
+                  null,
+                  args.object(),
+                  new ByteArrayInputStream(Arrays.copyOfRange(bytes, from, to)));
+            });
+
+    var preview = minioStorageService.preview("shared-lifecycle", "patient.parquet", 10, 10);
+
+    assertEquals("Patient1", preview.get(0).get("name"));
+  }
 }
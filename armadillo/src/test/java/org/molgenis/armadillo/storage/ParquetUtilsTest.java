@@ -1,19 +1,101 @@
 package org.molgenis.armadillo.storage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.schema.Type;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class ParquetUtilsTest {
+  @TempDir Path tempDir;
+
   @Test
   public void testParquetPreview() throws IOException, URISyntaxException {
     Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
     List<Map<String, String>> preview = ParquetUtils.previewRecords(path, 10, 10);
     assertEquals("Patient1", preview.get(0).get("name"));
   }
+
+  @Test
+  public void testParquetPreviewColumnLimit() throws IOException, URISyntaxException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    List<Map<String, String>> preview = ParquetUtils.previewRecords(path, 10, 1);
+    assertEquals(1, preview.get(0).size());
+  }
+
+  @Test
+  public void testReadMetadata() throws IOException, URISyntaxException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    TableMetadata metadata = ParquetUtils.readMetadata(new LocalInputFile(path));
+
+    try (var reader = ParquetFileReader.open(new LocalInputFile(path))) {
+      assertEquals(reader.getRecordCount(), metadata.rowCount());
+      assertEquals(reader.getRowGroups().size(), metadata.rowGroups().size());
+      assertEquals(
+          reader.getFooter().getFileMetaData().getSchema().getFields().stream()
+              .map(Type::getName)
+              .toList(),
+          metadata.columns().stream().map(TableMetadata.Column::name).toList());
+    }
+    assertTrue(metadata.columns().stream().allMatch(column -> column.compressedSize() > 0));
+  }
+
+  @Test
+  public void testProjectColumns() throws IOException, URISyntaxException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    Path projection = tempDir.resolve("projection.parquet");
+
+    try (OutputStream outputStream = Files.newOutputStream(projection)) {
+      assertTrue(
+          ParquetUtils.projectColumns(new LocalInputFile(path), List.of("name"), outputStream));
+    }
+
+    try (var original = ParquetFileReader.open(new LocalInputFile(path));
+        var projected = ParquetFileReader.open(new LocalInputFile(projection))) {
+      assertEquals(
+          original.getFooter().getFileMetaData().getSchema(),
+          projected.getFooter().getFileMetaData().getSchema());
+      assertEquals(
+          original.getFooter().getFileMetaData().getKeyValueMetaData(),
+          projected.getFooter().getFileMetaData().getKeyValueMetaData());
+      assertEquals(original.getRecordCount(), projected.getRecordCount());
+    }
+    List<Map<String, String>> original = ParquetUtils.previewRecords(path, 3, 10);
+    List<Map<String, String>> preview = ParquetUtils.previewRecords(projection, 3, 10);
+    for (int i = 0; i < preview.size(); i++) {
+      Map<String, String> originalRow = original.get(i);
+      Map<String, String> projectedRow = preview.get(i);
+      assertEquals(originalRow.keySet(), projectedRow.keySet());
+      assertEquals(originalRow.get("name"), projectedRow.get("name"));
+      assertNotEquals(originalRow.get("age"), projectedRow.get("age"));
+    }
+  }
+
+  @Test
+  public void testProjectColumnsAllColumnsSelected() throws IOException, URISyntaxException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    List<String> columns;
+    try (var reader = ParquetFileReader.open(new LocalInputFile(path))) {
+      columns =
+          reader.getFooter().getFileMetaData().getSchema().getFields().stream()
+              .map(Type::getName)
+              .toList();
+    }
+    var outputStream = new ByteArrayOutputStream();
+
+    assertFalse(ParquetUtils.projectColumns(new LocalInputFile(path), columns, outputStream));
+    assertEquals(0, outputStream.size());
+  }
 }
@@ -0,0 +1,180 @@
+package org.molgenis.armadillo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.armadillo.storage.UploadService.MIN_PART_SIZE;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.exceptions.DuplicateObjectException;
+import org.molgenis.armadillo.exceptions.InvalidUploadException;
+import org.molgenis.armadillo.exceptions.UnknownUploadException;
+import org.springframework.http.MediaType;
+
+@ExtendWith(MockitoExtension.class)
+class UploadServiceTest {
+
+  @Mock ArmadilloStorageService armadilloStorage;
+  @Mock StorageService storageService;
+  private UploadService uploadService;
+
+  @BeforeEach
+  void beforeEach() {
+    uploadService =
+        new UploadService(armadilloStorage, storageService, Duration.ofHours(1), Duration.ZERO);
+    lenient()
+        .doAnswer(
+            invocation -> {
+              ((InputStream) invocation.getArgument(0)).readAllBytes();
+              return null;
+            })
+        .when(storageService)
+        .save(any(InputStream.class), any(), any(), any());
+  }
+
+  @Test
+  void testStartUploadDuplicate() {
+    when(armadilloStorage.hasObject("lifecycle", "core/nonrep.parquet")).thenReturn(true);
+
+    assertThrows(
+        DuplicateObjectException.class,
+        () -> uploadService.startUpload("lifecycle", "core/nonrep.parquet"));
+  }
+
+  @Test
+  void testCompleteUpload() {
+    var upload = uploadService.startUpload("lifecycle", "core/nonrep.parquet");
+    var id = upload.id();
+
+    uploadService.addPart("lifecycle", id, 2, stream(3));
+    uploadService.addPart("lifecycle", id, 1, stream((int) MIN_PART_SIZE));
+    assertEquals(
+        new TreeMap<>(Map.of(1, MIN_PART_SIZE, 2, 3L)),
+        uploadService.getUpload("lifecycle", id).parts());
+
+    uploadService.completeUpload("lifecycle", id);
+
+    var parts = List.of("upload-" + id + "-00001", "upload-" + id + "-00002");
+    verify(storageService)
+        .save(any(InputStream.class), eq("system"), eq(parts.get(0)), any(MediaType.class));
+    verify(storageService).compose("system", parts, "shared-lifecycle", "core/nonrep.parquet");
+    verify(storageService).delete("system", parts.get(0));
+    verify(storageService).delete("system", parts.get(1));
+    verify(storageService).delete("system", "upload-" + id + ".json");
+    assertThrows(UnknownUploadException.class, () -> uploadService.getUpload("lifecycle", id));
+  }
+
+  @Test
+  void testCompleteUploadMissingPart() {
+    var id = uploadService.startUpload("lifecycle", "core/nonrep.parquet").id();
+    uploadService.addPart("lifecycle", id, 1, stream((int) MIN_PART_SIZE));
+    uploadService.addPart("lifecycle", id, 3, stream(3));
+
+    assertThrows(
+        InvalidUploadException.class, () -> uploadService.completeUpload("lifecycle", id));
+    verify(storageService, never()).compose(any(), any(), any(), any());
+  }
+
+  @Test
+  void testCompleteUploadSmallPart() {
+    var id = uploadService.startUpload("lifecycle", "core/nonrep.parquet").id();
+    uploadService.addPart("lifecycle", id, 1, stream(3));
+    uploadService.addPart("lifecycle", id, 2, stream(3));
+
+    assertThrows(
+        InvalidUploadException.class, () -> uploadService.completeUpload("lifecycle", id));
+  }
+
+  @Test
+  void testAddPartInvalidNumber() {
+    var id = uploadService.startUpload("lifecycle", "core/nonrep.parquet").id();
+    var inputStream = stream(3);
+
+    assertThrows(
+        InvalidUploadException.class,
+        () -> uploadService.addPart("lifecycle", id, 0, inputStream));
+  }
+
+  @Test
+  void testGetUploadOfOtherProject() {
+    var id = uploadService.startUpload("lifecycle", "core/nonrep.parquet").id();
+
+    assertThrows(UnknownUploadException.class, () -> uploadService.getUpload("gecko", id));
+  }
+
+  @Test
+  void testAbortUpload() {
+    var id = uploadService.startUpload("lifecycle", "core/nonrep.parquet").id();
+    uploadService.addPart("lifecycle", id, 1, stream(3));
+
+    uploadService.abortUpload("lifecycle", id);
+
+    verify(storageService).delete("system", "upload-" + id + "-00001");
+    assertThrows(UnknownUploadException.class, () -> uploadService.getUpload("lifecycle", id));
+  }
+
+  @Test
+  void testExpiredUploadsAreRemoved() throws InterruptedException {
+    uploadService =
+        new UploadService(armadilloStorage, storageService, Duration.ofMillis(1), Duration.ZERO);
+    var id = uploadService.startUpload("lifecycle", "core/nonrep.parquet").id();
+    Thread.sleep(10);
+
+    uploadService.startUpload("lifecycle", "core/nonrep2.parquet");
+
+    assertThrows(UnknownUploadException.class, () -> uploadService.getUpload("lifecycle", id));
+  }
+
+  @Test
+  void testRestoreUploads(@TempDir Path tempDir) {
+    var storage = new LocalStorageService(tempDir.toString());
+    var before = new UploadService(armadilloStorage, storage, Duration.ofHours(1), Duration.ZERO);
+    var id = before.startUpload("lifecycle", "core/nonrep.parquet").id();
+    before.addPart("lifecycle", id, 1, stream(3));
+
+    var after = new UploadService(armadilloStorage, storage, Duration.ofHours(1), Duration.ZERO);
+    after.restoreUploads();
+
+    var upload = after.getUpload("lifecycle", id);
+    assertEquals("core/nonrep.parquet", upload.object());
+    assertEquals(Map.of(1, 3L), upload.parts());
+  }
+
+  @Test
+  void testSweepRemovesOrphans(@TempDir Path tempDir) throws InterruptedException {
+    var storage = new LocalStorageService(tempDir.toString());
+    var before = new UploadService(armadilloStorage, storage, Duration.ofHours(1), Duration.ZERO);
+    var id = before.startUpload("lifecycle", "core/nonrep.parquet").id();
+    before.addPart("lifecycle", id, 1, stream(3));
+    storage.delete("system", "upload-" + id + ".json");
+    Thread.sleep(10);
+
+    var after = new UploadService(armadilloStorage, storage, Duration.ofMillis(1), Duration.ZERO);
+    after.restoreUploads();
+    after.sweep();
+
+    assertFalse(storage.objectExists("system", "upload-" + id + "-00001"));
+  }
+
+  private static InputStream stream(int size) {
+    return new ByteArrayInputStream(new byte[size]);
+  }
+}
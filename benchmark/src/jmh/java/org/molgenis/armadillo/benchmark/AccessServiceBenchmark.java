@@ -0,0 +1,105 @@
+package org.molgenis.armadillo.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.armadillo.metadata.AccessLoader;
+import org.molgenis.armadillo.metadata.AccessMetadata;
+import org.molgenis.armadillo.metadata.AccessService;
+import org.molgenis.armadillo.metadata.ProjectDetails;
+import org.molgenis.armadillo.metadata.ProjectPermission;
+import org.molgenis.armadillo.metadata.UserDetails;
+import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.LocalStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Gets the authorities of a random user, like every request with a bearer token does, for a server
+ * with 200 projects and 20 permissions per user, from several threads at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccessServiceBenchmark {
+
+  private static final int PROJECTS = 200;
+  private static final int PERMISSIONS_PER_USER = 20;
+
+  @Param({"100", "10000"})
+  private int users;
+
+  private Path directory;
+  private AccessService accessService;
+
+  @Setup
+  public void setUp() throws IOException {
+    var metadata = AccessMetadata.create();
+    for (int project = 0; project < PROJECTS; project++) {
+      var name = "project" + project;
+      metadata.getProjects().put(name, ProjectDetails.create(name, Set.of()));
+    }
+    for (int user = 0; user < users; user++) {
+      var email = getEmail(user);
+      var details = UserDetails.create(email, "First", "Last", "Institute", user == 0, Set.of());
+      metadata.getUsers().put(email, details);
+      for (int i = 0; i < PERMISSIONS_PER_USER; i++) {
+        var project = "project" + ((user + i * 7) % PROJECTS);
+        metadata.getPermissions().add(ProjectPermission.create(email, project));
+      }
+    }
+    directory = Files.createTempDirectory("access-benchmark");
+    var storage = new ArmadilloStorageService(new LocalStorageService(directory.toString()));
+    accessService = new AccessService(storage, new FakeAccessLoader(metadata), null);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  private static String getEmail(int user) {
+    return "user" + user + "@example.org";
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Collection<GrantedAuthority> getAuthoritiesForEmail() {
+    var email = getEmail(ThreadLocalRandom.current().nextInt(users));
+    return accessService.getAuthoritiesForEmail(email, Map.of());
+  }
+
+  /** Access metadata that is already loaded, and isn't stored. */
+  private static class FakeAccessLoader extends AccessLoader {
+    private final AccessMetadata metadata;
+
+    FakeAccessLoader(AccessMetadata metadata) {
+      this.metadata = metadata;
+    }
+
+    @Override
+    public AccessMetadata load() {
+      return metadata;
+    }
+
+    @Override
+    public AccessMetadata save(AccessMetadata newMetadata) {
+      return newMetadata;
+    }
+  }
+}
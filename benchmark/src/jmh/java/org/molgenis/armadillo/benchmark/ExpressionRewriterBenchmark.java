@@ -0,0 +1,122 @@
+package org.molgenis.armadillo.benchmark;
+
+import com.google.common.collect.ImmutableSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.armadillo.metadata.PackagesLoader;
+import org.molgenis.armadillo.metadata.PackagesMetadata;
+import org.molgenis.armadillo.metadata.ProfileConfig;
+import org.molgenis.armadillo.service.DSEnvironmentCache;
+import org.molgenis.armadillo.service.ExpressionCache;
+import org.molgenis.armadillo.service.ExpressionRewriterImpl;
+import org.molgenis.armadillo.service.InstalledPackagesCache;
+import org.molgenis.r.RServerConnection;
+import org.molgenis.r.model.RPackage;
+import org.molgenis.r.service.PackageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Rewrites the DataSHIELD expressions of a typical analysis against the methods of dsBase, with
+ * the expression cache ({@code cacheSize} of 16MB) and without it (0B).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExpressionRewriterBenchmark {
+
+  private static final String ASSIGN =
+      "dataFrameDS(list(D$age,D$bmi,D$smoking),c(\"age\",\"bmi\",\"smoking\"),FALSE,TRUE,"
+          + "c(\"1\",\"2\",\"3\"),TRUE,FALSE)";
+  private static final String AGGREGATE =
+      "glmDS2(\"outcome~age+bmi+smoking\", \"binomial\", \"NULL\", \"NULL\", \"D\")";
+
+  @Param({"0B", "16MB"})
+  private String cacheSize;
+
+  private ExpressionRewriterImpl rewriter;
+
+  @Setup
+  public void setUp() {
+    var expressionCache = new ExpressionCache(new SimpleMeterRegistry(), DataSize.parse(cacheSize));
+    var installedPackagesCache =
+        new InstalledPackagesCache(new FakePackagesLoader(), Optional.empty());
+    var environments =
+        new DSEnvironmentCache(
+            new FakePackageService(),
+            () -> null,
+            ProfileConfig.createDefault(),
+            installedPackagesCache,
+            expressionCache);
+    environments.populateEnvironments();
+    rewriter = new ExpressionRewriterImpl(environments, expressionCache);
+  }
+
+  @Benchmark
+  public String rewriteAssign() {
+    return rewriter.rewriteAssign(ASSIGN);
+  }
+
+  @Benchmark
+  public String rewriteAggregate() {
+    return rewriter.rewriteAggregate(AGGREGATE);
+  }
+
+  /** The packages metadata of a fresh install, that isn't stored. */
+  private static class FakePackagesLoader extends PackagesLoader {
+    @Override
+    public PackagesMetadata load() {
+      return PackagesMetadata.create();
+    }
+
+    @Override
+    public PackagesMetadata save(PackagesMetadata metadata) {
+      return metadata;
+    }
+  }
+
+  /** An R environment with dsBase installed. */
+  private static class FakePackageService implements PackageService {
+    @Override
+    public List<RPackage> getInstalledPackages(RServerConnection connection) {
+      return List.of(
+          RPackage.builder()
+              .setName("dsBase")
+              .setLibPath("/usr/local/lib/R/site-library")
+              .setVersion("6.3.0")
+              .setBuilt("4.2.1")
+              .setAssignMethods(
+                  ImmutableSet.of(
+                      "dataFrameDS",
+                      "asFactorDS2",
+                      "cbindDS",
+                      "rbindDS",
+                      "dataFrameSubsetDS2",
+                      "c=base::c",
+                      "list=base::list"))
+              .setAggregateMethods(
+                  ImmutableSet.of(
+                      "glmDS1",
+                      "glmDS2",
+                      "meanDS",
+                      "quantileMeanDS",
+                      "tableDS",
+                      "dimDS",
+                      "classDS"))
+              .build());
+    }
+
+    @Override
+    public void loadPackages(RServerConnection connection, Set<String> packages) {}
+  }
+}
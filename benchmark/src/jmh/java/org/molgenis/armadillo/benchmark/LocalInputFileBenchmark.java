@@ -0,0 +1,88 @@
+package org.molgenis.armadillo.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.armadillo.storage.LocalInputFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Reads a table of a million rows through {@link LocalInputFile}, from start to end in chunks like
+ * the ones of a download, and at random positions like the column chunks that are read when a
+ * table is projected. Runs with and without memory mapping ({@code mapThreshold} of 0 and -1), and
+ * with several threads sharing the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LocalInputFileBenchmark {
+
+  private static final int ROWS = 1_000_000;
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  @Param({"-1", "0"})
+  private long mapThreshold;
+
+  private Path directory;
+  private LocalInputFile file;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("input-file-benchmark");
+    var table = directory.resolve("table.parquet");
+    Tables.write(table, ROWS);
+    file = new LocalInputFile(table, mapThreshold);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  /** The buffer and random positions of a thread. */
+  @State(Scope.Thread)
+  public static class Reader {
+    final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+    final Random random = new Random(0);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public long readSequential(Reader reader) throws IOException {
+    long total = 0;
+    try (var stream = file.newStream()) {
+      int read;
+      while ((read = stream.read(reader.buffer.clear())) > 0) {
+        total += read;
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  @Threads(4)
+  public long readRandom(Reader reader) throws IOException {
+    long total = 0;
+    try (var stream = file.newStream()) {
+      for (int i = 0; i < 100; i++) {
+        stream.seek(reader.random.nextLong(file.getLength() - CHUNK_SIZE));
+        stream.readFully(reader.buffer.clear());
+        total += reader.buffer.position();
+      }
+    }
+    return total;
+  }
+}
@@ -0,0 +1,59 @@
+package org.molgenis.armadillo.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.armadillo.storage.LocalStorageService;
+import org.molgenis.armadillo.storage.ObjectMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Lists the objects of a project that has its tables in folders of 100 objects each, like the
+ * folders of a cohort's releases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocalStorageBenchmark {
+
+  private static final String BUCKET = "shared-benchmark";
+  private static final int OBJECTS_PER_FOLDER = 100;
+
+  @Param({"100", "10000"})
+  private int objects;
+
+  private Path directory;
+  private LocalStorageService storageService;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("storage-benchmark");
+    for (int i = 0; i < objects; i++) {
+      var folder = directory.resolve(BUCKET).resolve("release" + i / OBJECTS_PER_FOLDER);
+      Files.createDirectories(folder);
+      Files.write(folder.resolve("table" + i + ".parquet"), new byte[128]);
+    }
+    storageService = new LocalStorageService(directory.toString());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  @Benchmark
+  public List<ObjectMetadata> listObjects() {
+    return storageService.listObjects(BUCKET);
+  }
+}
@@ -0,0 +1,92 @@
+package org.molgenis.armadillo.benchmark;
+
+import static java.util.stream.Collectors.joining;
+import static org.molgenis.r.service.PackageServiceImpl.FIELD_AGGREGATE_METHODS;
+import static org.molgenis.r.service.PackageServiceImpl.FIELD_ASSIGN_METHODS;
+import static org.molgenis.r.service.PackageServiceImpl.FIELD_BUILT;
+import static org.molgenis.r.service.PackageServiceImpl.FIELD_LIB_PATH;
+import static org.molgenis.r.service.PackageServiceImpl.FIELD_OPTIONS;
+import static org.molgenis.r.service.PackageServiceImpl.FIELD_PACKAGE;
+import static org.molgenis.r.service.PackageServiceImpl.FIELD_VERSION;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.molgenis.r.model.RPackage;
+import org.molgenis.r.rserve.RserveNamedList;
+import org.molgenis.r.service.PackageServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPString;
+import org.rosuda.REngine.RList;
+
+/**
+ * Converts the rows of {@code installed.packages()} to packages, reading them with a cursor, for
+ * an R environment with 200 packages of which 10 are DataSHIELD packages with 100 methods each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PackageBenchmark {
+
+  private static final int PACKAGES = 200;
+  private static final int DATASHIELD_PACKAGES = 10;
+  private static final int METHODS = 100;
+
+  private static final List<String> FIELDS =
+      List.of(
+          FIELD_PACKAGE,
+          FIELD_LIB_PATH,
+          FIELD_VERSION,
+          FIELD_BUILT,
+          FIELD_OPTIONS,
+          FIELD_ASSIGN_METHODS,
+          FIELD_AGGREGATE_METHODS);
+
+  private RserveNamedList packages;
+
+  @Setup
+  public void setUp() {
+    Map<String, String[]> columns = new LinkedHashMap<>();
+    FIELDS.forEach(field -> columns.put(field, new String[PACKAGES]));
+    for (int i = 0; i < PACKAGES; i++) {
+      columns.get(FIELD_PACKAGE)[i] = "package" + i;
+      columns.get(FIELD_LIB_PATH)[i] = "/usr/local/lib/R/site-library";
+      columns.get(FIELD_VERSION)[i] = "1.2." + i;
+      columns.get(FIELD_BUILT)[i] = "4.2.1";
+      if (i < DATASHIELD_PACKAGES) {
+        columns.get(FIELD_OPTIONS)[i] = "datashield.privacyLevel=5, datashield.seed=" + i;
+        columns.get(FIELD_ASSIGN_METHODS)[i] = methods("assign" + i);
+        columns.get(FIELD_AGGREGATE_METHODS)[i] = methods("aggregate" + i);
+      }
+    }
+    List<REXP> values = new ArrayList<>();
+    columns.values().forEach(column -> values.add(new REXPString(column)));
+    packages = new RserveNamedList(new RList(values, FIELDS.toArray(String[]::new)));
+  }
+
+  private static String methods(String prefix) {
+    return IntStream.range(0, METHODS)
+        .mapToObj(i -> i % 10 == 0 ? "dim" + i + "=base::dim" : prefix + "DS" + i)
+        .collect(joining(", "));
+  }
+
+  @Benchmark
+  public List<RPackage> toPackage() {
+    var result = new ArrayList<RPackage>(PACKAGES);
+    var rows = packages.getRows();
+    while (rows.next()) {
+      result.add(PackageServiceImpl.toPackage(rows));
+    }
+    return result;
+  }
+}
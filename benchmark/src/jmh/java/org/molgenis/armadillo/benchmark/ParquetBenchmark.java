@@ -0,0 +1,49 @@
+package org.molgenis.armadillo.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.armadillo.storage.ParquetUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.FileSystemUtils;
+
+/** Previews a table like the preview endpoint does: the first 10 rows of the first 10 columns. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParquetBenchmark {
+
+  @Param({"10000", "1000000"})
+  private int rows;
+
+  private Path directory;
+  private Path table;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("parquet-benchmark");
+    table = directory.resolve("table.parquet");
+    Tables.write(table, rows);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  @Benchmark
+  public List<Map<String, String>> previewRecords() throws IOException {
+    return ParquetUtils.previewRecords(table, 10, 10);
+  }
+}
@@ -0,0 +1,90 @@
+package org.molgenis.armadillo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.r.rserve.RserveNamedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPDouble;
+import org.rosuda.REngine.REXPInteger;
+import org.rosuda.REngine.REXPLogical;
+import org.rosuda.REngine.REXPString;
+import org.rosuda.REngine.RList;
+
+/**
+ * Converts a data frame, as it comes back from R, to rows. The data frame has columns of each type
+ * with a few missing values, like the results of {@code installed.packages()} (hundreds of rows)
+ * or of a table that is read into Java (thousands of rows). Reads it as maps, and with a cursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RNamedListBenchmark {
+
+  @Param({"250", "10000"})
+  private int rows;
+
+  private RserveNamedList namedList;
+
+  @Setup
+  public void setUp() {
+    var random = new Random(0);
+    var integers = new int[rows];
+    var doubles = new double[rows];
+    var strings = new String[rows];
+    var logicals = new byte[rows];
+    for (int i = 0; i < rows; i++) {
+      boolean missing = random.nextInt(20) == 0;
+      integers[i] = missing ? REXPInteger.NA : random.nextInt(1000);
+      doubles[i] = missing ? REXPDouble.NA : random.nextGaussian();
+      strings[i] = missing ? null : "value" + random.nextInt(1000);
+      logicals[i] = missing ? REXPLogical.NA : (byte) random.nextInt(2);
+    }
+    List<REXP> columns = new ArrayList<>();
+    var names = new ArrayList<String>();
+    for (int i = 0; i < 3; i++) {
+      columns.add(new REXPInteger(integers));
+      columns.add(new REXPDouble(doubles));
+      columns.add(new REXPString(strings));
+      columns.add(new REXPLogical(logicals));
+      names.addAll(List.of("integer" + i, "double" + i, "string" + i, "logical" + i));
+    }
+    namedList = new RserveNamedList(new RList(columns, names.toArray(String[]::new)));
+  }
+
+  @Benchmark
+  public List<Map<String, Object>> asRows() {
+    return namedList.asRows();
+  }
+
+  @Benchmark
+  public double getRows() {
+    double sum = 0;
+    var cursor = namedList.getRows();
+    while (cursor.next()) {
+      if (!cursor.isNA("integer0")) {
+        sum += cursor.getInt("integer0");
+      }
+      if (!cursor.isNA("double0")) {
+        sum += cursor.getDouble("double0");
+      }
+      if (!cursor.isNA("string0")) {
+        sum += cursor.getString("string0").length();
+      }
+      if (!cursor.isNA("logical0") && cursor.getLogical("logical0")) {
+        sum++;
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,63 @@
+package org.molgenis.armadillo.benchmark;
+
+import static org.apache.parquet.schema.LogicalTypeAnnotation.stringType;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.DOUBLE;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+/** Writes tables like the ones of a cohort, for the benchmarks that read parquet files. */
+class Tables {
+
+  /** The number of columns of each type. */
+  private static final int COLUMNS = 10;
+
+  private Tables() {}
+
+  /**
+   * Writes a table with an id, {@link #COLUMNS} integer, double and string columns each, and a few
+   * missing values.
+   */
+  static void write(Path path, int rows) throws IOException {
+    List<Type> fields = new ArrayList<>();
+    fields.add(Types.required(INT32).named("id"));
+    for (int i = 0; i < COLUMNS; i++) {
+      fields.add(Types.optional(INT32).named("integer" + i));
+      fields.add(Types.optional(DOUBLE).named("double" + i));
+      fields.add(Types.optional(BINARY).as(stringType()).named("string" + i));
+    }
+    var schema = new MessageType("table", fields);
+    var factory = new SimpleGroupFactory(schema);
+    var random = new Random(0);
+    try (ParquetWriter<Group> writer =
+        ExampleParquetWriter.builder(new org.apache.hadoop.fs.Path(path.toUri()))
+            .withType(schema)
+            .withCompressionCodec(CompressionCodecName.SNAPPY)
+            .build()) {
+      for (int row = 0; row < rows; row++) {
+        var group = factory.newGroup().append("id", row);
+        for (int i = 0; i < COLUMNS; i++) {
+          if (random.nextInt(20) != 0) {
+            group.append("integer" + i, random.nextInt(100));
+            group.append("double" + i, random.nextGaussian());
+            group.append("string" + i, "category" + random.nextInt(50));
+          }
+        }
+        writer.write(group);
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package org.molgenis.r;
+
+/**
+ * A column of a data frame that was returned by R. The values and the mask of missing values are
+ * decoded once, when the column is created, so that reading a value is an array access, without
+ * boxing.
+ */
+public interface RColumn {
+
+  enum Type {
+    INTEGER,
+    LOGICAL,
+    NUMERIC,
+    STRING,
+    /** Values that can't be read per row, such as lists. They are all missing. */
+    OTHER
+  }
+
+  String getName();
+
+  Type getType();
+
+  int size();
+
+  /** Whether the value of a row is missing (NA, or null for strings). */
+  boolean isNA(int row);
+
+  /**
+   * Gets the value of a row of an integer column.
+   *
+   * @throws IllegalStateException if the column isn't an integer column
+   */
+  int getInt(int row);
+
+  /**
+   * Gets the value of a row of a numeric column.
+   *
+   * @throws IllegalStateException if the column isn't a numeric column
+   */
+  double getDouble(int row);
+
+  /**
+   * Gets the value of a row of a logical column.
+   *
+   * @throws IllegalStateException if the column isn't a logical column
+   */
+  boolean getLogical(int row);
+
+  /**
+   * Gets the value of a row of a string column.
+   *
+   * @throws IllegalStateException if the column isn't a string column
+   */
+  String getString(int row);
+
+  /** Gets the value of a row as an Integer, Boolean, Double or String, or null if it's missing. */
+  Object get(int row);
+}
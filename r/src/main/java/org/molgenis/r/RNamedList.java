@@ -28,5 +28,15 @@ public interface RNamedList<T> extends Map<String, T> {
     throw new IllegalArgumentException("Operation not available");
   }
 
+  /**
+   * Converts a named list of vectors, such as a data frame, to rows, leaving out missing values.
+   * Reading the rows with {@link #getRows()} doesn't create a map per row.
+   */
   List<Map<String, Object>> asRows();
+
+  /** The values of the list as the columns of a data frame, in order. */
+  List<RColumn> getColumns();
+
+  /** A cursor over the rows of the list as a data frame, as many as the first column has. */
+  RRowCursor getRows();
 }
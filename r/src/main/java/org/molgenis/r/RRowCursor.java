@@ -0,0 +1,33 @@
+package org.molgenis.r;
+
+/**
+ * Reads the rows of a data frame one by one, straight from its {@link RColumn columns}, without
+ * creating an object per row. Starts before the first row. The typed getters throw an {@link
+ * IllegalArgumentException} for columns that don't exist.
+ */
+public interface RRowCursor {
+
+  /** Moves to the next row, returns false if there are no more rows. */
+  boolean next();
+
+  /** The index of the current row. */
+  int getRow();
+
+  /** Whether the value of a column is missing in the current row, or the column doesn't exist. */
+  boolean isNA(String column);
+
+  /** @see RColumn#getInt(int) */
+  int getInt(String column);
+
+  /** @see RColumn#getDouble(int) */
+  double getDouble(String column);
+
+  /** @see RColumn#getLogical(int) */
+  boolean getLogical(String column);
+
+  /** @see RColumn#getString(int) */
+  String getString(String column);
+
+  /** The value of a column in the current row, or null if it's missing or there's no column. */
+  Object get(String column);
+}
@@ -3,6 +3,7 @@ package org.molgenis.r.model;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Character.isLetter;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -10,6 +11,8 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.lang.Nullable;
 
 @AutoValue
@@ -84,4 +87,25 @@ public abstract class RPackage {
   public static Builder builder() {
     return new AutoValue_RPackage.Builder();
   }
+
+  @JsonCreator
+  public static RPackage create(
+      @JsonProperty("name") String name,
+      @JsonProperty("libPath") String libPath,
+      @JsonProperty("version") String version,
+      @JsonProperty("built") String built,
+      @JsonProperty("assignMethods") Set<String> assignMethods,
+      @JsonProperty("aggregateMethods") Set<String> aggregateMethods,
+      @JsonProperty("options") Map<String, String> options) {
+    return builder()
+        .setName(name)
+        .setLibPath(libPath)
+        .setVersion(version)
+        .setBuilt(built)
+        .setAssignMethods(assignMethods != null ? ImmutableSet.copyOf(assignMethods) : null)
+        .setAggregateMethods(
+            aggregateMethods != null ? ImmutableSet.copyOf(aggregateMethods) : null)
+        .setOptions(options != null ? ImmutableMap.copyOf(options) : null)
+        .build();
+  }
 }
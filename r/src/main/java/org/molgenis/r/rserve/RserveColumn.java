@@ -0,0 +1,110 @@
+package org.molgenis.r.rserve;
+
+import static java.lang.String.format;
+import static org.rosuda.REngine.REXPLogical.TRUE;
+
+import org.molgenis.r.RColumn;
+import org.molgenis.r.RServerResult;
+
+/** A column of a data frame, with the values of the {@link RServerResult} decoded once. */
+final class RserveColumn implements RColumn {
+
+  private final String name;
+  private final Type type;
+  private final int size;
+  private final boolean[] na;
+  private final int[] ints;
+  private final double[] doubles;
+  private final String[] strings;
+
+  RserveColumn(String name, RServerResult values) {
+    this.name = name;
+    this.type = getType(values);
+    this.size = Math.max(values.length(), 0);
+    this.na = type == Type.OTHER ? null : values.isNA();
+    this.ints = type == Type.INTEGER || type == Type.LOGICAL ? values.asIntegers() : null;
+    this.doubles = type == Type.NUMERIC ? values.asDoubles() : null;
+    this.strings = type == Type.STRING ? values.asStrings() : null;
+  }
+
+  private static Type getType(RServerResult values) {
+    if (values.isInteger()) {
+      return Type.INTEGER;
+    } else if (values.isLogical()) {
+      return Type.LOGICAL;
+    } else if (values.isNumeric()) {
+      return Type.NUMERIC;
+    } else if (values.isString()) {
+      return Type.STRING;
+    } else {
+      return Type.OTHER;
+    }
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Type getType() {
+    return type;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNA(int row) {
+    return na == null || na[row];
+  }
+
+  @Override
+  public int getInt(int row) {
+    checkType(Type.INTEGER);
+    return ints[row];
+  }
+
+  @Override
+  public double getDouble(int row) {
+    checkType(Type.NUMERIC);
+    return doubles[row];
+  }
+
+  @Override
+  public boolean getLogical(int row) {
+    checkType(Type.LOGICAL);
+    return ints[row] == TRUE;
+  }
+
+  @Override
+  public String getString(int row) {
+    checkType(Type.STRING);
+    return strings[row];
+  }
+
+  @Override
+  public Object get(int row) {
+    if (isNA(row)) {
+      return null;
+    }
+    if (type == Type.INTEGER) {
+      return ints[row];
+    } else if (type == Type.LOGICAL) {
+      return ints[row] == TRUE;
+    } else if (type == Type.NUMERIC) {
+      return doubles[row];
+    } else {
+      return strings[row];
+    }
+  }
+
+  private void checkType(Type expected) {
+    if (type != expected) {
+      throw new IllegalStateException(
+          format("Column '%s' is of type %s, not %s", name, type, expected));
+    }
+  }
+}
@@ -1,13 +1,14 @@
 package org.molgenis.r.rserve;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static org.rosuda.REngine.REXPLogical.TRUE;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.util.*;
+import org.molgenis.r.RColumn;
 import org.molgenis.r.RNamedList;
+import org.molgenis.r.RRowCursor;
 import org.molgenis.r.RServerResult;
 import org.rosuda.REngine.REXP;
 import org.rosuda.REngine.REXPMismatchException;
@@ -18,6 +19,9 @@ public class RserveNamedList implements RNamedList<RServerResult> {
 
   private final Map<String, RServerResult> namedList = Maps.newLinkedHashMap();
 
+  /** The values as columns, decoded once so that rows can be read without converting them. */
+  private Map<String, RColumn> columns;
+
   private List<String> names = Lists.newArrayList();
 
   public RserveNamedList(REXP rexp) throws REXPMismatchException {
@@ -79,35 +83,42 @@ public class RserveNamedList implements RNamedList<RServerResult> {
   @Override
   public List<Map<String, Object>> asRows() {
     List<Map<String, Object>> rows = newArrayList();
-    if (names.isEmpty()) return rows;
-
-    var numRows = namedList.get(names.get(0)).length();
+    var columns = getColumns();
+    var numRows = getNumRows();
     for (int rowNum = 0; rowNum < numRows; rowNum++) {
-      Map<String, Object> converted = new LinkedHashMap<>();
+      Map<String, Object> converted = Maps.newLinkedHashMapWithExpectedSize(columns.size());
       rows.add(converted);
-      for (String name : names) {
-        RServerResult values = namedList.get(name);
-        getValueAtIndex(values, rowNum).ifPresent(value -> converted.put(name, value));
+      for (RColumn column : columns) {
+        var value = column.get(rowNum);
+        if (value != null) {
+          converted.put(column.getName(), value);
+        }
       }
     }
     return rows;
   }
 
-  private Optional<Object> getValueAtIndex(RServerResult values, int rowNum) {
-    if (values.isNA()[rowNum]) {
-      return Optional.empty();
-    }
-    if (values.isInteger()) {
-      return Optional.of(values.asIntegers()[rowNum]);
-    } else if (values.isLogical()) {
-      return Optional.of(values.asIntegers()[rowNum]).map(it -> Integer.valueOf(TRUE).equals(it));
-    } else if (values.isNumeric()) {
-      return Optional.of(values.asDoubles()[rowNum]);
-    } else if (values.isString()) {
-      return Optional.ofNullable(values.asStrings()[rowNum]);
-    } else {
-      return Optional.empty();
+  @Override
+  public List<RColumn> getColumns() {
+    return List.copyOf(getColumnsByName().values());
+  }
+
+  @Override
+  public RRowCursor getRows() {
+    return new RserveRowCursor(getColumnsByName(), getNumRows());
+  }
+
+  private int getNumRows() {
+    return names.isEmpty() ? 0 : getColumnsByName().get(names.get(0)).size();
+  }
+
+  private synchronized Map<String, RColumn> getColumnsByName() {
+    if (columns == null) {
+      Map<String, RColumn> decoded = Maps.newLinkedHashMap();
+      namedList.forEach((name, values) -> decoded.put(name, new RserveColumn(name, values)));
+      columns = Collections.unmodifiableMap(decoded);
     }
+    return columns;
   }
 
   private void initialize(RList list) {
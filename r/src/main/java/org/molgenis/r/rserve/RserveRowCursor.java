@@ -0,0 +1,80 @@
+package org.molgenis.r.rserve;
+
+import static java.lang.String.format;
+
+import java.util.Map;
+import org.molgenis.r.RColumn;
+import org.molgenis.r.RRowCursor;
+
+/** Reads rows from the columns of a {@link RserveNamedList}. */
+final class RserveRowCursor implements RRowCursor {
+
+  private final Map<String, RColumn> columns;
+  private final int rows;
+  private int row = -1;
+
+  RserveRowCursor(Map<String, RColumn> columns, int rows) {
+    this.columns = columns;
+    this.rows = rows;
+  }
+
+  @Override
+  public boolean next() {
+    if (row < rows) {
+      row++;
+    }
+    return row < rows;
+  }
+
+  @Override
+  public int getRow() {
+    return row;
+  }
+
+  @Override
+  public boolean isNA(String column) {
+    var values = columns.get(column);
+    return values == null || values.isNA(getCurrentRow());
+  }
+
+  @Override
+  public int getInt(String column) {
+    return getColumn(column).getInt(getCurrentRow());
+  }
+
+  @Override
+  public double getDouble(String column) {
+    return getColumn(column).getDouble(getCurrentRow());
+  }
+
+  @Override
+  public boolean getLogical(String column) {
+    return getColumn(column).getLogical(getCurrentRow());
+  }
+
+  @Override
+  public String getString(String column) {
+    return getColumn(column).getString(getCurrentRow());
+  }
+
+  @Override
+  public Object get(String column) {
+    var values = columns.get(column);
+    return values == null ? null : values.get(getCurrentRow());
+  }
+
+  private RColumn getColumn(String column) {
+    var values = columns.get(column);
+    if (values == null) {
+      throw new IllegalArgumentException(format("Unknown column '%s'", column));
+    }
+    return values;
+  }
+
+  private int getCurrentRow() {
+    if (row < 0 || row >= rows) {
+      throw new IllegalStateException("The cursor is not on a row");
+    }
+    return row;
+  }
+}
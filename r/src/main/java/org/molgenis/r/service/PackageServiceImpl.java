@@ -6,10 +6,12 @@ import static org.springframework.util.ObjectUtils.isEmpty;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.molgenis.r.RRowCursor;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerException;
 import org.molgenis.r.RServerResult;
@@ -58,8 +60,12 @@ public class PackageServiceImpl implements PackageService {
   public List<RPackage> getInstalledPackages(RServerConnection connection) {
     try {
       RServerResult eval = connection.eval(COMMAND_INSTALLED_PACKAGES);
-      List<Map<String, Object>> rows = eval.asNamedList().asRows();
-      return rows.stream().map(PackageServiceImpl::toPackage).collect(Collectors.toList());
+      RRowCursor rows = eval.asNamedList().getRows();
+      List<RPackage> packages = new ArrayList<>();
+      while (rows.next()) {
+        packages.add(toPackage(rows));
+      }
+      return packages;
     } catch (RServerException e) {
       throw new RExecutionException(e);
     }
@@ -77,25 +83,33 @@ public class PackageServiceImpl implements PackageService {
     }
   }
 
-  public static RPackage toPackage(Map<String, Object> row) {
+  /** Converts the current row of the result of {@link #COMMAND_INSTALLED_PACKAGES}. */
+  public static RPackage toPackage(RRowCursor row) {
     RPackage.Builder builder =
         RPackage.builder()
-            .setName((String) row.get(FIELD_PACKAGE))
-            .setLibPath((String) row.get(FIELD_LIB_PATH))
-            .setVersion((String) row.get(FIELD_VERSION))
-            .setBuilt((String) row.get(FIELD_BUILT));
-    if (!isEmpty(row.get(FIELD_OPTIONS))) {
-      builder.setOptions(parseOptions((String) row.get(FIELD_OPTIONS)));
+            .setName(getString(row, FIELD_PACKAGE))
+            .setLibPath(getString(row, FIELD_LIB_PATH))
+            .setVersion(getString(row, FIELD_VERSION))
+            .setBuilt(getString(row, FIELD_BUILT));
+    String options = getString(row, FIELD_OPTIONS);
+    if (!isEmpty(options)) {
+      builder.setOptions(parseOptions(options));
     }
-    if (!isEmpty(row.get(FIELD_ASSIGN_METHODS))) {
-      builder.setAssignMethods(parseMethods((String) row.get(FIELD_ASSIGN_METHODS)));
+    String assignMethods = getString(row, FIELD_ASSIGN_METHODS);
+    if (!isEmpty(assignMethods)) {
+      builder.setAssignMethods(parseMethods(assignMethods));
     }
-    if (!isEmpty(row.get(FIELD_AGGREGATE_METHODS))) {
-      builder.setAggregateMethods(parseMethods((String) row.get(FIELD_AGGREGATE_METHODS)));
+    String aggregateMethods = getString(row, FIELD_AGGREGATE_METHODS);
+    if (!isEmpty(aggregateMethods)) {
+      builder.setAggregateMethods(parseMethods(aggregateMethods));
     }
     return builder.build();
   }
 
+  private static String getString(RRowCursor row, String column) {
+    return row.isNA(column) ? null : row.getString(column);
+  }
+
   // TODO: check out DataShieldROptionsParser in opal, values can contain commas?
   static ImmutableMap<String, String> parseOptions(String options) {
     Map<String, String> optionsMap =
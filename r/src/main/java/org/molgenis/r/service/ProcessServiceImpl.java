@@ -3,11 +3,11 @@ package org.molgenis.r.service;
 import static java.util.stream.Collectors.toList;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import org.molgenis.r.RNamedList;
+import org.molgenis.r.RRowCursor;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerResult;
 import org.molgenis.r.exceptions.RExecutionException;
@@ -69,9 +69,13 @@ public class ProcessServiceImpl implements ProcessService {
 
   @Override
   public List<RProcess> getRserveProcesses(RServerConnection connection) {
-    RNamedList<RServerResult> result =
-        rExecutorService.execute(GET_RSERVE_PROCESSES_COMMAND, connection).asNamedList();
-    return result.asRows().stream().map(this::toRProcess).collect(toList());
+    RRowCursor rows =
+        rExecutorService.execute(GET_RSERVE_PROCESSES_COMMAND, connection).asNamedList().getRows();
+    List<RProcess> processes = new ArrayList<>();
+    while (rows.next()) {
+      processes.add(toRProcess(rows));
+    }
+    return processes;
   }
 
   @Override
@@ -85,33 +89,45 @@ public class ProcessServiceImpl implements ProcessService {
     rExecutorService.execute(String.format(TERMINATE_COMMAND, pid), connection);
   }
 
-  private RProcess toRProcess(Map<String, Object> values) {
+  private static RProcess toRProcess(RRowCursor row) {
     var builder = RProcess.builder();
-    Optional.ofNullable((Integer) values.get("pid")).ifPresent(builder::setPid);
-    Optional.ofNullable((Integer) values.get("ppid")).ifPresent(builder::setPPid);
-    Optional.ofNullable((String) values.get("name")).ifPresent(builder::setName);
-    Optional.ofNullable((String) values.get("cmd")).ifPresent(builder::setCmd);
-    Optional.ofNullable((String) values.get("username")).ifPresent(builder::setUsername);
-    Optional.ofNullable((String) values.get("status"))
+    if (!row.isNA("pid")) {
+      builder.setPid(row.getInt("pid"));
+    }
+    if (!row.isNA("ppid")) {
+      builder.setPPid(row.getInt("ppid"));
+    }
+    getString(row, "name").ifPresent(builder::setName);
+    getString(row, "cmd").ifPresent(builder::setCmd);
+    getString(row, "username").ifPresent(builder::setUsername);
+    getString(row, "status")
         .map(String::toUpperCase)
         .map(Status::valueOf)
         .ifPresent(builder::setStatus);
-    Optional.ofNullable((Double) values.get("created"))
-        .flatMap(this::parseDate)
-        .ifPresent(builder::setCreated);
-    Optional.ofNullable((String) values.get("ports"))
+    if (!row.isNA("created")) {
+      builder.setCreated(Instant.ofEpochMilli(Math.round(row.getDouble("created") * 1000)));
+    }
+    getString(row, "ports")
         .filter(it -> !it.isEmpty())
         .map(it -> it.split(" "))
         .map(it -> Arrays.stream(it).map(Integer::parseInt).collect(toList()))
         .ifPresent(builder::setPorts);
-    Optional.ofNullable((Double) values.get("user")).ifPresent(builder::setUser);
-    Optional.ofNullable((Double) values.get("system")).ifPresent(builder::setSystem);
-    Optional.ofNullable((Double) values.get("rss")).ifPresent(builder::setRss);
-    Optional.ofNullable((Double) values.get("vms")).ifPresent(builder::setVms);
+    if (!row.isNA("user")) {
+      builder.setUser(row.getDouble("user"));
+    }
+    if (!row.isNA("system")) {
+      builder.setSystem(row.getDouble("system"));
+    }
+    if (!row.isNA("rss")) {
+      builder.setRss(row.getDouble("rss"));
+    }
+    if (!row.isNA("vms")) {
+      builder.setVms(row.getDouble("vms"));
+    }
     return builder.build();
   }
 
-  private Optional<Instant> parseDate(Double date) {
-    return Optional.ofNullable(date).map(it -> Math.round(it * 1000)).map(Instant::ofEpochMilli);
+  private static Optional<String> getString(RRowCursor row, String column) {
+    return row.isNA(column) ? Optional.empty() : Optional.of(row.getString(column));
   }
 }
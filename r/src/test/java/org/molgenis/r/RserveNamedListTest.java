@@ -1,7 +1,10 @@
 package org.molgenis.r;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
 import java.util.Map;
@@ -11,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.molgenis.r.RColumn.Type;
 import org.molgenis.r.rserve.RserveNamedList;
 import org.rosuda.REngine.*;
 
@@ -109,4 +113,50 @@ class RserveNamedListTest {
     var parsed = new RserveNamedList(rList).asRows();
     assertNull(parsed.get(0).get("id"));
   }
+
+  @Test
+  void getColumnsDecodesTheVectors() {
+    RList rList =
+        new RList(
+            List.of(
+                new REXPInteger(new int[] {1, REXPInteger.NA}),
+                new REXPDouble(new double[] {0.5, REXPDouble.NA}),
+                new REXPLogical(new byte[] {REXPLogical.TRUE, REXPLogical.NA}),
+                new REXPString(new String[] {"a", null})),
+            new String[] {"int", "double", "logical", "string"});
+    var columns = new RserveNamedList(rList).getColumns();
+
+    assertEquals(
+        List.of(Type.INTEGER, Type.NUMERIC, Type.LOGICAL, Type.STRING),
+        columns.stream().map(RColumn::getType).toList());
+    assertEquals(1, columns.get(0).getInt(0));
+    assertEquals(0.5, columns.get(1).getDouble(0));
+    assertTrue(columns.get(2).getLogical(0));
+    assertEquals("a", columns.get(3).getString(0));
+    assertTrue(columns.stream().allMatch(column -> column.isNA(1)));
+    assertThrows(IllegalStateException.class, () -> columns.get(0).getString(0));
+  }
+
+  @Test
+  void getRowsReadsTheColumns() {
+    RList rList =
+        new RList(
+            List.of(
+                new REXPInteger(new int[] {1, 2}),
+                new REXPString(new String[] {"label1", null})),
+            new String[] {"id", "label"});
+    var cursor = new RserveNamedList(rList).getRows();
+
+    assertTrue(cursor.next());
+    assertEquals(1, cursor.getInt("id"));
+    assertEquals("label1", cursor.getString("label"));
+    assertTrue(cursor.next());
+    assertEquals(2, cursor.get("id"));
+    assertTrue(cursor.isNA("label"));
+    assertTrue(cursor.isNA("unknown"));
+    assertNull(cursor.get("unknown"));
+    assertThrows(IllegalArgumentException.class, () -> cursor.getInt("unknown"));
+    assertFalse(cursor.next());
+    assertThrows(IllegalStateException.class, () -> cursor.getInt("id"));
+  }
 }
@@ -2,6 +2,11 @@ package org.molgenis.r.model;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -18,4 +23,22 @@ class RPackageTest {
   void testCheckValidNames(String name) {
     RPackage.checkName(name);
   }
+
+  @Test
+  void testJsonRoundTrip() throws JsonProcessingException {
+    var objectMapper = new ObjectMapper();
+    var rPackage =
+        RPackage.builder()
+            .setName("dsBase")
+            .setLibPath("/usr/local/lib/R/site-library")
+            .setVersion("6.2.0")
+            .setBuilt("4.2.1")
+            .setAssignMethods(ImmutableSet.of("meanDS", "dim=base::dim"))
+            .setOptions(ImmutableMap.of("datashield.privacyLevel", "5"))
+            .build();
+
+    var json = objectMapper.writeValueAsString(rPackage);
+
+    assertEquals(rPackage, objectMapper.readValue(json, RPackage.class));
+  }
 }
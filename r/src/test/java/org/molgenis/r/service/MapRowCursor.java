@@ -0,0 +1,64 @@
+package org.molgenis.r.service;
+
+import java.util.List;
+import java.util.Map;
+import org.molgenis.r.RRowCursor;
+
+/** Reads rows that are given as maps, a value that isn't in the map is missing. */
+class MapRowCursor implements RRowCursor {
+
+  private final List<Map<String, ?>> rows;
+  private int row = -1;
+
+  private MapRowCursor(List<Map<String, ?>> rows) {
+    this.rows = rows;
+  }
+
+  @SafeVarargs
+  static MapRowCursor of(Map<String, ?>... rows) {
+    return new MapRowCursor(List.of(rows));
+  }
+
+  @Override
+  public boolean next() {
+    if (row < rows.size()) {
+      row++;
+    }
+    return row < rows.size();
+  }
+
+  @Override
+  public int getRow() {
+    return row;
+  }
+
+  @Override
+  public boolean isNA(String column) {
+    return get(column) == null;
+  }
+
+  @Override
+  public int getInt(String column) {
+    return (Integer) get(column);
+  }
+
+  @Override
+  public double getDouble(String column) {
+    return (Double) get(column);
+  }
+
+  @Override
+  public boolean getLogical(String column) {
+    return (Boolean) get(column);
+  }
+
+  @Override
+  public String getString(String column) {
+    return (String) get(column);
+  }
+
+  @Override
+  public Object get(String column) {
+    return rows.get(row).get(column);
+  }
+}
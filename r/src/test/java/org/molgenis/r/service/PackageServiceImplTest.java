@@ -53,9 +53,9 @@ class PackageServiceImplTest {
   void testGetInstalledPackages() throws RServerException {
     when(rConnection.eval(anyString())).thenReturn(rexp);
     when(rexp.asNamedList()).thenReturn(rlist);
-    when(rlist.asRows())
+    when(rlist.getRows())
         .thenReturn(
-            List.of(
+            MapRowCursor.of(
                 Map.of(
                     "Package",
                     BASE.name(),
@@ -81,9 +81,9 @@ class PackageServiceImplTest {
   void testParseSimpleOptions() throws REXPMismatchException, RServerException {
     when(rConnection.eval(anyString())).thenReturn(rexp);
     when(rexp.asNamedList()).thenReturn(rlist);
-    when(rlist.asRows())
+    when(rlist.getRows())
         .thenReturn(
-            List.of(
+            MapRowCursor.of(
                 Map.of(
                     "Package",
                     "p",
@@ -104,9 +104,9 @@ class PackageServiceImplTest {
   void testParseSkipsEmptyStrings() throws RServerException {
     when(rConnection.eval(anyString())).thenReturn(rexp);
     when(rexp.asNamedList()).thenReturn(rlist);
-    when(rlist.asRows())
+    when(rlist.getRows())
         .thenReturn(
-            List.of(
+            MapRowCursor.of(
                 Map.of(
                     "Package",
                     "p",
@@ -131,9 +131,9 @@ class PackageServiceImplTest {
   void testParseAssignMethods() throws RServerException {
     when(rConnection.eval(anyString())).thenReturn(rexp);
     when(rexp.asNamedList()).thenReturn(rlist);
-    when(rlist.asRows())
+    when(rlist.getRows())
         .thenReturn(
-            List.of(
+            MapRowCursor.of(
                 Map.of(
                     "Package",
                     "p",
@@ -154,9 +154,9 @@ class PackageServiceImplTest {
   void testParseAggregateMethods() throws RServerException {
     when(rConnection.eval(anyString())).thenReturn(rexp);
     when(rexp.asNamedList()).thenReturn(rlist);
-    when(rlist.asRows())
+    when(rlist.getRows())
         .thenReturn(
-            List.of(
+            MapRowCursor.of(
                 Map.of(
                     "Package",
                     "p",
@@ -66,9 +66,9 @@ class ProcessServiceImplTest {
   void testGetRserveProcesses() {
     when(rExecutorService.execute(GET_RSERVE_PROCESSES_COMMAND, rConnection)).thenReturn(rexp);
     when(rexp.asNamedList()).thenReturn(list);
-    when(list.asRows())
+    when(list.getRows())
         .thenReturn(
-            List.of(
+            MapRowCursor.of(
                 Map.ofEntries(
                     entry("pid", 645),
                     entry("ppid", 632),